@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies JSON patch and JSON merge patch requests to KV objects and events
+ * the way the Orchestrate service does, including its extensions to RFC 6902
+ * ({@code inc}, {@code init}, {@code merge} and nested {@code patch} ops).
+ * Paths are JSON pointers (e.g. {@code /name/first}) or dotted field names
+ * (e.g. {@code name.first}).
+ */
+final class FakeJsonPatch {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private FakeJsonPatch() {}
+
+    /**
+     * Thrown when an op of a patch can't be applied, the whole patch fails.
+     */
+    @SuppressWarnings("serial")
+    static final class ConflictException extends Exception {
+
+        /** The op that couldn't be applied. */
+        private final JsonNode op;
+
+        ConflictException(final String message, final JsonNode op) {
+            super(message);
+            this.op = op;
+        }
+
+        JsonNode getOp() {
+            return op;
+        }
+
+    }
+
+    /**
+     * Returns a copy of the {@code target} with the JSON patch {@code ops}
+     * applied.
+     */
+    static JsonNode patch(final JsonNode target, final JsonNode ops) throws ConflictException {
+        if (!ops.isArray()) {
+            throw new ConflictException("A JSON patch must be an array of ops.", ops);
+        }
+        JsonNode result = target.deepCopy();
+        for (final JsonNode op : ops) {
+            result = apply(result, op);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the {@code target} with the JSON merge patch applied
+     * (RFC 7386).
+     */
+    static JsonNode merge(final JsonNode target, final JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch.deepCopy();
+        }
+        final ObjectNode result = target.isObject()
+                ? ((ObjectNode) target).deepCopy()
+                : NODES.objectNode();
+        final Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                final JsonNode current = result.path(field.getKey());
+                result.put(field.getKey(), merge(current, field.getValue()));
+            }
+        }
+        return result;
+    }
+
+    private static JsonNode apply(final JsonNode target, final JsonNode op) throws ConflictException {
+        final String name = op.path("op").asText();
+        final List<String> path = parsePath(op.path("path").asText());
+        // the client writes a missing value as an explicit null
+        final JsonNode value = op.hasNonNull("value") ? op.get("value") : null;
+
+        if (name.equals("add")) {
+            return set(target, path, required(value, op), op, true);
+        } else if (name.equals("replace")) {
+            requireExists(target, path, op);
+            return set(target, path, required(value, op), op, false);
+        } else if (name.equals("remove")) {
+            requireExists(target, path, op);
+            return remove(target, path);
+        } else if (name.equals("move") || name.equals("copy")) {
+            final List<String> from = parsePath(op.path("from").asText());
+            final JsonNode moved = requireExists(target, from, op);
+            final JsonNode source = name.equals("move") ? remove(target, from) : target;
+            return set(source, path, moved.deepCopy(), op, true);
+        } else if (name.equals("test")) {
+            final JsonNode actual = find(target, path);
+            final boolean matches = (value == null)
+                    ? actual != null
+                    : value.equals(actual);
+            if (matches == op.path("negate").asBoolean(false)) {
+                throw new ConflictException("The test op failed.", op);
+            }
+            return target;
+        } else if (name.equals("inc")) {
+            final JsonNode current = find(target, path);
+            final double by = (value == null) ? 1 : value.asDouble();
+            if (current == null) {
+                return set(target, path, number(by), op, true);
+            }
+            if (!current.isNumber()) {
+                throw new ConflictException("The inc op can only be applied to a number.", op);
+            }
+            return set(target, path, number(current.asDouble() + by), op, false);
+        } else if (name.equals("init")) {
+            return (find(target, path) == null)
+                    ? set(target, path, required(value, op), op, true)
+                    : target;
+        } else if (name.equals("merge")) {
+            final JsonNode current = find(target, path);
+            return set(target, path,
+                    merge((current == null) ? NODES.objectNode() : current, required(value, op)),
+                    op, true);
+        } else if (name.equals("patch")) {
+            final JsonNode current = requireExists(target, path, op);
+            try {
+                return set(target, path, patch(current, required(value, op)), op, false);
+            } catch (final ConflictException e) {
+                if (op.path("conditional").asBoolean(false)) {
+                    return target;
+                }
+                throw e;
+            }
+        }
+        throw new ConflictException("Unknown op '" + name + "'.", op);
+    }
+
+    private static List<String> parsePath(final String path) {
+        final List<String> tokens = new ArrayList<String>();
+        if (path.isEmpty() || path.equals("/")) {
+            return tokens;
+        }
+        if (path.indexOf('/') >= 0) {
+            // the leading slash of a pointer is optional
+            final String pointer = path.charAt(0) == '/' ? path.substring(1) : path;
+            for (final String token : pointer.split("/", -1)) {
+                tokens.add(token.replace("~1", "/").replace("~0", "~"));
+            }
+        } else {
+            for (final String token : path.split("\\.", -1)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static JsonNode find(final JsonNode target, final List<String> path) {
+        JsonNode node = target;
+        for (final String token : path) {
+            if (node.isObject()) {
+                node = node.get(token);
+            } else if (node.isArray()) {
+                final int index = index(token, node.size());
+                node = (index < 0 || index >= node.size()) ? null : node.get(index);
+            } else {
+                return null;
+            }
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static JsonNode requireExists(
+            final JsonNode target, final List<String> path, final JsonNode op)
+            throws ConflictException {
+        final JsonNode node = find(target, path);
+        if (node == null) {
+            throw new ConflictException("The path doesn't exist.", op);
+        }
+        return node;
+    }
+
+    private static JsonNode required(final JsonNode value, final JsonNode op) throws ConflictException {
+        if (value == null) {
+            throw new ConflictException("The op requires a value.", op);
+        }
+        return value;
+    }
+
+    private static JsonNode set(
+            final JsonNode target,
+            final List<String> path,
+            final JsonNode value,
+            final JsonNode op,
+            final boolean insert) throws ConflictException {
+        if (path.isEmpty()) {
+            return value;
+        }
+        final JsonNode parent = find(target, path.subList(0, path.size() - 1));
+        final String last = path.get(path.size() - 1);
+        if (parent instanceof ObjectNode) {
+            ((ObjectNode) parent).put(last, value);
+        } else if (parent instanceof ArrayNode) {
+            final ArrayNode array = (ArrayNode) parent;
+            final int index = index(last, array.size());
+            if (index < 0 || index > array.size() || (!insert && index == array.size())) {
+                throw new ConflictException("The array index is out of bounds.", op);
+            }
+            if (insert) {
+                array.insert(index, value);
+            } else {
+                array.set(index, value);
+            }
+        } else {
+            throw new ConflictException("The parent of the path doesn't exist.", op);
+        }
+        return target;
+    }
+
+    private static JsonNode remove(final JsonNode target, final List<String> path) {
+        if (path.isEmpty()) {
+            return NODES.objectNode();
+        }
+        final JsonNode parent = find(target, path.subList(0, path.size() - 1));
+        final String last = path.get(path.size() - 1);
+        if (parent instanceof ObjectNode) {
+            ((ObjectNode) parent).remove(last);
+        } else if (parent instanceof ArrayNode) {
+            ((ArrayNode) parent).remove(index(last, parent.size()));
+        }
+        return target;
+    }
+
+    private static int index(final String token, final int size) {
+        if (token.equals("-")) {
+            return size;
+        }
+        try {
+            return Integer.parseInt(token);
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static JsonNode number(final double value) {
+        return (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE)
+                ? NODES.numberNode((long) value)
+                : NODES.numberNode(value);
+    }
+
+}
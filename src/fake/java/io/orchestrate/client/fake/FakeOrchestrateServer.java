@@ -0,0 +1,634 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.Header;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An embeddable stand-in for the Orchestrate service, with the KV, list,
+ * search, events, relationships and bulk endpoints backed by in-memory
+ * storage. The latency of the service and its failures (errors and rate
+ * limiting) can be simulated to measure the client under realistic
+ * conditions without the network or an API key.
+ *
+ * <pre>
+ * {@code
+ * FakeOrchestrateServer server = FakeOrchestrateServer.builder()
+ *         .latency(5, TimeUnit.MILLISECONDS)
+ *         .jitter(2, TimeUnit.MILLISECONDS)
+ *         .throttleRate(0.01)
+ *         .build();
+ * server.start();
+ *
+ * Client client = OrchestrateClient.builder("any api key")
+ *         .host("http://127.0.0.1")
+ *         .port(server.getPort())
+ *         .useSSL(false)
+ *         .build();
+ * }
+ * </pre>
+ *
+ * <p>Search supports a simple subset of the query syntax, see
+ * {@link FakeSearchQuery}, and aggregates aren't computed.
+ */
+public final class FakeOrchestrateServer {
+
+    /** The default port for the server to listen on. */
+    public static final int DEFAULT_PORT = 18090;
+    /** The default number of requests served on a connection (as Grizzly's default). */
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 256;
+
+    /** The API version prefix of every path. */
+    private static final String API_PREFIX = "/v0";
+
+    /** The embedded HTTP server. */
+    private final HttpServer server;
+    /** The port the server listens on. */
+    private final int port;
+    /** The minimum time (in nanoseconds) to delay each response by. */
+    private final long latencyNanos;
+    /** The maximum random time (in nanoseconds) to add to the latency. */
+    private final long jitterNanos;
+    /** The fraction of requests to fail with a server error. */
+    private final double errorRate;
+    /** The fraction of requests to reject as rate limited. */
+    private final double throttleRate;
+    /** The storage for the requests. */
+    private final FakeStore store;
+    /** The mapper to read and write JSON with. */
+    private final ObjectMapper mapper;
+    /** The scheduler for delayed responses. */
+    private final ScheduledExecutorService scheduler;
+    /** The number of requests received. */
+    private final AtomicLong requests = new AtomicLong();
+    /** The number of errors and rate limited responses injected. */
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    private FakeOrchestrateServer(final Builder builder) {
+        this.port = builder.port;
+        this.latencyNanos = builder.latencyNanos;
+        this.jitterNanos = builder.jitterNanos;
+        this.errorRate = builder.errorRate;
+        this.throttleRate = builder.throttleRate;
+        this.store = new FakeStore();
+        this.mapper = new ObjectMapper();
+        this.scheduler = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "FakeOrchestrateServer-latency");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.server = HttpServer.createSimpleServer(null, "127.0.0.1", port);
+        for (final NetworkListener listener : server.getListeners()) {
+            listener.getKeepAlive().setMaxRequestsCount(builder.maxRequestsPerConnection);
+        }
+        server.getServerConfiguration().addHttpHandler(new FakeHandler(), "/");
+    }
+
+    /**
+     * A new builder to configure the server.
+     *
+     * @return A new {@code Builder}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    public void stop() {
+        server.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the number of requests the server has received.
+     *
+     * @return The number of requests received.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of requests failed with an injected server error or
+     * rate limited response.
+     *
+     * @return The number of failures injected.
+     */
+    public long getInjectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    /** Percent-encodes a path segment or query parameter value. */
+    static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(final String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class FakeHandler extends HttpHandler {
+
+        /** The random numbers to inject latency and failures with, per thread. */
+        private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+            @Override
+            protected Random initialValue() {
+                return new Random();
+            }
+        };
+
+        @Override
+        public void service(final Request request, final Response response) throws Exception {
+            requests.incrementAndGet();
+
+            final FakeStore.Reply reply = injectFailure();
+            final FakeStore.Reply result = (reply != null) ? reply : handle(request);
+
+            final long delay = latencyNanos + ((jitterNanos > 0)
+                    ? (long) (random.get().nextDouble() * jitterNanos)
+                    : 0);
+            if (delay <= 0) {
+                write(request, response, result);
+                return;
+            }
+
+            // don't hold a worker thread while the response is delayed
+            response.suspend();
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        write(request, response, result);
+                    } catch (final IOException ignored) {
+                        // the client closed the connection
+                    } finally {
+                        response.resume();
+                    }
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+
+        private FakeStore.Reply injectFailure() {
+            if (throttleRate > 0 && random.get().nextDouble() < throttleRate) {
+                injectedFailures.incrementAndGet();
+                return FakeStore.error(429, "rate_limit_exceeded",
+                        "The rate limit for the application has been exceeded.", null);
+            }
+            if (errorRate > 0 && random.get().nextDouble() < errorRate) {
+                injectedFailures.incrementAndGet();
+                return FakeStore.error(500, "internal_error",
+                        "An injected failure occurred.", null);
+            }
+            return null;
+        }
+
+        private FakeStore.Reply handle(final Request request) throws IOException {
+            final String uri = request.getRequestURI();
+            if (!uri.startsWith(API_PREFIX)
+                    || (uri.length() > API_PREFIX.length() && uri.charAt(API_PREFIX.length()) != '/')) {
+                return unknownPath();
+            }
+
+            final List<String> path = new ArrayList<String>();
+            for (final String segment : uri.substring(API_PREFIX.length()).split("/")) {
+                if (!segment.isEmpty()) {
+                    path.add(decode(segment));
+                }
+            }
+
+            final Method method = request.getMethod();
+            switch (path.size()) {
+                case 0:
+                    return handleRoot(request, method);
+                case 1:
+                    return handleCollection(request, method, path.get(0));
+                case 2:
+                    return handleItem(request, method, path.get(0), path.get(1));
+                default:
+                    break;
+            }
+
+            final String collection = path.get(0);
+            final String key = path.get(1);
+            final String resource = path.get(2);
+            if (resource.equals("refs") && path.size() == 4 && Method.GET.equals(method)) {
+                return store.getItem(collection, key, path.get(3));
+            }
+            if (resource.equals("events")) {
+                return handleEvents(request, method, collection, key, path.subList(3, path.size()));
+            }
+            if (resource.equals("relation") && path.size() == 6) {
+                return handleRelation(request, method, collection, key,
+                        path.get(3), path.get(4), path.get(5));
+            }
+            if (resource.equals("relations") && path.size() > 3 && Method.GET.equals(method)) {
+                return store.listRelated(collection, key, path.subList(3, path.size()),
+                        intParam(request, "limit", 10), intParam(request, "offset", 0));
+            }
+            return unknownPath();
+        }
+
+        private FakeStore.Reply handleRoot(final Request request, final Method method)
+                throws IOException {
+            if (Method.HEAD.equals(method)) {
+                return new FakeStore.Reply(200, null);
+            }
+            if (Method.GET.equals(method) && request.getParameter("query") != null) {
+                return search(request, null);
+            }
+            if (Method.POST.equals(method)) {
+                final List<JsonNode> operations = new ArrayList<JsonNode>();
+                final MappingIterator<JsonNode> values =
+                        mapper.reader(JsonNode.class).readValues(body(request));
+                while (values.hasNext()) {
+                    operations.add(values.next());
+                }
+                return store.bulk(operations);
+            }
+            return notAllowed();
+        }
+
+        private FakeStore.Reply handleCollection(
+                final Request request, final Method method, final String collection)
+                throws IOException {
+            if (Method.GET.equals(method)) {
+                if (request.getParameter("query") != null) {
+                    return search(request, collection);
+                }
+                final String afterKey = request.getParameter("afterKey");
+                final String beforeKey = request.getParameter("beforeKey");
+                return store.list(collection,
+                        intParam(request, "limit", 10),
+                        !"false".equals(request.getParameter("values")),
+                        (afterKey != null) ? afterKey : request.getParameter("startKey"),
+                        afterKey == null,
+                        (beforeKey != null) ? beforeKey : request.getParameter("endKey"),
+                        beforeKey == null);
+            }
+            if (Method.POST.equals(method)) {
+                return store.postItem(collection, readJson(request));
+            }
+            if (Method.DELETE.equals(method)) {
+                return store.deleteCollection(collection);
+            }
+            return notAllowed();
+        }
+
+        private FakeStore.Reply handleItem(
+                final Request request, final Method method, final String collection, final String key)
+                throws IOException {
+            if (Method.GET.equals(method)) {
+                return store.getItem(collection, key, null);
+            }
+            if (Method.PUT.equals(method)) {
+                return store.putItem(collection, key, readJson(request),
+                        ifMatch(request), "\"*\"".equals(request.getHeader(Header.IfNoneMatch)));
+            }
+            if (Method.PATCH.equals(method)) {
+                return store.patchItem(collection, key, readJson(request),
+                        isMergePatch(request), "true".equals(request.getParameter("upsert")),
+                        ifMatch(request));
+            }
+            if (Method.DELETE.equals(method)) {
+                return store.deleteItem(collection, key, ifMatch(request),
+                        "true".equals(request.getParameter("purge")));
+            }
+            return notAllowed();
+        }
+
+        private FakeStore.Reply handleEvents(
+                final Request request,
+                final Method method,
+                final String collection,
+                final String key,
+                final List<String> path) throws IOException {
+            if (path.isEmpty()) {
+                return unknownPath();
+            }
+            final String type = path.get(0);
+            if (path.size() == 1) {
+                if (Method.GET.equals(method)) {
+                    return store.listEvents(collection, key, type, intParam(request, "limit", 10),
+                            longParam(request, "start"), longParam(request, "end"));
+                }
+                if (Method.POST.equals(method)) {
+                    return store.createEvent(collection, key, type, null, readJson(request), 201);
+                }
+                if (Method.PUT.equals(method)) {
+                    return store.createEvent(collection, key, type,
+                            longParam(request, "timestamp"), readJson(request), 204);
+                }
+                return notAllowed();
+            }
+            if (path.size() == 2 && Method.POST.equals(method)) {
+                final Long timestamp = parseLong(path.get(1));
+                if (timestamp == null) {
+                    return unknownPath();
+                }
+                return store.createEvent(collection, key, type, timestamp, readJson(request), 201);
+            }
+            if (path.size() != 3) {
+                return unknownPath();
+            }
+
+            final String timestamp = path.get(1);
+            final String ordinal = path.get(2);
+            if (Method.GET.equals(method)) {
+                return store.getEvent(collection, key, type, timestamp, ordinal);
+            }
+            if (Method.PUT.equals(method)) {
+                return store.updateEvent(collection, key, type, timestamp, ordinal,
+                        readJson(request), null, ifMatch(request));
+            }
+            if (Method.PATCH.equals(method)) {
+                return store.updateEvent(collection, key, type, timestamp, ordinal,
+                        readJson(request), isMergePatch(request) ? "merge" : "patch",
+                        ifMatch(request));
+            }
+            if (Method.DELETE.equals(method)) {
+                return store.deleteEvent(collection, key, type, timestamp, ordinal, ifMatch(request));
+            }
+            return notAllowed();
+        }
+
+        private FakeStore.Reply handleRelation(
+                final Request request,
+                final Method method,
+                final String collection,
+                final String key,
+                final String kind,
+                final String toCollection,
+                final String toKey) throws IOException {
+            if (Method.GET.equals(method)) {
+                return store.getRelation(collection, key, kind, toCollection, toKey);
+            }
+            if (Method.PUT.equals(method)) {
+                return store.putRelation(collection, key, kind, toCollection, toKey,
+                        readJson(request), ifMatch(request),
+                        "\"*\"".equals(request.getHeader(Header.IfNoneMatch)));
+            }
+            if (Method.DELETE.equals(method)) {
+                return store.deleteRelation(collection, key, kind, toCollection, toKey);
+            }
+            return notAllowed();
+        }
+
+        private FakeStore.Reply search(final Request request, final String collection) {
+            return store.search(collection, request.getParameter("query"),
+                    intParam(request, "limit", 10), intParam(request, "offset", 0),
+                    request.getParameter("sort"));
+        }
+
+        private void write(final Request request, final Response response, final FakeStore.Reply reply)
+                throws IOException {
+            response.setStatus(reply.status);
+            if (reply.etag != null) {
+                response.setHeader(Header.ETag, reply.etag);
+            }
+            if (reply.location != null) {
+                response.setHeader(Header.Location, reply.location);
+            }
+            response.setHeader("X-ORCHESTRATE-REQ-ID", Long.toHexString(requests.get()));
+            if (reply.body == null) {
+                response.setContentLength(0);
+                return;
+            }
+            final byte[] body = mapper.writeValueAsBytes(reply.body);
+            response.setContentType("application/json");
+            response.setContentLength(body.length);
+            if (!Method.HEAD.equals(request.getMethod())) {
+                response.getOutputStream().write(body);
+            }
+        }
+
+        private InputStream body(final Request request) throws IOException {
+            final InputStream in = request.getInputStream();
+            return "gzip".equalsIgnoreCase(request.getHeader(Header.ContentEncoding))
+                    ? new GZIPInputStream(in)
+                    : in;
+        }
+
+        private JsonNode readJson(final Request request) throws IOException {
+            // a body is optional for some requests (e.g. relationship properties)
+            final PushbackInputStream in = new PushbackInputStream(body(request));
+            final int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            in.unread(first);
+            final JsonNode json = mapper.readTree(in);
+            return (json == null || json.isMissingNode()) ? null : json;
+        }
+
+    }
+
+    private static FakeStore.Reply unknownPath() {
+        return FakeStore.error(404, "api_not_found", "The requested path does not exist.", null);
+    }
+
+    private static FakeStore.Reply notAllowed() {
+        return FakeStore.error(405, "api_method_not_allowed",
+                "The method is not allowed for the requested path.", null);
+    }
+
+    private static boolean isMergePatch(final Request request) {
+        final String contentType = request.getContentType();
+        return contentType != null && contentType.startsWith("application/merge-patch+json");
+    }
+
+    private static String ifMatch(final Request request) {
+        final String ifMatch = request.getHeader(Header.IfMatch);
+        return (ifMatch == null) ? null : ifMatch.replace("\"", "");
+    }
+
+    private static int intParam(final Request request, final String name, final int defaultValue) {
+        final Long value = longParam(request, name);
+        return (value == null) ? defaultValue : value.intValue();
+    }
+
+    private static Long longParam(final Request request, final String name) {
+        final String value = request.getParameter(name);
+        return (value == null) ? null : parseLong(value);
+    }
+
+    private static Long parseLong(final String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A builder for a {@code FakeOrchestrateServer}.
+     */
+    public static final class Builder {
+
+        private int port = DEFAULT_PORT;
+        private long latencyNanos;
+        private long jitterNanos;
+        private double errorRate;
+        private double throttleRate;
+        private int maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+
+        private Builder() {}
+
+        /**
+         * The port for the server to listen on, {@link #DEFAULT_PORT} by default.
+         *
+         * @param port The port to listen on.
+         * @return This builder.
+         */
+        public Builder port(final int port) {
+            if (port < 1 || port > 65535) {
+                throw new IllegalArgumentException("'port' must be between 1 and 65535.");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * The minimum time to delay each response by, to simulate the
+         * latency of the network and the service. No delay by default.
+         *
+         * @param latency The latency.
+         * @param unit The unit of time of the latency.
+         * @return This builder.
+         */
+        public Builder latency(final long latency, final TimeUnit unit) {
+            if (latency < 0) {
+                throw new IllegalArgumentException("'latency' cannot be negative.");
+            }
+            this.latencyNanos = unit.toNanos(latency);
+            return this;
+        }
+
+        /**
+         * The maximum random time to add to the latency of each response,
+         * chosen uniformly. No jitter by default.
+         *
+         * @param jitter The maximum jitter.
+         * @param unit The unit of time of the jitter.
+         * @return This builder.
+         */
+        public Builder jitter(final long jitter, final TimeUnit unit) {
+            if (jitter < 0) {
+                throw new IllegalArgumentException("'jitter' cannot be negative.");
+            }
+            this.jitterNanos = unit.toNanos(jitter);
+            return this;
+        }
+
+        /**
+         * The fraction of requests to fail with a {@code 500} server error,
+         * e.g. {@code 0.01} for 1% of requests. None by default.
+         *
+         * @param errorRate The fraction of requests to fail.
+         * @return This builder.
+         */
+        public Builder errorRate(final double errorRate) {
+            this.errorRate = checkRate(errorRate, "errorRate");
+            return this;
+        }
+
+        /**
+         * The fraction of requests to reject with a {@code 429} rate limited
+         * response, e.g. {@code 0.01} for 1% of requests. None by default.
+         *
+         * @param throttleRate The fraction of requests to reject.
+         * @return This builder.
+         */
+        public Builder throttleRate(final double throttleRate) {
+            this.throttleRate = checkRate(throttleRate, "throttleRate");
+            return this;
+        }
+
+        /**
+         * The number of requests served on a connection before the server
+         * closes it (after a {@code Connection: close} response), to exercise
+         * the client reconnecting, e.g. with pipelined requests in-flight.
+         * {@link #DEFAULT_MAX_REQUESTS_PER_CONNECTION} by default, {@code -1}
+         * for no limit.
+         *
+         * @param maxRequests The number of requests per connection.
+         * @return This builder.
+         */
+        public Builder maxRequestsPerConnection(final int maxRequests) {
+            if (maxRequests == 0 || maxRequests < -1) {
+                throw new IllegalArgumentException("'maxRequests' must be positive, or -1 for no limit.");
+            }
+            this.maxRequestsPerConnection = maxRequests;
+            return this;
+        }
+
+        public FakeOrchestrateServer build() {
+            return new FakeOrchestrateServer(this);
+        }
+
+        private static double checkRate(final double rate, final String name) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("'" + name + "' must be between 0 and 1.");
+            }
+            return rate;
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A simple subset of the Lucene query syntax of the Orchestrate search API.
+ * A query is a list of terms that must all match (an optional {@code AND}
+ * between terms is ignored):
+ *
+ * <ul>
+ * <li>{@code *} matches every object</li>
+ * <li>{@code value.name:Jane} (or {@code name:Jane}) matches a field,
+ *     values may be quoted, or end with {@code *} to match a prefix</li>
+ * <li>{@code @path.key:user-1} matches the key (or {@code @path.collection})</li>
+ * <li>{@code jane} matches any text field that contains the term</li>
+ * </ul>
+ *
+ * <p>Comparisons ignore case.
+ */
+final class FakeSearchQuery {
+
+    /** The terms of the query, as {field, value} ({@code field} is {@code null} for any field). */
+    private final List<String[]> terms = new ArrayList<String[]>();
+
+    FakeSearchQuery(final String query) {
+        for (final String token : tokenize(query)) {
+            if (token.equals("*") || token.equals("AND")) {
+                continue;
+            }
+            final int colon = token.indexOf(':');
+            if (colon > 0) {
+                terms.add(new String[] { token.substring(0, colon), unquote(token.substring(colon + 1)) });
+            } else {
+                terms.add(new String[] { null, unquote(token) });
+            }
+        }
+    }
+
+    boolean matches(final String collection, final String key, final JsonNode value) {
+        for (final String[] term : terms) {
+            final String field = term[0];
+            final String expected = term[1];
+            final boolean matched;
+            if (field == null) {
+                matched = containsText(value, expected.toLowerCase(Locale.ENGLISH));
+            } else if (field.equals("@path.key")) {
+                matched = matchesValue(key, expected);
+            } else if (field.equals("@path.collection")) {
+                matched = matchesValue(collection, expected);
+            } else if (field.startsWith("@")) {
+                // other metadata (e.g. @path.kind) isn't indexed, only items are searched
+                matched = true;
+            } else {
+                final JsonNode node = field(value, field);
+                matched = node != null && !node.isContainerNode() && matchesValue(node.asText(), expected);
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the field of the value, e.g. {@code value.address.city}.
+     *
+     * @return The field, or {@code null} if the value has no such field.
+     */
+    static JsonNode field(final JsonNode value, final String field) {
+        final String path = field.startsWith("value.") ? field.substring(6) : field;
+        JsonNode node = value;
+        for (final String name : path.split("\\.")) {
+            node = (node == null) ? null : node.get(name);
+        }
+        return node;
+    }
+
+    private static boolean matchesValue(final String actual, final String expected) {
+        if (expected.endsWith("*")) {
+            return actual.toLowerCase(Locale.ENGLISH).startsWith(
+                    expected.substring(0, expected.length() - 1).toLowerCase(Locale.ENGLISH));
+        }
+        return actual.equalsIgnoreCase(expected);
+    }
+
+    private static boolean containsText(final JsonNode node, final String text) {
+        if (node.isTextual()) {
+            return node.asText().toLowerCase(Locale.ENGLISH).contains(text);
+        }
+        if (node.isContainerNode()) {
+            final Iterator<JsonNode> children = node.elements();
+            while (children.hasNext()) {
+                if (containsText(children.next(), text)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String unquote(final String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /** Splits the query on whitespace outside of quotes. */
+    private static List<String> tokenize(final String query) {
+        final List<String> tokens = new ArrayList<String>();
+        final StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < query.length(); i++) {
+            final char c = query.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (Character.isWhitespace(c) && !quoted) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+}
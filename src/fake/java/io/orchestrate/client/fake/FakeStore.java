@@ -0,0 +1,912 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-memory storage of a {@link FakeOrchestrateServer}: the KV objects
+ * (with their previous versions), events and relationships of each
+ * collection. Each operation returns the {@link Reply} the service would.
+ */
+final class FakeStore {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    /** The collections, by name. */
+    private final ConcurrentMap<String, Collection> collections =
+            new ConcurrentHashMap<String, Collection>();
+    /** The relationships from each KV object, by the id of the source object. */
+    private final ConcurrentMap<String, ConcurrentMap<String, Relation>> relations =
+            new ConcurrentHashMap<String, ConcurrentMap<String, Relation>>();
+    /** The sequence for refs, event ordinals and generated keys. */
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() << 16);
+
+    /** The response to a request. */
+    static final class Reply {
+
+        final int status;
+        final JsonNode body;
+        String etag;
+        String location;
+
+        Reply(final int status, final JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        Reply ref(final String ref) {
+            this.etag = "\"" + ref + "\"";
+            return this;
+        }
+
+        Reply location(final String location) {
+            this.location = location;
+            return this;
+        }
+
+    }
+
+    // KV objects
+
+    Reply getItem(final String collection, final String key, final String ref) {
+        final Collection coll = collections.get(collection);
+        final Item item = (coll == null) ? null
+                : (ref == null) ? coll.items.get(key) : coll.history.get(id(key, ref));
+        if (item == null) {
+            return notFound(collection, key);
+        }
+        return new Reply(200, item.value).ref(item.ref);
+    }
+
+    Reply putItem(
+            final String collection,
+            final String key,
+            final JsonNode value,
+            final String ifMatch,
+            final boolean ifAbsent) {
+        final Collection coll = collection(collection);
+        synchronized (coll) {
+            final Item current = coll.items.get(key);
+            final Reply conflict = checkItem(current, ifMatch, ifAbsent);
+            if (conflict != null) {
+                return conflict;
+            }
+            final Item item = coll.store(collection, key, nextRef(), value);
+            return created(item);
+        }
+    }
+
+    Reply postItem(final String collection, final JsonNode value) {
+        final Collection coll = collection(collection);
+        synchronized (coll) {
+            return created(coll.store(collection, nextRef(), nextRef(), value));
+        }
+    }
+
+    Reply patchItem(
+            final String collection,
+            final String key,
+            final JsonNode patch,
+            final boolean mergePatch,
+            final boolean upsert,
+            final String ifMatch) {
+        final Collection coll = collection(collection);
+        synchronized (coll) {
+            final Item current = coll.items.get(key);
+            if (current == null && !upsert) {
+                return notFound(collection, key);
+            }
+            final Reply conflict = checkItem(current, ifMatch, false);
+            if (conflict != null) {
+                return conflict;
+            }
+            final JsonNode target = (current == null) ? NODES.objectNode() : current.value;
+            final JsonNode value;
+            try {
+                value = mergePatch
+                        ? FakeJsonPatch.merge(target, patch)
+                        : FakeJsonPatch.patch(target, patch);
+            } catch (final FakeJsonPatch.ConflictException e) {
+                return patchConflict(e);
+            }
+            return created(coll.store(collection, key, nextRef(), value));
+        }
+    }
+
+    Reply deleteItem(
+            final String collection,
+            final String key,
+            final String ifMatch,
+            final boolean purge) {
+        final Collection coll = collections.get(collection);
+        if (coll == null) {
+            return new Reply(204, null);
+        }
+        synchronized (coll) {
+            final Item current = coll.items.get(key);
+            if (ifMatch != null && (current == null || !current.ref.equals(ifMatch))) {
+                return versionMismatch(ifMatch);
+            }
+            coll.items.remove(key);
+            if (purge) {
+                final Iterator<Item> versions = coll.history.values().iterator();
+                while (versions.hasNext()) {
+                    if (versions.next().key.equals(key)) {
+                        versions.remove();
+                    }
+                }
+                coll.events.keySet().removeAll(keysOf(coll.events, key));
+                relations.remove(id(collection, key));
+            }
+            return new Reply(204, null);
+        }
+    }
+
+    Reply deleteCollection(final String collection) {
+        collections.remove(collection);
+        final String prefix = id(collection, "");
+        relations.keySet().removeAll(keysWithPrefix(relations, prefix));
+        return new Reply(204, null);
+    }
+
+    Reply list(
+            final String collection,
+            final int limit,
+            final boolean values,
+            final String startKey,
+            final boolean startInclusive,
+            final String stopKey,
+            final boolean stopInclusive) {
+        final Collection coll = collections.get(collection);
+        ConcurrentNavigableMap<String, Item> items = (coll == null)
+                ? new ConcurrentSkipListMap<String, Item>()
+                : coll.items;
+        if (startKey != null) {
+            items = items.tailMap(startKey, startInclusive);
+        }
+        if (stopKey != null) {
+            items = items.headMap(stopKey, stopInclusive);
+        }
+
+        final ObjectNode body = NODES.objectNode();
+        final ArrayNode results = NODES.arrayNode();
+        String lastKey = null;
+        boolean more = false;
+        for (final Item item : items.values()) {
+            if (results.size() == limit) {
+                more = true;
+                break;
+            }
+            results.add(item.toJson(values));
+            lastKey = item.key;
+        }
+        body.put("count", results.size());
+        body.put("results", results);
+        if (more) {
+            final StringBuilder next = new StringBuilder("/v0/").append(FakeOrchestrateServer.encode(collection))
+                    .append("?limit=").append(limit)
+                    .append("&values=").append(values)
+                    .append("&afterKey=").append(FakeOrchestrateServer.encode(lastKey));
+            if (stopKey != null) {
+                next.append(stopInclusive ? "&endKey=" : "&beforeKey=")
+                        .append(FakeOrchestrateServer.encode(stopKey));
+            }
+            body.put("next", next.toString());
+        }
+        return new Reply(200, body);
+    }
+
+    /**
+     * Search the KV objects of the {@code collection} (or of all collections
+     * if {@code null}), see {@link FakeSearchQuery} for the queries supported.
+     */
+    Reply search(
+            final String collection,
+            final String query,
+            final int limit,
+            final int offset,
+            final String sort) {
+        final FakeSearchQuery matcher = new FakeSearchQuery(query);
+        final List<Item> matches = new ArrayList<Item>();
+        for (final Map.Entry<String, Collection> coll : collections.entrySet()) {
+            if (collection != null && !collection.equals(coll.getKey())) {
+                continue;
+            }
+            for (final Item item : coll.getValue().items.values()) {
+                if (matcher.matches(item.collection, item.key, item.value)) {
+                    matches.add(item);
+                }
+            }
+        }
+        if (sort != null) {
+            Collections.sort(matches, sortOrder(sort));
+        }
+
+        final ObjectNode body = NODES.objectNode();
+        final ArrayNode results = NODES.arrayNode();
+        for (int i = offset; i < matches.size() && results.size() < limit; i++) {
+            final ObjectNode result = matches.get(i).toJson(true);
+            result.put("score", 1.0);
+            results.add(result);
+        }
+        body.put("count", results.size());
+        body.put("total_count", matches.size());
+        body.put("results", results);
+        final String path = (collection == null) ? "/v0" : "/v0/" + FakeOrchestrateServer.encode(collection);
+        if (offset + limit < matches.size()) {
+            body.put("next", searchLink(path, query, limit, offset + limit, sort));
+        }
+        if (offset > 0) {
+            body.put("prev", searchLink(path, query, limit, Math.max(offset - limit, 0), sort));
+        }
+        return new Reply(200, body);
+    }
+
+    // events
+
+    Reply listEvents(
+            final String collection,
+            final String key,
+            final String type,
+            final int limit,
+            final Long start,
+            final Long end) {
+        final Collection coll = collections.get(collection);
+        final ConcurrentNavigableMap<EventId, Event> events =
+                (coll == null) ? null : coll.events.get(id(key, type));
+        final ArrayNode results = NODES.arrayNode();
+        if (events != null) {
+            for (final Event event : events.values()) {
+                if (results.size() == limit) {
+                    break;
+                }
+                // events are in descending time order, the range is [start, end)
+                if ((end != null && event.id.timestamp >= end)
+                        || (start != null && event.id.timestamp < start)) {
+                    continue;
+                }
+                results.add(event.toJson());
+            }
+        }
+        final ObjectNode body = NODES.objectNode();
+        body.put("count", results.size());
+        body.put("results", results);
+        return new Reply(200, body);
+    }
+
+    Reply createEvent(
+            final String collection,
+            final String key,
+            final String type,
+            final Long timestamp,
+            final JsonNode value,
+            final int status) {
+        final Collection coll = collection(collection);
+        final long seq = sequence.incrementAndGet();
+        final EventId id = new EventId(
+                (timestamp == null) ? System.currentTimeMillis() : timestamp, seq);
+        final Event event = new Event(collection, key, type, id, nextRef(), value);
+        synchronized (coll) {
+            coll.events(key, type).put(id, event);
+        }
+        return eventReply(event, status);
+    }
+
+    Reply getEvent(
+            final String collection,
+            final String key,
+            final String type,
+            final String timestamp,
+            final String ordinal) {
+        final Event event = findEvent(collection, key, type, timestamp, ordinal);
+        if (event == null) {
+            return notFound(collection, key);
+        }
+        return new Reply(200, event.toJson()).ref(event.ref);
+    }
+
+    Reply updateEvent(
+            final String collection,
+            final String key,
+            final String type,
+            final String timestamp,
+            final String ordinal,
+            final JsonNode value,
+            final String patchType,
+            final String ifMatch) {
+        final Collection coll = collection(collection);
+        synchronized (coll) {
+            final Event current = findEvent(collection, key, type, timestamp, ordinal);
+            if (current == null) {
+                return notFound(collection, key);
+            }
+            if (ifMatch != null && !current.ref.equals(ifMatch)) {
+                return versionMismatch(ifMatch);
+            }
+            final JsonNode updated;
+            try {
+                if ("merge".equals(patchType)) {
+                    updated = FakeJsonPatch.merge(current.value, value);
+                } else if ("patch".equals(patchType)) {
+                    updated = FakeJsonPatch.patch(current.value, value);
+                } else {
+                    updated = value;
+                }
+            } catch (final FakeJsonPatch.ConflictException e) {
+                return patchConflict(e);
+            }
+            final Event event = new Event(collection, key, type, current.id, nextRef(), updated);
+            coll.events(key, type).put(current.id, event);
+            return eventReply(event, 204);
+        }
+    }
+
+    Reply deleteEvent(
+            final String collection,
+            final String key,
+            final String type,
+            final String timestamp,
+            final String ordinal,
+            final String ifMatch) {
+        final Collection coll = collection(collection);
+        synchronized (coll) {
+            final Event current = findEvent(collection, key, type, timestamp, ordinal);
+            if (current != null) {
+                if (ifMatch != null && !current.ref.equals(ifMatch)) {
+                    return versionMismatch(ifMatch);
+                }
+                coll.events(key, type).remove(current.id);
+            }
+            return new Reply(204, null);
+        }
+    }
+
+    // relationships
+
+    Reply putRelation(
+            final String collection,
+            final String key,
+            final String kind,
+            final String toCollection,
+            final String toKey,
+            final JsonNode value,
+            final String ifMatch,
+            final boolean ifAbsent) {
+        final ConcurrentMap<String, Relation> from = relationsFrom(collection, key);
+        synchronized (from) {
+            final String id = relationId(kind, toCollection, toKey);
+            final Relation current = from.get(id);
+            if (ifAbsent && current != null) {
+                return alreadyPresent();
+            }
+            if (ifMatch != null && (current == null || !current.ref.equals(ifMatch))) {
+                return versionMismatch(ifMatch);
+            }
+            final Relation relation = new Relation(kind, toCollection, toKey, nextRef(),
+                    (value == null) ? NODES.objectNode() : value);
+            from.put(id, relation);
+            return new Reply(201, null).ref(relation.ref);
+        }
+    }
+
+    Reply getRelation(
+            final String collection,
+            final String key,
+            final String kind,
+            final String toCollection,
+            final String toKey) {
+        final ConcurrentMap<String, Relation> from = relations.get(id(collection, key));
+        final Relation relation = (from == null) ? null : from.get(relationId(kind, toCollection, toKey));
+        if (relation == null) {
+            return notFound(collection, key);
+        }
+        return new Reply(200, relation.value).ref(relation.ref);
+    }
+
+    Reply deleteRelation(
+            final String collection,
+            final String key,
+            final String kind,
+            final String toCollection,
+            final String toKey) {
+        final ConcurrentMap<String, Relation> from = relations.get(id(collection, key));
+        if (from != null) {
+            from.remove(relationId(kind, toCollection, toKey));
+        }
+        return new Reply(204, null);
+    }
+
+    /** Returns the KV objects reached by following the {@code kinds} of relation in turn. */
+    Reply listRelated(
+            final String collection,
+            final String key,
+            final List<String> kinds,
+            final int limit,
+            final int offset) {
+        if (getItem(collection, key, null).status == 404) {
+            return notFound(collection, key);
+        }
+        List<String[]> hop = Collections.singletonList(new String[] { collection, key });
+        for (final String kind : kinds) {
+            final List<String[]> next = new ArrayList<String[]>();
+            for (final String[] source : hop) {
+                final ConcurrentMap<String, Relation> from = relations.get(id(source[0], source[1]));
+                if (from == null) {
+                    continue;
+                }
+                for (final Relation relation : from.values()) {
+                    if (relation.kind.equals(kind)) {
+                        next.add(new String[] { relation.toCollection, relation.toKey });
+                    }
+                }
+            }
+            hop = next;
+        }
+
+        final ArrayNode results = NODES.arrayNode();
+        for (int i = offset; i < hop.size() && results.size() < limit; i++) {
+            final Collection coll = collections.get(hop.get(i)[0]);
+            final Item item = (coll == null) ? null : coll.items.get(hop.get(i)[1]);
+            if (item != null) {
+                results.add(item.toJson(true));
+            }
+        }
+        final ObjectNode body = NODES.objectNode();
+        body.put("count", results.size());
+        body.put("results", results);
+        if (offset + limit < hop.size()) {
+            final StringBuilder next = new StringBuilder("/v0/")
+                    .append(FakeOrchestrateServer.encode(collection)).append('/')
+                    .append(FakeOrchestrateServer.encode(key)).append("/relations");
+            for (final String kind : kinds) {
+                next.append('/').append(FakeOrchestrateServer.encode(kind));
+            }
+            next.append("?limit=").append(limit).append("&offset=").append(offset + limit);
+            body.put("next", next.toString());
+        }
+        return new Reply(200, body);
+    }
+
+    // bulk
+
+    /** Perform each of the operations of a bulk request, in order. */
+    Reply bulk(final List<JsonNode> operations) {
+        final ArrayNode results = NODES.arrayNode();
+        int successes = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            final JsonNode operation = operations.get(i);
+            final Reply reply = bulkOperation(operation);
+            final ObjectNode result = NODES.objectNode();
+            result.put("operation_index", i);
+            if (reply.status >= 200 && reply.status < 300) {
+                successes++;
+                result.put("status", "success");
+                if (reply.body != null) {
+                    final ObjectNode item = NODES.objectNode();
+                    item.put("path", reply.body);
+                    result.put("item", item);
+                }
+            } else {
+                result.put("status", "failure");
+                result.put("error", reply.body);
+            }
+            results.add(result);
+        }
+        final ObjectNode body = NODES.objectNode();
+        body.put("status", (successes == operations.size()) ? "success"
+                : (successes == 0) ? "failure" : "partial");
+        body.put("success_count", successes);
+        body.put("results", results);
+        return new Reply(200, body);
+    }
+
+    private Reply bulkOperation(final JsonNode operation) {
+        final JsonNode value = operation.path("value");
+        if (operation.has("source") && operation.has("destination")) {
+            final JsonNode source = operation.get("source");
+            final JsonNode destination = operation.get("destination");
+            final Reply reply = putRelation(
+                    source.path("collection").asText(), source.path("key").asText(),
+                    operation.path("relation").asText(),
+                    destination.path("collection").asText(), destination.path("key").asText(),
+                    value.isMissingNode() ? null : value, null, false);
+            return new Reply(reply.status, reply.status < 300 ? null : reply.body);
+        }
+
+        final JsonNode path = operation.path("path");
+        final String collection = path.path("collection").asText();
+        final String key = path.path("key").asText();
+        if ("event".equalsIgnoreCase(path.path("kind").asText())) {
+            final Long timestamp = path.has("timestamp") ? path.get("timestamp").asLong() : null;
+            final String type = path.path("type").asText();
+            final Collection coll = collection(collection);
+            final long seq = sequence.incrementAndGet();
+            final Event event = new Event(collection, key, type,
+                    new EventId((timestamp == null) ? System.currentTimeMillis() : timestamp, seq),
+                    nextRef(), value);
+            synchronized (coll) {
+                coll.events(key, type).put(event.id, event);
+            }
+            return new Reply(201, event.pathJson());
+        }
+
+        final Reply reply = putItem(collection, key, value, null, false);
+        if (reply.status != 201) {
+            return reply;
+        }
+        return new Reply(201, collections.get(collection).items.get(key).pathJson());
+    }
+
+    // helpers
+
+    private Collection collection(final String name) {
+        Collection coll = collections.get(name);
+        if (coll == null) {
+            final Collection created = new Collection();
+            coll = collections.putIfAbsent(name, created);
+            if (coll == null) {
+                coll = created;
+            }
+        }
+        return coll;
+    }
+
+    private ConcurrentMap<String, Relation> relationsFrom(final String collection, final String key) {
+        final String id = id(collection, key);
+        ConcurrentMap<String, Relation> from = relations.get(id);
+        if (from == null) {
+            final ConcurrentMap<String, Relation> created = new ConcurrentHashMap<String, Relation>();
+            from = relations.putIfAbsent(id, created);
+            if (from == null) {
+                from = created;
+            }
+        }
+        return from;
+    }
+
+    private Event findEvent(
+            final String collection,
+            final String key,
+            final String type,
+            final String timestamp,
+            final String ordinal) {
+        final Collection coll = collections.get(collection);
+        if (coll == null) {
+            return null;
+        }
+        final ConcurrentNavigableMap<EventId, Event> events = coll.events.get(id(key, type));
+        if (events == null) {
+            return null;
+        }
+        try {
+            return events.get(new EventId(Long.parseLong(timestamp), Long.parseLong(ordinal, 16)));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String nextRef() {
+        final String hex = Long.toHexString(sequence.incrementAndGet());
+        return "0000000000000000".substring(hex.length()).concat(hex);
+    }
+
+    private static Reply checkItem(final Item current, final String ifMatch, final boolean ifAbsent) {
+        if (ifAbsent && current != null) {
+            return alreadyPresent();
+        }
+        if (ifMatch != null && (current == null || !current.ref.equals(ifMatch))) {
+            return versionMismatch(ifMatch);
+        }
+        return null;
+    }
+
+    private static Reply created(final Item item) {
+        return new Reply(201, null).ref(item.ref).location("/v0/"
+                + FakeOrchestrateServer.encode(item.collection) + '/'
+                + FakeOrchestrateServer.encode(item.key) + "/refs/" + item.ref);
+    }
+
+    private static Reply eventReply(final Event event, final int status) {
+        return new Reply(status, null).ref(event.ref).location("/v0/"
+                + FakeOrchestrateServer.encode(event.collection) + '/'
+                + FakeOrchestrateServer.encode(event.key) + "/events/"
+                + FakeOrchestrateServer.encode(event.type) + '/' + event.id.timestamp + '/'
+                + event.id.ordinal());
+    }
+
+    static Reply error(final int status, final String code, final String message, final JsonNode details) {
+        final ObjectNode body = NODES.objectNode();
+        body.put("message", message);
+        body.put("details", (details == null) ? NODES.objectNode() : details);
+        body.put("code", code);
+        return new Reply(status, body);
+    }
+
+    private static Reply notFound(final String collection, final String key) {
+        final ObjectNode item = NODES.objectNode();
+        item.put("collection", collection);
+        item.put("key", key);
+        final ObjectNode details = NODES.objectNode();
+        details.putArray("items").add(item);
+        return error(404, "items_not_found", "The requested items could not be found.", details);
+    }
+
+    private static Reply versionMismatch(final String ref) {
+        final ObjectNode details = NODES.objectNode();
+        details.put("ref", ref);
+        return error(412, "item_version_mismatch",
+                "The version of the item does not match.", details);
+    }
+
+    private static Reply alreadyPresent() {
+        return error(412, "item_already_present",
+                "The item is already present.", null);
+    }
+
+    private static Reply patchConflict(final FakeJsonPatch.ConflictException e) {
+        final ObjectNode details = NODES.objectNode();
+        details.put("op", e.getOp());
+        return error(409, "patch_conflict", e.getMessage(), details);
+    }
+
+    private static String searchLink(
+            final String path, final String query, final int limit, final int offset, final String sort) {
+        final StringBuilder link = new StringBuilder(path)
+                .append("?query=").append(FakeOrchestrateServer.encode(query))
+                .append("&limit=").append(limit)
+                .append("&offset=").append(offset);
+        if (sort != null) {
+            link.append("&sort=").append(FakeOrchestrateServer.encode(sort));
+        }
+        return link.toString();
+    }
+
+    /** Orders search results by a field, e.g. {@code "value.name:asc"}. */
+    private static Comparator<Item> sortOrder(final String sort) {
+        final int colon = sort.lastIndexOf(':');
+        final String field = (colon < 0) ? sort : sort.substring(0, colon);
+        final boolean descending = colon >= 0 && sort.substring(colon + 1).equalsIgnoreCase("desc");
+        return new Comparator<Item>() {
+            @Override
+            public int compare(final Item a, final Item b) {
+                final JsonNode x = FakeSearchQuery.field(a.value, field);
+                final JsonNode y = FakeSearchQuery.field(b.value, field);
+                final int order;
+                if (x == null || y == null) {
+                    order = (x == null) ? ((y == null) ? 0 : 1) : -1;
+                } else if (x.isNumber() && y.isNumber()) {
+                    order = Double.compare(x.asDouble(), y.asDouble());
+                } else {
+                    order = x.asText().compareTo(y.asText());
+                }
+                return descending ? -order : order;
+            }
+        };
+    }
+
+    private static String id(final String first, final String second) {
+        return first + '\u0000' + second;
+    }
+
+    private static String relationId(final String kind, final String collection, final String key) {
+        return kind + '\u0000' + collection + '\u0000' + key;
+    }
+
+    private static List<String> keysOf(final Map<String, ?> map, final String key) {
+        return keysWithPrefix(map, id(key, ""));
+    }
+
+    private static List<String> keysWithPrefix(final Map<String, ?> map, final String prefix) {
+        final List<String> keys = new ArrayList<String>();
+        for (final String id : map.keySet()) {
+            if (id.startsWith(prefix)) {
+                keys.add(id);
+            }
+        }
+        return keys;
+    }
+
+    /** The KV objects and events of a collection. */
+    private static final class Collection {
+
+        /** The current version of each KV object, in key order. */
+        final ConcurrentNavigableMap<String, Item> items = new ConcurrentSkipListMap<String, Item>();
+        /** Every version of each KV object, by key and ref. */
+        final ConcurrentMap<String, Item> history = new ConcurrentHashMap<String, Item>();
+        /** The events of each KV object, by key and type. */
+        final ConcurrentMap<String, ConcurrentNavigableMap<EventId, Event>> events =
+                new ConcurrentHashMap<String, ConcurrentNavigableMap<EventId, Event>>();
+
+        Item store(final String collection, final String key, final String ref, final JsonNode value) {
+            final Item item = new Item(collection, key, ref, System.currentTimeMillis(), value);
+            items.put(key, item);
+            history.put(id(key, ref), item);
+            return item;
+        }
+
+        /** Returns the events of the type, must be called while holding the lock. */
+        ConcurrentNavigableMap<EventId, Event> events(final String key, final String type) {
+            final String id = id(key, type);
+            ConcurrentNavigableMap<EventId, Event> typed = events.get(id);
+            if (typed == null) {
+                typed = new ConcurrentSkipListMap<EventId, Event>();
+                events.put(id, typed);
+            }
+            return typed;
+        }
+
+    }
+
+    /** A version of a KV object. */
+    private static final class Item {
+
+        final String collection;
+        final String key;
+        final String ref;
+        final long reftime;
+        final JsonNode value;
+
+        Item(final String collection, final String key, final String ref,
+             final long reftime, final JsonNode value) {
+            this.collection = collection;
+            this.key = key;
+            this.ref = ref;
+            this.reftime = reftime;
+            this.value = value;
+        }
+
+        ObjectNode pathJson() {
+            final ObjectNode path = NODES.objectNode();
+            path.put("collection", collection);
+            path.put("kind", "item");
+            path.put("key", key);
+            path.put("ref", ref);
+            path.put("reftime", reftime);
+            return path;
+        }
+
+        ObjectNode toJson(final boolean withValue) {
+            final ObjectNode json = NODES.objectNode();
+            json.put("path", pathJson());
+            if (withValue) {
+                json.put("value", value);
+            }
+            json.put("reftime", reftime);
+            return json;
+        }
+
+    }
+
+    /** The position of an event, events are ordered newest first. */
+    private static final class EventId implements Comparable<EventId> {
+
+        final long timestamp;
+        final long seq;
+
+        EventId(final long timestamp, final long seq) {
+            this.timestamp = timestamp;
+            this.seq = seq;
+        }
+
+        String ordinal() {
+            return Long.toHexString(seq);
+        }
+
+        @Override
+        public int compareTo(final EventId other) {
+            if (timestamp != other.timestamp) {
+                return (timestamp > other.timestamp) ? -1 : 1;
+            }
+            return (seq == other.seq) ? 0 : (seq > other.seq) ? -1 : 1;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof EventId && compareTo((EventId) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (timestamp ^ seq);
+        }
+
+    }
+
+    /** A version of an event. */
+    private static final class Event {
+
+        final String collection;
+        final String key;
+        final String type;
+        final EventId id;
+        final String ref;
+        final long reftime;
+        final JsonNode value;
+
+        Event(final String collection, final String key, final String type,
+              final EventId id, final String ref, final JsonNode value) {
+            this.collection = collection;
+            this.key = key;
+            this.type = type;
+            this.id = id;
+            this.ref = ref;
+            this.reftime = System.currentTimeMillis();
+            this.value = value;
+        }
+
+        ObjectNode pathJson() {
+            final ObjectNode path = NODES.objectNode();
+            path.put("collection", collection);
+            path.put("kind", "event");
+            path.put("key", key);
+            path.put("type", type);
+            path.put("timestamp", id.timestamp);
+            path.put("ordinal", id.ordinal());
+            path.put("ordinal_str", id.ordinal());
+            path.put("ref", ref);
+            path.put("reftime", reftime);
+            return path;
+        }
+
+        ObjectNode toJson() {
+            final ObjectNode json = NODES.objectNode();
+            json.put("path", pathJson());
+            json.put("value", value);
+            json.put("timestamp", id.timestamp);
+            json.put("ordinal", id.ordinal());
+            json.put("reftime", reftime);
+            return json;
+        }
+
+    }
+
+    /** A relationship from a KV object to another. */
+    private static final class Relation {
+
+        final String kind;
+        final String toCollection;
+        final String toKey;
+        final String ref;
+        final JsonNode value;
+
+        Relation(final String kind, final String toCollection, final String toKey,
+                 final String ref, final JsonNode value) {
+            this.kind = kind;
+            this.toCollection = toCollection;
+            this.toKey = toKey;
+            this.ref = ref;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.orchestrate.client.ResponseConversionBenchmark.Address;
+import io.orchestrate.client.ResponseConversionBenchmark.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares binding and serializing a KV object value through the shared
+ * {@code ObjectMapper} (resolved by {@code Class} on each call) with the
+ * {@code ObjectReader}s and {@code ObjectWriter}s cached by the
+ * {@code JacksonMapper}.
+ *
+ * <pre>
+ * {@code
+ * gradle jmh -Pjmh.args="MapperCacheBenchmark -prof gc"
+ * }
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperCacheBenchmark {
+
+    private JacksonMapper jacksonMapper;
+    private ObjectMapper mapper;
+    private User user;
+    private byte[] json;
+    private JsonNode tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        jacksonMapper = new JacksonMapper();
+        mapper = jacksonMapper.getMapper();
+
+        user = new User();
+        user.name = "Jane Doe";
+        user.email = "jane@example.com";
+        user.age = 42;
+        user.active = true;
+        user.tags = Arrays.asList("alpha", "beta", "gamma");
+        user.address = new Address();
+        user.address.street = "1 Main St";
+        user.address.city = "Seattle";
+        user.address.zip = "98101";
+
+        json = mapper.writeValueAsBytes(user);
+        tree = mapper.readTree(json);
+    }
+
+    @Benchmark
+    public User readValueMapper() throws IOException {
+        return mapper.readValue(json, User.class);
+    }
+
+    @Benchmark
+    public User readValueReader() throws IOException {
+        return jacksonMapper.reader(User.class).readValue(json);
+    }
+
+    @Benchmark
+    public User treeToValueMapper() throws IOException {
+        return mapper.treeToValue(tree, User.class);
+    }
+
+    @Benchmark
+    public User treeToValueReader() throws IOException {
+        return jacksonMapper.reader(User.class).readValue(tree);
+    }
+
+    @Benchmark
+    public byte[] writeValueMapper() throws IOException {
+        return mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] writeValueWriter() throws IOException {
+        return jacksonMapper.writer(User.class).writeValueAsBytes(user);
+    }
+
+}
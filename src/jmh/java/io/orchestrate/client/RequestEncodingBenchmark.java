@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.util.UEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time and allocation to build the URI, query string and request
+ * header of a request. Run with the GC profiler to report the bytes allocated
+ * per operation ({@code gc.alloc.rate.norm}).
+ *
+ * <pre>
+ * {@code
+ * gradle jmh -Pjmh.args="RequestEncodingBenchmark -prof gc"
+ * }
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestEncodingBenchmark {
+
+    private final String collection = "users";
+    private final String key = "user-1234";
+    private final String unsafeKey = "jane doe/caf\u00e9";
+    private final String withFields = "value.name,value.email";
+
+    private OrchestrateClient client;
+    private UEncoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the transport is never started, no requests are sent
+        client = OrchestrateClient.builder("benchmark").build();
+        encoder = new UEncoder();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Benchmark
+    public String kvUri() {
+        return client.uri(collection, key);
+    }
+
+    @Benchmark
+    public String kvUriEncoded() {
+        return client.uri(collection, unsafeKey);
+    }
+
+    /** The previous implementation, to compare against. */
+    @Benchmark
+    public String kvUriBaseline() {
+        return new StringBuilder(32).append("/v0")
+                .append('/').append(encoder.encodeURL(collection))
+                .append('/').append(encoder.encodeURL(key))
+                .toString();
+    }
+
+    @Benchmark
+    public String listQuery() {
+        final StringBuilder query = new StringBuilder("limit=").append(10)
+                .append("&values=").append(true);
+        client.encode(query.append("&startKey="), unsafeKey);
+        client.encode(query.append("&with_fields="), withFields);
+        return query.toString();
+    }
+
+    /** The previous implementation, to compare against. */
+    @Benchmark
+    public String listQueryBaseline() {
+        String query = "limit=".concat(Integer.toString(10));
+        query = query.concat("&values=").concat(Boolean.toString(true));
+        query = query.concat('&' + "startKey" + '=').concat(encoder.encodeURL(unsafeKey));
+        query = query.concat("&with_fields=").concat(encoder.encodeURL(withFields));
+        return query;
+    }
+
+    @Benchmark
+    public HttpRequestPacket kvGetHeader() {
+        final StringBuilder query = new StringBuilder();
+        client.encode(query.append("&with_fields="), withFields);
+        return HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri(client.uri(collection, key))
+                .query(query.toString())
+                .build();
+    }
+
+}
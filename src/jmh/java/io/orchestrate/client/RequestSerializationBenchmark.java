@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import io.orchestrate.client.jsonpatch.JsonPatch;
+import org.glassfish.grizzly.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and allocation of serializing request bodies, the
+ * operations of a {@code BulkResource} (as sent by {@code done()}) and the
+ * ops of a {@code JsonPatch}. Run with the GC profiler to report the bytes
+ * allocated per operation ({@code gc.alloc.rate.norm}).
+ *
+ * <pre>
+ * {@code
+ * gradle jmh -Pjmh.args="RequestSerializationBenchmark -prof gc"
+ * }
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestSerializationBenchmark {
+
+    private OrchestrateClient client;
+    private JacksonMapper mapper;
+    private JsonPatch patch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the transport is never started, no requests are sent
+        client = OrchestrateClient.builder("benchmark").build();
+        mapper = new JacksonMapper();
+        patch = JsonPatch.builder()
+                .test("value.version", 3)
+                .replace("value.name", "Jane Doe")
+                .add("value.tags/-", "delta")
+                .inc("value.logins")
+                .remove("value.legacy")
+                .move("value.email", "value.contact.email")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    /** The body of {@code BulkResource#done()}. */
+    @Benchmark
+    public int bulk(final BulkOperations bulk) {
+        return serialize(bulk.operations);
+    }
+
+    /** The body of {@code KvResource#patch(JsonPatch)}. */
+    @Benchmark
+    public int jsonPatch() {
+        return serialize(patch.getOps());
+    }
+
+    private int serialize(final Object... values) {
+        final Buffer buffer = client.toJsonBuffer(mapper, values);
+        final int length = buffer.remaining();
+        // return the buffer to the memory manager as a sent request does
+        buffer.tryDispose();
+        return length;
+    }
+
+    /** The operations of a bulk request. */
+    @State(Scope.Benchmark)
+    public static class BulkOperations {
+
+        /** The number of operations in the bulk request. */
+        @Param({ "1000", "10000" })
+        public int size;
+
+        Object[] operations;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            final List<BulkOperation> ops = new ArrayList<BulkOperation>(size);
+            for (int i = 0; i < size; i++) {
+                final Map<String, Object> value = new LinkedHashMap<String, Object>();
+                value.put("name", "User " + i);
+                value.put("email", "user" + i + "@example.com");
+                value.put("age", 20 + i % 50);
+                value.put("tags", Arrays.asList("alpha", "beta", "gamma"));
+                if (i % 10 == 0) {
+                    ops.add(BulkOperation.forEvent("users", "user-" + i, "login", 1404431543462L + i, value));
+                } else {
+                    ops.add(BulkOperation.forKvItem("users", "user-" + i, value));
+                }
+            }
+            operations = ops.toArray();
+        }
+
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and allocation of converting KV list and search
+ * responses into their results, by building the page as a tree of
+ * {@code JsonNode}s and binding each value from the tree, and by streaming
+ * the page with the {@code ResultsPageReader} (as the {@code ResponseConverter}s
+ * of {@code KvListResource} and {@code BaseSearchResource} do), with the
+ * values bound on first use ({@code lazyValues}, the values are never read
+ * here), with generic ({@code Map}) values bound once by the reader or read
+ * as {@code String}s and parsed a second time, and search aggregates.
+ * Run with the GC profiler to report the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}).
+ *
+ * <pre>
+ * {@code
+ * gradle jmh -Pjmh.args="ResponseConversionBenchmark -prof gc"
+ * }
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseConversionBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private JacksonMapper mapper;
+    private JavaType userType;
+    private JavaType stringType;
+    private JavaType mapType;
+    private ArrayNode aggregates;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mapper = new JacksonMapper();
+        userType = mapper.constructType(User.class);
+        stringType = mapper.constructType(String.class);
+        mapType = mapper.constructType(new TypeReference<Map<String, Object>>() {});
+        aggregates = (ArrayNode) mapper.getMapper().readTree(aggregatesJson()).get("aggregates");
+    }
+
+    @Benchmark
+    public List<KvObject<User>> kvList(final Responses responses) throws IOException {
+        final JsonNode jsonNode = mapper.getMapper().readTree(responses.list);
+        final int count = jsonNode.get("count").asInt();
+        final List<KvObject<User>> kvObjects = new ArrayList<KvObject<User>>(count);
+        final Iterator<JsonNode> iter = jsonNode.get("results").elements();
+        while (iter.hasNext()) {
+            kvObjects.add(ResponseConverterUtil.wrapperJsonToKvObject(mapper, iter.next(), User.class));
+        }
+        return kvObjects;
+    }
+
+    @Benchmark
+    public List<KvObject<String>> kvListRaw(final Responses responses) throws IOException {
+        final JsonNode jsonNode = mapper.getMapper().readTree(responses.list);
+        final int count = jsonNode.get("count").asInt();
+        final List<KvObject<String>> kvObjects = new ArrayList<KvObject<String>>(count);
+        final Iterator<JsonNode> iter = jsonNode.get("results").elements();
+        while (iter.hasNext()) {
+            kvObjects.add(ResponseConverterUtil.wrapperJsonToKvObject(mapper, iter.next(), String.class));
+        }
+        return kvObjects;
+    }
+
+    @Benchmark
+    public List<Result<User>> search(final Responses responses) throws IOException {
+        final JsonNode jsonNode = mapper.getMapper().readTree(responses.search);
+        final int count = jsonNode.get("count").asInt();
+        final List<Result<User>> searchResults = new ArrayList<Result<User>>(count);
+        final Iterator<JsonNode> iter = jsonNode.get("results").elements();
+        while (iter.hasNext()) {
+            final JsonNode result = iter.next();
+            final double score = result.get("score").asDouble(0);
+            final KvObject<User> kvObject =
+                    ResponseConverterUtil.wrapperJsonToKvObject(mapper, result, User.class);
+            searchResults.add(new Result<User>(kvObject, score, null));
+        }
+        return searchResults;
+    }
+
+    @Benchmark
+    public List<KvObject<User>> kvListStreaming(final Responses responses) throws IOException {
+        return new ResultsPageReader<User, KvObject<User>>(mapper, userType, ItemKind.ITEM, false) {
+            @Override
+            KvObject<User> toResult(final KvObject<User> kvObject, final double score, final Double distance) {
+                return kvObject;
+            }
+        }.read(responses.list).getResults();
+    }
+
+    @Benchmark
+    public List<KvObject<String>> kvListRawStreaming(final Responses responses) throws IOException {
+        return new ResultsPageReader<String, KvObject<String>>(mapper, stringType, ItemKind.ITEM, false) {
+            @Override
+            KvObject<String> toResult(final KvObject<String> kvObject, final double score, final Double distance) {
+                return kvObject;
+            }
+        }.read(responses.list).getResults();
+    }
+
+    @Benchmark
+    public List<KvObject<User>> kvListLazy(final Responses responses) throws IOException {
+        return new ResultsPageReader<User, KvObject<User>>(mapper, userType, ItemKind.ITEM, true) {
+            @Override
+            KvObject<User> toResult(final KvObject<User> kvObject, final double score, final Double distance) {
+                return kvObject;
+            }
+        }.read(responses.list).getResults();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> kvListGenericFromString(final Responses responses) throws IOException {
+        final List<KvObject<String>> kvObjects = kvListRawStreaming(responses);
+        final List<Map<String, Object>> values = new ArrayList<Map<String, Object>>(kvObjects.size());
+        for (final KvObject<String> kvObject : kvObjects) {
+            values.add(mapper.reader(mapType).<Map<String, Object>>readValue(kvObject.getValue()));
+        }
+        return values;
+    }
+
+    @Benchmark
+    public List<KvObject<Map<String, Object>>> kvListGeneric(final Responses responses) throws IOException {
+        return new ResultsPageReader<Map<String, Object>, KvObject<Map<String, Object>>>(
+                mapper, mapType, ItemKind.ITEM, false) {
+            @Override
+            KvObject<Map<String, Object>> toResult(
+                    final KvObject<Map<String, Object>> kvObject, final double score, final Double distance) {
+                return kvObject;
+            }
+        }.read(responses.list).getResults();
+    }
+
+    @Benchmark
+    public List<Result<User>> searchStreaming(final Responses responses) throws IOException {
+        return new ResultsPageReader<User, Result<User>>(mapper, userType, ItemKind.ITEM, false) {
+            @Override
+            Result<User> toResult(final KvObject<User> kvObject, final double score, final Double distance) {
+                return new Result<User>(kvObject, score, distance);
+            }
+        }.read(responses.search).getResults();
+    }
+
+    @Benchmark
+    public List<AggregateResult> aggregates() {
+        return AggregateResult.from(aggregates);
+    }
+
+    private static String listResponse(final int results) {
+        final StringBuilder json = new StringBuilder(results * 512);
+        json.append("{\"count\":").append(results).append(",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendItem(json, i).append('}');
+        }
+        return json.append("],\"next\":\"/v0/users?limit=").append(results)
+                .append("&afterKey=user-").append(results - 1).append("\"}").toString();
+    }
+
+    private static String searchResponse(final int results) {
+        final StringBuilder json = new StringBuilder(results * 512);
+        json.append("{\"count\":").append(results)
+                .append(",\"total_count\":").append(results * 10).append(",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendItem(json, i).append(",\"score\":").append(1.0 / (i + 1)).append('}');
+        }
+        return json.append("],\"next\":\"/v0/users?query=*&limit=").append(results)
+                .append("&offset=").append(results).append("\"}").toString();
+    }
+
+    private static StringBuilder appendItem(final StringBuilder json, final int i) {
+        return json.append("{\"path\":{\"collection\":\"users\",\"kind\":\"item\",\"key\":\"user-")
+                .append(i).append("\",\"ref\":\"0eb2ab25de").append(100000 + i)
+                .append("\",\"reftime\":").append(1404431543462L + i)
+                .append("},\"value\":{\"name\":\"User ").append(i)
+                .append("\",\"email\":\"user").append(i).append("@example.com\",\"age\":")
+                .append(20 + i % 50).append(",\"active\":").append(i % 2 == 0)
+                .append(",\"tags\":[\"alpha\",\"beta\",\"gamma\"]")
+                .append(",\"address\":{\"street\":\"").append(i).append(" Main St\"")
+                .append(",\"city\":\"Seattle\",\"zip\":\"98101\"}},\"reftime\":")
+                .append(1404431543462L + i);
+    }
+
+    private static String aggregatesJson() {
+        return "{\"aggregates\":["
+                + "{\"aggregate_kind\":\"stats\",\"field_name\":\"value.age\",\"value_count\":1000,"
+                + "\"statistics\":{\"min\":18,\"max\":69,\"mean\":43.5,\"sum\":43500,"
+                + "\"sum_of_squares\":2100000,\"variance\":210.3,\"std_dev\":14.5}},"
+                + "{\"aggregate_kind\":\"range\",\"field_name\":\"value.age\",\"value_count\":1000,"
+                + "\"buckets\":[{\"max\":30,\"count\":240},{\"min\":30,\"max\":50,\"count\":390},"
+                + "{\"min\":50,\"count\":370}]},"
+                + "{\"aggregate_kind\":\"distance\",\"field_name\":\"value.location\",\"value_count\":1000,"
+                + "\"buckets\":[{\"max\":1,\"count\":10},{\"min\":1,\"max\":10,\"count\":90},"
+                + "{\"min\":10,\"count\":900}]},"
+                + "{\"aggregate_kind\":\"time_series\",\"field_name\":\"value.joined\",\"value_count\":1000,"
+                + "\"interval\":\"month\",\"buckets\":[{\"bucket\":\"2016-01\",\"count\":300},"
+                + "{\"bucket\":\"2016-02\",\"count\":320},{\"bucket\":\"2016-03\",\"count\":380}]},"
+                + "{\"aggregate_kind\":\"top_values\",\"field_name\":\"value.city\",\"value_count\":1000,"
+                + "\"offset\":0,\"limit\":3,\"entries\":[{\"value\":\"Seattle\",\"count\":500},"
+                + "{\"value\":\"Portland\",\"count\":300},{\"value\":\"Boise\",\"count\":200}]}"
+                + "]}";
+    }
+
+    /** The response bodies of a page of results. */
+    @State(Scope.Benchmark)
+    public static class Responses {
+
+        /** The number of results in each response, the largest page the service returns. */
+        @Param({ "10", "100" })
+        public int results;
+
+        byte[] list;
+        byte[] search;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            list = listResponse(results).getBytes(UTF8);
+            search = searchResponse(results).getBytes(UTF8);
+        }
+
+    }
+
+    /** A KV object value, as a typical application would store. */
+    public static class User {
+        public String name;
+        public String email;
+        public int age;
+        public boolean active;
+        public List<String> tags;
+        public Address address;
+    }
+
+    public static class Address {
+        public String street;
+        public String city;
+        public String zip;
+    }
+
+}
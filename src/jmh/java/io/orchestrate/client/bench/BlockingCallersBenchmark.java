@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import io.orchestrate.client.OrchestrateClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares many callers blocked on {@code OrchestrateRequest#get()} at once
+ * on platform threads (a thread per caller, with the client's own worker
+ * pool) and on virtual threads (a virtual thread per caller, and for the
+ * client's worker executor), against a local stub server. Each operation is
+ * a round of a KV read by every caller.
+ *
+ * <p>Virtual threads need Java 21 or later, the {@code VIRTUAL} runs fail on
+ * older JVMs.
+ *
+ * <pre>
+ * {@code
+ * gradle jmh -Pjmh.args="BlockingCallersBenchmark -p callers=10000"
+ * }
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+public class BlockingCallersBenchmark {
+
+    public enum CallerThreads { PLATFORM, VIRTUAL }
+
+    @Param({ "PLATFORM", "VIRTUAL" })
+    public CallerThreads threads;
+
+    @Param({ "10000" })
+    public int callers;
+
+    private StubServer server;
+    private OrchestrateClient client;
+    /** Runs the callers. */
+    private ExecutorService callerExecutor;
+    /** The client's worker executor, or {@code null} for its own pool. */
+    private ExecutorService workerExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new StubServer();
+        server.start();
+
+        final OrchestrateClient.Builder builder = OrchestrateClient.builder("benchmark")
+                .host("http://127.0.0.1")
+                .port(server.getPort())
+                .useSSL(false);
+        if (threads == CallerThreads.VIRTUAL) {
+            callerExecutor = newVirtualThreadPerTaskExecutor();
+            workerExecutor = newVirtualThreadPerTaskExecutor();
+            builder.workerExecutor(workerExecutor);
+        } else {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(callers,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable task) {
+                            final Thread thread = new Thread(task, "BlockingCaller");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            // the threads are started before the measurement
+            pool.prestartAllCoreThreads();
+            callerExecutor = pool;
+        }
+        client = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        callerExecutor.shutdownNow();
+        if (workerExecutor != null) {
+            workerExecutor.shutdownNow();
+        }
+        server.stop();
+    }
+
+    @Benchmark
+    public int blockingGets() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(callers);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < callers; i++) {
+            callerExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        client.kv("benchmark", "key").get(String.class).get();
+                    } catch (final RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+        return failures.get();
+    }
+
+    /**
+     * Returns {@code Executors.newVirtualThreadPerTaskExecutor()}, looked up
+     * reflectively so the benchmarks still compile for older JVMs.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later.", e);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import io.orchestrate.client.IOStrategyType;
+import io.orchestrate.client.KvObject;
+import io.orchestrate.client.OrchestrateClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput and latency (including the p99) of small KV reads
+ * with each of the client's I/O strategies, against a local stub server.
+ *
+ * <pre>
+ * {@code
+ * gradle jmh -Pjmh.args="IOStrategyBenchmark"
+ * }
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Threads(16)
+@Fork(1)
+public class IOStrategyBenchmark {
+
+    @Param({ "WORKER_THREAD", "SAME_THREAD", "LEADER_FOLLOWER", "DYNAMIC" })
+    public IOStrategyType ioStrategy;
+
+    private StubServer server;
+    private OrchestrateClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new StubServer();
+        server.start();
+
+        client = OrchestrateClient.builder("benchmark")
+                .host("http://127.0.0.1")
+                .port(server.getPort())
+                .useSSL(false)
+                .ioStrategy(ioStrategy)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public KvObject<String> kvGet() {
+        return client.kv("benchmark", "key").get(String.class).get();
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import java.util.Random;
+
+/**
+ * Chooses the keys (as an index of a record) for the operations of a
+ * workload. A chooser is used by a single thread.
+ */
+abstract class KeyChooser {
+
+    /**
+     * Returns the index of the next record to operate on.
+     *
+     * @param recordCount The number of records that exist, greater than 0.
+     * @param random The source of randomness for the calling thread.
+     * @return An index between 0 (inclusive) and {@code recordCount} (exclusive).
+     */
+    abstract long next(long recordCount, Random random);
+
+    static KeyChooser of(final KeyDistribution distribution) {
+        switch (distribution) {
+            case UNIFORM:
+                return new Uniform();
+            case ZIPFIAN:
+                return new Scrambled(new Zipfian());
+            case LATEST:
+                return new Latest(new Zipfian());
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+    }
+
+    /**
+     * Every record is equally likely.
+     */
+    static final class Uniform extends KeyChooser {
+        @Override
+        long next(final long recordCount, final Random random) {
+            return (long) (random.nextDouble() * recordCount);
+        }
+    }
+
+    /**
+     * A Zipfian distribution over the ranks of the records, rank {@code 0} is
+     * the most popular. Uses the algorithm from "Quickly Generating
+     * Billion-Record Synthetic Databases" (Gray et al, SIGMOD 1994), as YCSB
+     * does, with the zeta constant updated incrementally as records are added.
+     */
+    static final class Zipfian extends KeyChooser {
+
+        /** The skew of the distribution, YCSB's default. */
+        static final double THETA = 0.99;
+
+        private static final double ALPHA = 1.0 / (1.0 - THETA);
+        private static final double ZETA_2 = 1.0 + Math.pow(0.5, THETA);
+
+        /** The number of items {@code zetaN} has been computed for. */
+        private long items;
+        private double zetaN;
+        private double eta;
+
+        @Override
+        long next(final long recordCount, final Random random) {
+            if (recordCount != items) {
+                resize(recordCount);
+            }
+
+            final double u = random.nextDouble();
+            final double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < ZETA_2) {
+                return Math.min(1, recordCount - 1);
+            }
+            final long rank = (long) (recordCount * Math.pow(eta * u - eta + 1.0, ALPHA));
+            return Math.min(rank, recordCount - 1);
+        }
+
+        private void resize(final long recordCount) {
+            if (recordCount > items) {
+                for (long i = items + 1; i <= recordCount; i++) {
+                    zetaN += 1.0 / Math.pow(i, THETA);
+                }
+            } else {
+                zetaN = 0;
+                for (long i = 1; i <= recordCount; i++) {
+                    zetaN += 1.0 / Math.pow(i, THETA);
+                }
+            }
+            items = recordCount;
+            eta = (1.0 - Math.pow(2.0 / recordCount, 1.0 - THETA)) / (1.0 - ZETA_2 / zetaN);
+        }
+
+    }
+
+    /**
+     * Spreads the popular ranks of a Zipfian distribution across the records
+     * (by hashing the rank), so the hot records aren't all adjacent.
+     */
+    static final class Scrambled extends KeyChooser {
+
+        private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private final KeyChooser ranks;
+
+        Scrambled(final KeyChooser ranks) {
+            this.ranks = ranks;
+        }
+
+        @Override
+        long next(final long recordCount, final Random random) {
+            final long rank = ranks.next(recordCount, random);
+            return (fnv1a(rank) & Long.MAX_VALUE) % recordCount;
+        }
+
+        private static long fnv1a(final long value) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = 0; i < 8; i++) {
+                hash ^= (value >>> (i * 8)) & 0xff;
+                hash *= FNV_PRIME;
+            }
+            return hash;
+        }
+
+    }
+
+    /**
+     * The most recently inserted records are the most popular.
+     */
+    static final class Latest extends KeyChooser {
+
+        private final KeyChooser ranks;
+
+        Latest(final KeyChooser ranks) {
+            this.ranks = ranks;
+        }
+
+        @Override
+        long next(final long recordCount, final Random random) {
+            return recordCount - 1 - ranks.next(recordCount, random);
+        }
+
+    }
+
+}
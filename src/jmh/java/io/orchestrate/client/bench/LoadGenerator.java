@@ -0,0 +1,516 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import io.orchestrate.client.BulkResource;
+import io.orchestrate.client.BulkResponse;
+import io.orchestrate.client.Client;
+import io.orchestrate.client.OrchestrateClient;
+import io.orchestrate.client.bench.Workload.Operation;
+import io.orchestrate.client.fake.FakeOrchestrateServer;
+import io.orchestrate.client.jsonpatch.JsonPatch;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates load with a {@link Workload} (in the style of YCSB) against the
+ * Orchestrate service, or a local {@link FakeOrchestrateServer}, and reports
+ * the throughput and latency percentiles of each kind of operation.
+ *
+ * <p>Each thread sends one operation at a time. With a target rate the
+ * operations are scheduled at a fixed interval and the latency is measured
+ * from the scheduled time, so the latency reported is corrected for
+ * "coordinated omission", see {@link LoadReport}.
+ *
+ * <pre>
+ * {@code
+ * LoadGenerator generator = LoadGenerator.builder(client, workload)
+ *         .threads(32)
+ *         .targetRate(5000)
+ *         .build();
+ * generator.load();
+ * generator.run(10, TimeUnit.SECONDS);  // warm-up
+ * generator.run(60, TimeUnit.SECONDS).print(System.out);
+ * }
+ * </pre>
+ *
+ * <p>From the command line the workload and the run are configured with
+ * properties, read from a file with {@code -P <file>} or given as {@code
+ * name=value} arguments, see {@link #main(String[])}:
+ *
+ * <pre>
+ * {@code
+ * gradle loadtest -Pload.args="recordcount=100000 readproportion=0.9 updateproportion=0.1 threads=32 target=5000"
+ * }
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    /** The default number of threads sending operations. */
+    public static final int DEFAULT_THREADS = 16;
+
+    /** The characters for the values of the fields of records. */
+    private static final char[] FIELD_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    private final Client client;
+    private final Workload workload;
+    private final int threads;
+    private final double targetRate;
+    /** The number of records stored, including records inserted by the run. */
+    private final AtomicLong recordCount;
+    /** The index of the next record to insert. */
+    private final AtomicLong nextInsert;
+
+    private LoadGenerator(final Builder builder) {
+        this.client = builder.client;
+        this.workload = builder.workload;
+        this.threads = builder.threads;
+        this.targetRate = builder.targetRate;
+        this.recordCount = new AtomicLong(workload.getRecordCount());
+        this.nextInsert = new AtomicLong(workload.getRecordCount());
+    }
+
+    /**
+     * A new builder to generate load with the {@code client}.
+     *
+     * @param client The client to send operations with.
+     * @param workload The shape of the load.
+     * @return A new {@code Builder}.
+     */
+    public static Builder builder(final Client client, final Workload workload) {
+        return new Builder(client, workload);
+    }
+
+    /**
+     * Stores the records of the workload with bulk requests, so the run has
+     * records to operate on.
+     *
+     * @return The number of records that failed to be stored.
+     * @throws InterruptedException If interrupted while waiting for the records to be stored.
+     */
+    public long load() throws InterruptedException {
+        final long records = workload.getRecordCount();
+        final int batchSize = workload.getBulkSize();
+        final AtomicLong nextBatch = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        runThreads(new WorkerFactory() {
+            @Override
+            public Runnable create(final int index) {
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        final Random random = new Random();
+                        long start;
+                        while ((start = nextBatch.getAndAdd(batchSize)) < records) {
+                            final int size = (int) Math.min(batchSize, records - start);
+                            try {
+                                failures.addAndGet(bulkPut(random, start, size));
+                            } catch (final Exception e) {
+                                failures.addAndGet(size);
+                            }
+                        }
+                    }
+                };
+            }
+        });
+        return failures.get();
+    }
+
+    /**
+     * Sends operations from the workload for a period of time.
+     *
+     * @param duration The time to send operations for.
+     * @param unit The unit of time of the duration.
+     * @return The report of the operations completed.
+     * @throws InterruptedException If interrupted while waiting for the run to complete.
+     */
+    public LoadReport run(final long duration, final TimeUnit unit) throws InterruptedException {
+        final long start = System.nanoTime();
+        final long end = start + unit.toNanos(duration);
+        // the interval between the operations of a thread
+        final long interval = (targetRate > 0) ? (long) (1e9 * threads / targetRate) : 0;
+        final List<Worker> workers = new ArrayList<Worker>(threads);
+
+        runThreads(new WorkerFactory() {
+            @Override
+            public Runnable create(final int index) {
+                // stagger the threads so the operations are spread evenly
+                final Worker worker = new Worker(start + interval * index / threads, interval, end);
+                synchronized (workers) {
+                    workers.add(worker);
+                }
+                return worker;
+            }
+        });
+
+        final LoadReport report = new LoadReport(Math.max(System.nanoTime(), end) - start);
+        for (final Worker worker : workers) {
+            for (final Operation operation : worker.corrected.keySet()) {
+                report.add(operation, worker.corrected.get(operation),
+                        worker.service.get(operation), worker.errors.get(operation));
+            }
+        }
+        return report;
+    }
+
+    private void runThreads(final WorkerFactory factory) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Thread> started = new ArrayList<Thread>(threads);
+        for (int i = 0; i < threads; i++) {
+            final Runnable worker = factory.create(i);
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        worker.run();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "LoadGenerator-" + i);
+            thread.setDaemon(true);
+            started.add(thread);
+        }
+        for (final Thread thread : started) {
+            thread.start();
+        }
+        try {
+            done.await();
+        } catch (final InterruptedException e) {
+            for (final Thread thread : started) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+    }
+
+    private boolean execute(final Operation operation, final KeyChooser chooser, final Random random)
+            throws IOException {
+        final String collection = workload.getCollection();
+        switch (operation) {
+            case READ:
+                client.kv(collection, key(chooser, random)).get(Map.class).get();
+                return true;
+            case UPDATE:
+                client.kv(collection, key(chooser, random)).put(record(random)).get();
+                return true;
+            case INSERT:
+                final long index = nextInsert.getAndIncrement();
+                client.kv(collection, key(index)).put(record(random)).get();
+                // records may be inserted out of order, the count is only approximate
+                long count;
+                while ((count = recordCount.get()) <= index) {
+                    if (recordCount.compareAndSet(count, index + 1)) {
+                        break;
+                    }
+                }
+                return true;
+            case PATCH:
+                final JsonPatch patch = JsonPatch.builder()
+                        .replace("field" + random.nextInt(workload.getFieldCount()), field(random))
+                        .build();
+                client.kv(collection, key(chooser, random)).patch(patch).get();
+                return true;
+            case SEARCH:
+                client.searchCollection(collection)
+                        .limit(10)
+                        .get(Map.class, "@path.key:" + key(chooser, random))
+                        .get();
+                return true;
+            case EVENT:
+                client.event(collection, key(chooser, random))
+                        .type("activity")
+                        .create(record(random))
+                        .get();
+                return true;
+            case BULK:
+                final long first = chooser.next(recordCount.get(), random);
+                final int size = (int) Math.min(workload.getBulkSize(), recordCount.get() - first);
+                return bulkPut(random, first, size) == 0;
+            default:
+                throw new IllegalStateException("Unknown operation: " + operation);
+        }
+    }
+
+    /** Stores {@code size} records from {@code first}, returns the number that failed. */
+    private int bulkPut(final Random random, final long first, final int size) throws IOException {
+        final BulkResource bulk = client.bulk();
+        for (long i = first; i < first + size; i++) {
+            bulk.add(client.kv(workload.getCollection(), key(i)).bulkPut(record(random)));
+        }
+        final BulkResponse response = bulk.done().get();
+        return size - response.getSuccessCount();
+    }
+
+    private String key(final KeyChooser chooser, final Random random) {
+        return key(chooser.next(recordCount.get(), random));
+    }
+
+    private static String key(final long index) {
+        return "user" + index;
+    }
+
+    private Map<String, String> record(final Random random) {
+        final int fields = workload.getFieldCount();
+        final Map<String, String> record = new LinkedHashMap<String, String>(fields * 2);
+        for (int i = 0; i < fields; i++) {
+            record.put("field" + i, field(random));
+        }
+        return record;
+    }
+
+    private String field(final Random random) {
+        final char[] value = new char[workload.getFieldLength()];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = FIELD_CHARS[random.nextInt(FIELD_CHARS.length)];
+        }
+        return new String(value);
+    }
+
+    private interface WorkerFactory {
+        Runnable create(int index);
+    }
+
+    /**
+     * Sends operations one at a time, and records their latencies.
+     */
+    private final class Worker implements Runnable {
+
+        private final long firstStart;
+        private final long interval;
+        private final long end;
+        private final KeyChooser chooser = KeyChooser.of(workload.getKeyDistribution());
+        private final Random random = new Random();
+        final Map<Operation, LoadHistogram> corrected = new EnumMap<Operation, LoadHistogram>(Operation.class);
+        final Map<Operation, LoadHistogram> service = new EnumMap<Operation, LoadHistogram>(Operation.class);
+        final Map<Operation, Long> errors = new EnumMap<Operation, Long>(Operation.class);
+
+        Worker(final long firstStart, final long interval, final long end) {
+            this.firstStart = firstStart;
+            this.interval = interval;
+            this.end = end;
+            for (final Operation operation : Operation.values()) {
+                corrected.put(operation, new LoadHistogram());
+                service.put(operation, new LoadHistogram());
+                errors.put(operation, 0L);
+            }
+        }
+
+        @Override
+        public void run() {
+            long intended = firstStart;
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.nanoTime();
+                if (interval > 0) {
+                    while (now < intended) {
+                        LockSupport.parkNanos(intended - now);
+                        now = System.nanoTime();
+                    }
+                } else {
+                    intended = now;
+                }
+                if (now >= end) {
+                    // operations scheduled but not sent when behind the target rate are dropped
+                    return;
+                }
+
+                final Operation operation = workload.choose(random.nextDouble());
+                boolean succeeded;
+                try {
+                    succeeded = execute(operation, chooser, random);
+                } catch (final Exception e) {
+                    succeeded = false;
+                }
+                final long completed = System.nanoTime();
+
+                corrected.get(operation).record(completed - intended);
+                service.get(operation).record(completed - now);
+                if (!succeeded) {
+                    errors.put(operation, errors.get(operation) + 1);
+                }
+                intended += interval;
+            }
+        }
+
+    }
+
+    /**
+     * Runs a workload from the command line, the properties of the workload
+     * (see {@link Workload#fromProperties(Properties)}) and the run are read
+     * from a file with {@code -P <file>} and from {@code name=value}
+     * arguments. The properties for the run are:
+     *
+     * <ul>
+     * <li>{@code host}, {@code port}, {@code ssl} and {@code apikey} - the
+     *     service to send operations to, if there's no {@code host} a {@link
+     *     FakeOrchestrateServer} is started in-process</li>
+     * <li>{@code fake.latency} and {@code fake.jitter} (in milliseconds),
+     *     {@code fake.errorrate} and {@code fake.throttlerate} - configure
+     *     the fake server</li>
+     * <li>{@code threads} - the number of threads sending operations</li>
+     * <li>{@code target} - the target operations per second of all threads,
+     *     {@code 0} (the default) for as fast as possible</li>
+     * <li>{@code warmup} and {@code duration} (in seconds) - the time to send
+     *     operations for before, and while, measuring</li>
+     * <li>{@code load} - whether to store the records first, {@code true}
+     *     by default</li>
+     * </ul>
+     *
+     * @param args The arguments.
+     * @throws Exception If the run fails.
+     */
+    public static void main(final String[] args) throws Exception {
+        final Properties props = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-P") && i + 1 < args.length) {
+                final InputStream in = new FileInputStream(args[++i]);
+                try {
+                    props.load(in);
+                } finally {
+                    in.close();
+                }
+            } else if (args[i].indexOf('=') > 0) {
+                final int eq = args[i].indexOf('=');
+                props.setProperty(args[i].substring(0, eq), args[i].substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        final Workload workload = Workload.fromProperties(props);
+        final int threads = Integer.parseInt(props.getProperty("threads", Integer.toString(DEFAULT_THREADS)));
+
+        FakeOrchestrateServer server = null;
+        final OrchestrateClient.Builder builder =
+                OrchestrateClient.builder(props.getProperty("apikey", "load-generator"))
+                        .maxConnectionsPerHost(Math.max(threads, OrchestrateClient.Builder.DEFAULT_MAX_CONNECTIONS_PER_HOST));
+        if (props.getProperty("host") == null) {
+            server = FakeOrchestrateServer.builder()
+                    .latency(Long.parseLong(props.getProperty("fake.latency", "0")), TimeUnit.MILLISECONDS)
+                    .jitter(Long.parseLong(props.getProperty("fake.jitter", "0")), TimeUnit.MILLISECONDS)
+                    .errorRate(Double.parseDouble(props.getProperty("fake.errorrate", "0")))
+                    .throttleRate(Double.parseDouble(props.getProperty("fake.throttlerate", "0")))
+                    .build();
+            server.start();
+            builder.host("http://127.0.0.1").port(server.getPort()).useSSL(false);
+        } else {
+            final boolean ssl = Boolean.parseBoolean(props.getProperty("ssl", "true"));
+            builder.host(props.getProperty("host"))
+                    .port(Integer.parseInt(props.getProperty("port", ssl ? "443" : "80")))
+                    .useSSL(ssl);
+        }
+
+        final OrchestrateClient client = builder.build();
+        try {
+            final LoadGenerator generator = LoadGenerator.builder(client, workload)
+                    .threads(threads)
+                    .targetRate(Double.parseDouble(props.getProperty("target", "0")))
+                    .build();
+            System.out.println(workload);
+
+            if (Boolean.parseBoolean(props.getProperty("load", "true"))) {
+                final long start = System.nanoTime();
+                final long failures = generator.load();
+                System.out.printf("loaded %d records (%d failed) in %.1fs%n", workload.getRecordCount(),
+                        failures, (System.nanoTime() - start) / 1e9);
+            }
+
+            final long warmup = Long.parseLong(props.getProperty("warmup", "10"));
+            if (warmup > 0) {
+                generator.run(warmup, TimeUnit.SECONDS);
+            }
+            generator.run(Long.parseLong(props.getProperty("duration", "60")), TimeUnit.SECONDS)
+                    .print(System.out);
+        } finally {
+            client.close();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Builder used to create {@code LoadGenerator} instances.
+     */
+    public static final class Builder {
+
+        private final Client client;
+        private final Workload workload;
+        private int threads = DEFAULT_THREADS;
+        private double targetRate;
+
+        private Builder(final Client client, final Workload workload) {
+            if (client == null) {
+                throw new IllegalArgumentException("'client' cannot be null.");
+            }
+            if (workload == null) {
+                throw new IllegalArgumentException("'workload' cannot be null.");
+            }
+            this.client = client;
+            this.workload = workload;
+        }
+
+        /**
+         * The number of threads sending operations, i.e. the number of
+         * operations in-flight at once, {@link #DEFAULT_THREADS} by default.
+         *
+         * @param threads The number of threads.
+         * @return This builder.
+         */
+        public Builder threads(final int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("'threads' must be greater than 0.");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * The target number of operations per second sent by all threads,
+         * {@code 0} (the default) to send operations as fast as possible.
+         *
+         * @param targetRate The operations per second.
+         * @return This builder.
+         */
+        public Builder targetRate(final double targetRate) {
+            if (targetRate < 0) {
+                throw new IllegalArgumentException("'targetRate' cannot be negative.");
+            }
+            this.targetRate = targetRate;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            return new LoadGenerator(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import io.orchestrate.client.bench.Workload.Operation;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput and latency of each kind of operation during a run of a
+ * {@link LoadGenerator}.
+ *
+ * <p>Two latencies are reported for each operation. The <em>corrected</em>
+ * latency is measured from the time the operation was scheduled to be sent
+ * at the target rate, so when the client (or the service) stalls the
+ * operations that should have been sent during the stall are charged for the
+ * wait, i.e. the latency is corrected for "coordinated omission". The
+ * <em>service</em> latency is measured from the time the operation was sent.
+ * Without a target rate the two are the same.
+ */
+public final class LoadReport {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final long elapsedNanos;
+    private final Map<Operation, LoadHistogram> corrected;
+    private final Map<Operation, LoadHistogram> service;
+    private final Map<Operation, Long> errors;
+
+    LoadReport(final long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        this.corrected = new EnumMap<Operation, LoadHistogram>(Operation.class);
+        this.service = new EnumMap<Operation, LoadHistogram>(Operation.class);
+        this.errors = new EnumMap<Operation, Long>(Operation.class);
+    }
+
+    void add(final Operation operation,
+             final LoadHistogram correctedLatency,
+             final LoadHistogram serviceLatency,
+             final long errorCount) {
+        histogram(corrected, operation).add(correctedLatency);
+        histogram(service, operation).add(serviceLatency);
+        final Long current = errors.get(operation);
+        errors.put(operation, (current == null ? 0 : current) + errorCount);
+    }
+
+    /**
+     * Returns the number of operations (of a kind) completed, including
+     * failed operations.
+     *
+     * @param operation The kind of operation.
+     * @return The number of operations.
+     */
+    public long getCount(final Operation operation) {
+        final LoadHistogram histogram = corrected.get(operation);
+        return (histogram == null) ? 0 : histogram.getCount();
+    }
+
+    /**
+     * Returns the number of operations (of a kind) that failed.
+     *
+     * @param operation The kind of operation.
+     * @return The number of failed operations.
+     */
+    public long getErrorCount(final Operation operation) {
+        final Long count = errors.get(operation);
+        return (count == null) ? 0 : count;
+    }
+
+    /**
+     * Returns the throughput of all operations, per second.
+     *
+     * @return The operations per second.
+     */
+    public double getThroughput() {
+        long count = 0;
+        for (final Operation operation : corrected.keySet()) {
+            count += getCount(operation);
+        }
+        return count / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns the latency at a percentile for an operation, corrected for
+     * coordinated omission.
+     *
+     * @param operation The kind of operation.
+     * @param percentile The percentile, e.g. {@code 99}.
+     * @param unit The unit of time to return the latency in.
+     * @return The latency, or {@code 0} if there were no operations of the kind.
+     */
+    public double getLatency(final Operation operation, final double percentile, final TimeUnit unit) {
+        final LoadHistogram histogram = corrected.get(operation);
+        return (histogram == null) ? 0 : histogram.getPercentile(percentile, unit);
+    }
+
+    /**
+     * Returns the latency at a percentile for an operation, measured from
+     * the time the operation was sent.
+     *
+     * @param operation The kind of operation.
+     * @param percentile The percentile, e.g. {@code 99}.
+     * @param unit The unit of time to return the latency in.
+     * @return The latency, or {@code 0} if there were no operations of the kind.
+     */
+    public double getServiceLatency(final Operation operation, final double percentile, final TimeUnit unit) {
+        final LoadHistogram histogram = service.get(operation);
+        return (histogram == null) ? 0 : histogram.getPercentile(percentile, unit);
+    }
+
+    /**
+     * Prints the report as a table, one row per kind of operation, with the
+     * latencies in milliseconds.
+     *
+     * @param out The stream to print to.
+     */
+    public void print(final PrintStream out) {
+        final double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.ENGLISH, "%-8s %10s %8s %10s %9s %9s %9s %9s %9s %9s %12s%n",
+                "op", "count", "errors", "ops/s", "mean", "p50", "p90", "p99", "p99.9", "max", "p99(sent)");
+        for (final Map.Entry<Operation, LoadHistogram> entry : corrected.entrySet()) {
+            final Operation operation = entry.getKey();
+            final LoadHistogram latency = entry.getValue();
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            out.printf(Locale.ENGLISH, "%-8s %10d %8d %10.1f %9.3f",
+                    operation.name().toLowerCase(Locale.ENGLISH), latency.getCount(),
+                    getErrorCount(operation), latency.getCount() / seconds,
+                    latency.getMean(TimeUnit.MILLISECONDS));
+            for (final double percentile : PERCENTILES) {
+                out.printf(Locale.ENGLISH, " %9.3f", latency.getPercentile(percentile, TimeUnit.MILLISECONDS));
+            }
+            out.printf(Locale.ENGLISH, " %9.3f %12.3f%n", latency.getMax(TimeUnit.MILLISECONDS),
+                    service.get(operation).getPercentile(99, TimeUnit.MILLISECONDS));
+        }
+        out.printf(Locale.ENGLISH, "throughput %.1f ops/s over %.1fs%n", getThroughput(), seconds);
+    }
+
+    private static LoadHistogram histogram(
+            final Map<Operation, LoadHistogram> histograms, final Operation operation) {
+        LoadHistogram histogram = histograms.get(operation);
+        if (histogram == null) {
+            histogram = new LoadHistogram();
+            histograms.put(operation, histogram);
+        }
+        return histogram;
+    }
+
+}
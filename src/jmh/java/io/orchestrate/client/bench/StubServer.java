@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+import java.io.IOException;
+
+/**
+ * A local stand-in for the Orchestrate service that answers every request with
+ * a small, fixed response. It's used to measure the overhead of the client
+ * without the latency of the network or the service.
+ */
+public final class StubServer {
+
+    /** The default port for the stub server to listen on. */
+    public static final int DEFAULT_PORT = 18089;
+
+    /** The value returned for every KV object. */
+    private static final String VALUE = "{\"name\":\"stub\",\"count\":1}";
+    /** The ref returned for every KV object. */
+    private static final String REF = "\"0123456789abcdef\"";
+
+    /** The embedded HTTP server. */
+    private final HttpServer server;
+    /** The port the server listens on. */
+    private final int port;
+
+    public StubServer() {
+        this(DEFAULT_PORT);
+    }
+
+    public StubServer(final int port) {
+        this.port = port;
+        this.server = HttpServer.createSimpleServer(null, "127.0.0.1", port);
+        server.getServerConfiguration().addHttpHandler(new StubHandler(), "/");
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    public void stop() {
+        server.shutdownNow();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    private static final class StubHandler extends HttpHandler {
+
+        @Override
+        public void service(final Request request, final Response response) throws Exception {
+            final Method method = request.getMethod();
+            if (Method.GET.equals(method) || Method.HEAD.equals(method)) {
+                response.setStatus(200);
+                response.setHeader("ETag", REF);
+                response.setContentType("application/json");
+                response.setContentLength(VALUE.length());
+                if (Method.GET.equals(method)) {
+                    response.getWriter().write(VALUE);
+                }
+            } else if (Method.DELETE.equals(method)) {
+                response.setStatus(204);
+            } else {
+                response.setStatus(201);
+                response.setHeader("ETag", REF);
+                response.setHeader("Location", request.getRequestURI() + "/refs/0123456789abcdef");
+            }
+        }
+
+    }
+
+}
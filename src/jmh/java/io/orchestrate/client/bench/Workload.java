@@ -0,0 +1,317 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client.bench;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Describes the shape of the load to generate: the mix of operations, how
+ * the records operated on are chosen and the size of the records.
+ *
+ * <p>A workload can be read from properties with the names used by YCSB
+ * (where there's an equivalent), e.g.
+ *
+ * <pre>
+ * {@code
+ * recordcount=100000
+ * readproportion=0.8
+ * updateproportion=0.1
+ * patchproportion=0.05
+ * searchproportion=0.05
+ * requestdistribution=zipfian
+ * fieldcount=10
+ * fieldlength=100
+ * }
+ * </pre>
+ *
+ * @see LoadGenerator
+ */
+public final class Workload {
+
+    /** The kinds of operation in a workload. */
+    public enum Operation {
+        /** Fetch a record, {@code client.kv(...).get(...)}. */
+        READ,
+        /** Replace a record, {@code client.kv(...).put(...)}. */
+        UPDATE,
+        /** Store a new record, {@code client.kv(...).put(...)}. */
+        INSERT,
+        /** Change one field of a record, {@code client.kv(...).patch(...)}. */
+        PATCH,
+        /** Search for a record, {@code client.searchCollection(...).get(...)}. */
+        SEARCH,
+        /** Add an event to a record, {@code client.event(...).create(...)}. */
+        EVENT,
+        /** Replace several records at once, {@code client.bulk()}. */
+        BULK
+    }
+
+    /** The default collection the records are stored in. */
+    public static final String DEFAULT_COLLECTION = "loadtest";
+    /** The default number of records stored before the load is generated. */
+    public static final long DEFAULT_RECORD_COUNT = 10000;
+    /** The default number of fields in each record. */
+    public static final int DEFAULT_FIELD_COUNT = 10;
+    /** The default length (in characters) of each field. */
+    public static final int DEFAULT_FIELD_LENGTH = 100;
+    /** The default number of records in each bulk operation. */
+    public static final int DEFAULT_BULK_SIZE = 100;
+
+    private final String collection;
+    private final long recordCount;
+    private final int fieldCount;
+    private final int fieldLength;
+    private final int bulkSize;
+    private final KeyDistribution keyDistribution;
+    /** The operations in the order of {@code cumulative}. */
+    private final Operation[] operations;
+    /** The cumulative (normalized) proportions of the operations. */
+    private final double[] cumulative;
+
+    private Workload(final Builder builder) {
+        this.collection = builder.collection;
+        this.recordCount = builder.recordCount;
+        this.fieldCount = builder.fieldCount;
+        this.fieldLength = builder.fieldLength;
+        this.bulkSize = builder.bulkSize;
+        this.keyDistribution = builder.keyDistribution;
+
+        double total = 0;
+        for (final double proportion : builder.proportions.values()) {
+            total += proportion;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one operation must have a proportion.");
+        }
+
+        this.operations = new Operation[builder.proportions.size()];
+        this.cumulative = new double[operations.length];
+        double sum = 0;
+        int i = 0;
+        for (final Map.Entry<Operation, Double> entry : builder.proportions.entrySet()) {
+            sum += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulative[i] = sum / total;
+            i++;
+        }
+    }
+
+    /**
+     * A new builder for a workload, by default 95% reads and 5% updates.
+     *
+     * @return A new {@code Builder}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reads a workload from properties with YCSB style names, {@code
+     * recordcount}, {@code fieldcount}, {@code fieldlength}, {@code
+     * requestdistribution} (uniform, zipfian or latest), {@code
+     * <operation>proportion} (e.g. {@code readproportion}), {@code bulksize}
+     * and {@code collection}. Any operation proportion given replaces the
+     * default mix.
+     *
+     * @param props The properties to read.
+     * @return The workload.
+     */
+    public static Workload fromProperties(final Properties props) {
+        final Builder builder = builder()
+                .collection(props.getProperty("collection", DEFAULT_COLLECTION))
+                .recordCount(Long.parseLong(props.getProperty("recordcount", Long.toString(DEFAULT_RECORD_COUNT))))
+                .fieldCount(Integer.parseInt(props.getProperty("fieldcount", Integer.toString(DEFAULT_FIELD_COUNT))))
+                .fieldLength(Integer.parseInt(props.getProperty("fieldlength", Integer.toString(DEFAULT_FIELD_LENGTH))))
+                .bulkSize(Integer.parseInt(props.getProperty("bulksize", Integer.toString(DEFAULT_BULK_SIZE))));
+
+        final String distribution = props.getProperty("requestdistribution");
+        if (distribution != null) {
+            builder.keyDistribution(KeyDistribution.valueOf(distribution.trim().toUpperCase(Locale.ENGLISH)));
+        }
+
+        boolean mixed = false;
+        for (final Operation operation : Operation.values()) {
+            final String name = operation.name().toLowerCase(Locale.ENGLISH) + "proportion";
+            final String proportion = props.getProperty(name);
+            if (proportion == null) {
+                continue;
+            }
+            if (!mixed) {
+                builder.proportions.clear();
+                mixed = true;
+            }
+            builder.proportion(operation, Double.parseDouble(proportion));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Chooses the next operation.
+     *
+     * @param u A random number between 0 (inclusive) and 1 (exclusive).
+     * @return The operation.
+     */
+    Operation choose(final double u) {
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (u < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getFieldLength() {
+        return fieldLength;
+    }
+
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    public KeyDistribution getKeyDistribution() {
+        return keyDistribution;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder mix = new StringBuilder();
+        double previous = 0;
+        for (int i = 0; i < operations.length; i++) {
+            if (cumulative[i] > previous) {
+                if (mix.length() > 0) {
+                    mix.append(", ");
+                }
+                mix.append(operations[i].name().toLowerCase(Locale.ENGLISH)).append('=')
+                        .append(Math.round((cumulative[i] - previous) * 1000) / 10.0).append('%');
+            }
+            previous = cumulative[i];
+        }
+        return "Workload(collection=" + collection + ", records=" + recordCount
+                + ", fields=" + fieldCount + "x" + fieldLength + ", distribution=" + keyDistribution
+                + ", bulkSize=" + bulkSize + ", mix=[" + mix + "])";
+    }
+
+    /**
+     * Builder used to create {@code Workload} instances.
+     */
+    public static final class Builder {
+
+        private String collection = DEFAULT_COLLECTION;
+        private long recordCount = DEFAULT_RECORD_COUNT;
+        private int fieldCount = DEFAULT_FIELD_COUNT;
+        private int fieldLength = DEFAULT_FIELD_LENGTH;
+        private int bulkSize = DEFAULT_BULK_SIZE;
+        private KeyDistribution keyDistribution = KeyDistribution.ZIPFIAN;
+        private final Map<Operation, Double> proportions = new EnumMap<Operation, Double>(Operation.class);
+
+        private Builder() {
+            proportions.put(Operation.READ, 0.95);
+            proportions.put(Operation.UPDATE, 0.05);
+        }
+
+        public Builder collection(final String collection) {
+            if (collection == null || collection.isEmpty()) {
+                throw new IllegalArgumentException("'collection' cannot be empty.");
+            }
+            this.collection = collection;
+            return this;
+        }
+
+        /**
+         * The number of records stored before the load is generated, and
+         * chosen from by the operations.
+         *
+         * @param recordCount The number of records.
+         * @return This builder.
+         */
+        public Builder recordCount(final long recordCount) {
+            if (recordCount < 1) {
+                throw new IllegalArgumentException("'recordCount' must be greater than 0.");
+            }
+            this.recordCount = recordCount;
+            return this;
+        }
+
+        public Builder fieldCount(final int fieldCount) {
+            if (fieldCount < 1) {
+                throw new IllegalArgumentException("'fieldCount' must be greater than 0.");
+            }
+            this.fieldCount = fieldCount;
+            return this;
+        }
+
+        public Builder fieldLength(final int fieldLength) {
+            if (fieldLength < 0) {
+                throw new IllegalArgumentException("'fieldLength' cannot be negative.");
+            }
+            this.fieldLength = fieldLength;
+            return this;
+        }
+
+        public Builder bulkSize(final int bulkSize) {
+            if (bulkSize < 1) {
+                throw new IllegalArgumentException("'bulkSize' must be greater than 0.");
+            }
+            this.bulkSize = bulkSize;
+            return this;
+        }
+
+        public Builder keyDistribution(final KeyDistribution keyDistribution) {
+            if (keyDistribution == null) {
+                throw new IllegalArgumentException("'keyDistribution' cannot be null.");
+            }
+            this.keyDistribution = keyDistribution;
+            return this;
+        }
+
+        /**
+         * The proportion of the operations of a kind, relative to the other
+         * operations (the proportions needn't add up to 1).
+         *
+         * @param operation The kind of operation.
+         * @param proportion The proportion, {@code 0} for none.
+         * @return This builder.
+         */
+        public Builder proportion(final Operation operation, final double proportion) {
+            if (proportion < 0) {
+                throw new IllegalArgumentException("'proportion' cannot be negative.");
+            }
+            proportions.put(operation, proportion);
+            return this;
+        }
+
+        public Workload build() {
+            return new Workload(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache of the addresses a host name resolves to.
+ *
+ * <p>Addresses are resolved when first needed and are then refreshed in the
+ * background once they're older than the TTL, the cached addresses continue to
+ * be used while the refresh is pending. If a refresh fails the last addresses
+ * that resolved are kept. The pooled connections to addresses that are no
+ * longer resolved are retired.
+ *
+ * <p>The addresses of the family the JVM prefers ({@code
+ * java.net.preferIPv6Addresses}) are listed first. An address that failed to
+ * connect is skipped for a short while, unless every address has failed, so
+ * (e.g.) the IPv6 addresses of a host used from an IPv4-only network aren't
+ * chosen again and again.
+ */
+@Slf4j
+final class AddressResolver {
+
+    /**
+     * Resolves a host name to its addresses.
+     */
+    interface NameService {
+
+        /**
+         * Returns the addresses of the {@code host}.
+         *
+         * @param host The host name to resolve.
+         * @return The addresses, at least one.
+         * @throws UnknownHostException If the host name could not be resolved.
+         */
+        InetAddress[] lookup(String host) throws UnknownHostException;
+
+    }
+
+    /** The JVM's name service. */
+    static final NameService SYSTEM_NAME_SERVICE = new NameService() {
+        @Override
+        public InetAddress[] lookup(final String host) throws UnknownHostException {
+            return InetAddress.getAllByName(host);
+        }
+    };
+
+    /** The time (in nanoseconds) an address is skipped after it failed to connect. */
+    private static final long FAILURE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /** Whether the JVM prefers IPv6 addresses to IPv4 addresses. */
+    private static final boolean PREFER_IPV6 = Boolean.getBoolean("java.net.preferIPv6Addresses");
+
+    /** The host name to resolve. */
+    private final String host;
+    /** The port to connect to. */
+    private final int port;
+    /** The time (in milliseconds) resolved addresses are used before a refresh. */
+    private final long ttlMillis;
+    /** How to choose between the resolved addresses. */
+    private final AddressSelection selection;
+    /** The pool to find the load on each address with, and retire addresses from. */
+    private final ConnectionPool connectionPool;
+    /** The name service to resolve the host with. */
+    private final NameService nameService;
+    /**
+     * Held while the host is first resolved, a lock rather than a monitor so
+     * that virtual threads waiting on the lookup don't pin their carrier.
+     */
+    private final Lock lookupLock;
+    /** Whether a refresh is in progress. */
+    private final AtomicBoolean refreshing;
+    /** The position of the next address to use with round-robin. */
+    private final AtomicInteger next;
+    /** The time (from {@code System.nanoTime()}) until each failed address is skipped. */
+    private final ConcurrentMap<SocketAddress, Long> failedUntil;
+    /** The resolved addresses, or {@code null} if not resolved yet. */
+    private volatile InetSocketAddress[] addresses;
+    /** When (in milliseconds) the resolved addresses should be refreshed. */
+    private volatile long refreshAt;
+
+    AddressResolver(
+            final String host,
+            final int port,
+            final long ttlMillis,
+            final AddressSelection selection,
+            final ConnectionPool connectionPool,
+            final NameService nameService) {
+        assert (host != null);
+        assert (ttlMillis >= 0);
+        assert (selection != null);
+        assert (connectionPool != null);
+        assert (nameService != null);
+
+        this.host = host;
+        this.port = port;
+        this.ttlMillis = ttlMillis;
+        this.selection = selection;
+        this.connectionPool = connectionPool;
+        this.nameService = nameService;
+        this.lookupLock = new ReentrantLock();
+        this.refreshing = new AtomicBoolean(false);
+        this.next = new AtomicInteger(0);
+        this.failedUntil = new ConcurrentHashMap<SocketAddress, Long>();
+    }
+
+    /**
+     * Returns an address for the host, the host name is only resolved on the
+     * calling thread if it has never been resolved before.
+     *
+     * @return An address for the host.
+     * @throws UnknownHostException If the host name could not be resolved.
+     */
+    InetSocketAddress resolve() throws UnknownHostException {
+        InetSocketAddress[] addrs = addresses;
+        if (addrs == null) {
+            lookupLock.lock();
+            try {
+                addrs = addresses;
+                if (addrs == null) {
+                    addrs = lookup();
+                    addresses = addrs;
+                    refreshAt = System.currentTimeMillis() + ttlMillis;
+                }
+            } finally {
+                lookupLock.unlock();
+            }
+        } else if (System.currentTimeMillis() >= refreshAt && refreshing.compareAndSet(false, true)) {
+            RefreshExecutorHolder.EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refresh();
+                }
+            });
+        }
+
+        if (addrs.length == 1) {
+            return addrs[0];
+        }
+        final long now = System.nanoTime();
+        if (selection == AddressSelection.LEAST_LOADED) {
+            return leastLoaded(addrs, now);
+        }
+        return roundRobin(addrs, now);
+    }
+
+    /**
+     * Skip the {@code address} for a while after a connect to it failed.
+     *
+     * @param address The address that failed to connect.
+     */
+    void connectFailed(final SocketAddress address) {
+        assert (address != null);
+
+        if (failedUntil.put(address, System.nanoTime() + FAILURE_BACKOFF_NANOS) == null) {
+            log.debug("Failed to connect to {}, skipping it for {}ms.", address,
+                    TimeUnit.NANOSECONDS.toMillis(FAILURE_BACKOFF_NANOS));
+        }
+    }
+
+    /**
+     * Returns the number of addresses the host resolves to, the number of
+     * addresses a request can be sent to.
+     *
+     * @return The number of addresses, {@code 0} if not resolved yet.
+     */
+    int size() {
+        final InetSocketAddress[] addrs = addresses;
+        return (addrs == null) ? 0 : addrs.length;
+    }
+
+    private void refresh() {
+        try {
+            final InetSocketAddress[] addrs = lookup();
+            addresses = addrs;
+            // the connections to addresses the host no longer resolves to
+            // are closed, rather than kept open (and checked) indefinitely
+            connectionPool.retainAll(Arrays.asList(addrs));
+            failedUntil.keySet().retainAll(Arrays.asList(addrs));
+        } catch (final UnknownHostException e) {
+            log.warn("Failed to resolve '{}', using the previous addresses.", host, e);
+        } finally {
+            refreshAt = System.currentTimeMillis() + ttlMillis;
+            refreshing.set(false);
+        }
+    }
+
+    private InetSocketAddress roundRobin(final InetSocketAddress[] addrs, final long now) {
+        final int offset = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < addrs.length; i++) {
+            final InetSocketAddress addr = addrs[(offset + i) % addrs.length];
+            if (!hasFailed(addr, now)) {
+                return addr;
+            }
+        }
+        // every address has failed, try them in turn anyway
+        return addrs[offset % addrs.length];
+    }
+
+    private InetSocketAddress leastLoaded(final InetSocketAddress[] addrs, final long now) {
+        // start from a different address each time to spread out ties
+        final int offset = next.getAndIncrement() & Integer.MAX_VALUE;
+        InetSocketAddress least = null;
+        int leastLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < addrs.length; i++) {
+            final InetSocketAddress addr = addrs[(offset + i) % addrs.length];
+            // an address that fails to connect has no load, it's skipped
+            // rather than chosen for every request
+            if (hasFailed(addr, now)) {
+                continue;
+            }
+            final int load = connectionPool.load(addr);
+            if (load < leastLoad) {
+                least = addr;
+                leastLoad = load;
+            }
+        }
+        // every address has failed, try them in turn anyway
+        return (least == null) ? addrs[offset % addrs.length] : least;
+    }
+
+    private boolean hasFailed(final SocketAddress address, final long now) {
+        if (failedUntil.isEmpty()) {
+            return false;
+        }
+        final Long until = failedUntil.get(address);
+        if (until == null) {
+            return false;
+        }
+        if (now - until < 0) {
+            return true;
+        }
+        failedUntil.remove(address, until);
+        return false;
+    }
+
+    private InetSocketAddress[] lookup() throws UnknownHostException {
+        final InetAddress[] resolved = preferredFirst(nameService.lookup(host), PREFER_IPV6);
+        final InetSocketAddress[] addrs = new InetSocketAddress[resolved.length];
+        for (int i = 0; i < resolved.length; i++) {
+            addrs[i] = new InetSocketAddress(resolved[i], port);
+        }
+        return addrs;
+    }
+
+    /**
+     * Returns the addresses of the preferred family first, otherwise in the
+     * order they were resolved.
+     *
+     * @param resolved The addresses to order.
+     * @param preferIPv6 Whether IPv6 addresses are preferred.
+     * @return The ordered addresses.
+     */
+    static InetAddress[] preferredFirst(final InetAddress[] resolved, final boolean preferIPv6) {
+        final InetAddress[] ordered = new InetAddress[resolved.length];
+        int i = 0;
+        for (final InetAddress addr : resolved) {
+            if ((addr instanceof Inet6Address) == preferIPv6) {
+                ordered[i++] = addr;
+            }
+        }
+        for (final InetAddress addr : resolved) {
+            if ((addr instanceof Inet6Address) != preferIPv6) {
+                ordered[i++] = addr;
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Lazily holds the executor shared by all clients to refresh addresses.
+     */
+    private static final class RefreshExecutorHolder {
+
+        private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "OrchestrateClientResolver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * The behaviour of a {@code Client} when a request is sent while the maximum
+ * number of requests are already in-flight.
+ *
+ * @see OrchestrateClient.Builder#maxInFlightRequests(int)
+ * @see OrchestrateClient.Builder#backpressureMode(BackpressureMode)
+ */
+public enum BackpressureMode {
+    /** Queue the request (in FIFO order) until an in-flight request completes. */
+    QUEUE,
+    /** Fail the request with a {@link TooManyInFlightRequestsException}. */
+    FAIL_FAST,
+    /**
+     * Block the sending thread until an in-flight request completes. Requests
+     * sent from a {@link ResponseListener} must not block, so this mode should
+     * not be used when listeners send further requests.
+     */
+    BLOCK
+}
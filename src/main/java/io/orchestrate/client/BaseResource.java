@@ -15,19 +15,21 @@
  */
 package io.orchestrate.client;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.Method;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.utils.BufferInputStream;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.Charset;
 
 /**
  * The base resource for features in the Orchestrate API.
@@ -40,7 +42,6 @@ abstract class BaseResource {
     protected final ObjectMapper mapper;
 
     protected final JacksonMapper jacksonMapper;
-    private static final Charset UTF8 = Charset.forName("UTF-8");
 
     BaseResource(final OrchestrateClient client, final JacksonMapper mapper) {
         assert (client != null);
@@ -51,14 +52,8 @@ abstract class BaseResource {
         this.mapper = mapper.getMapper();
     }
 
-    protected byte[] toJsonBytes(Object value) {
-        try {
-            return (value instanceof String)
-                    ? ((String) value).getBytes(UTF8)
-                    : mapper.writeValueAsBytes(value);
-        } catch (final Exception e) {
-            throw new RuntimeException(e); // FIXME
-        }
+    protected Buffer toJsonBuffer(Object... values) {
+        return client.toJsonBuffer(jacksonMapper, values);
     }
 
     protected JsonNode toJsonNodeOrNull(HttpContent response) throws IOException {
@@ -75,36 +70,56 @@ abstract class BaseResource {
     }
 
     protected <T> KvObject<T> toKvObject(JsonNode result, Class<T> clazz) throws IOException {
-        return ResponseConverterUtil.wrapperJsonToKvObject(mapper, result, clazz);
+        return ResponseConverterUtil.wrapperJsonToKvObject(jacksonMapper, result, clazz);
+    }
+
+    protected <T> ResultsPageReader<T, KvObject<T>> readKvObjects(HttpContent response, JavaType type)
+            throws IOException {
+        return new ResultsPageReader<T, KvObject<T>>(jacksonMapper, type, ItemKind.ITEM, client.isLazyValues()) {
+            @Override
+            KvObject<T> toResult(final KvObject<T> kvObject, final double score, final Double distance) {
+                return kvObject;
+            }
+        }.read(response);
     }
 
     protected <T> KvObject<T> toKvObject(HttpContent response, String collection, String key,
-                                         Class<T> clazz) throws IOException {
-        final String rawValue = response.getContent().toStringContent();
-        final String ref = response.getHttpHeader().getHeader(Header.ETag)
-                .replace("\"", "")
-                .replaceFirst("-gzip$", "");
+                                         JavaType type) throws IOException {
+        final String ref = ResponseConverterUtil.parseRef(response.getHttpHeader().getHeader(Header.ETag));
+        final Buffer content = response.getContent();
+        if (!content.hasRemaining()) {
+            return new KvObject<T>(collection, key, ref, null, jacksonMapper, null, (JsonNode) null, "");
+        }
 
-        return ResponseConverterUtil.jsonToKvObject(mapper, rawValue, clazz, collection, key, ref);
+        // bind straight from the bytes, the raw JSON string (or a tree) is
+        // only built if it's asked for
+        final byte[] body = JsonSlice.toByteArray(content);
+        final JsonSlice valueSlice = new JsonSlice(body, 0, body.length);
+        final T value = valueSlice.bind(jacksonMapper, type);
+
+        return new KvObject<T>(collection, key, ref, null, jacksonMapper, value, type, valueSlice);
     }
 
     protected <T> OrchestrateRequest<T> parseLink(String name, JsonNode jsonNode, ResponseConverter<T> clazz) {
-        final OrchestrateRequest<T> next;
         if (jsonNode.has(name)) {
-            final String page = jsonNode.get(name).asText();
-            final URI url = URI.create(page);
-            final HttpContent packet = HttpRequestPacket.builder()
-                    .method(Method.GET)
-                    .uri(url.getPath())
-                    .query(url.getRawQuery())
-                    .build()
-                    .httpContentBuilder()
-                    .build();
-            next = new OrchestrateRequest<T>(client, packet, clazz, false);
-        } else {
-            next = null;
+            return parseLink(jsonNode.get(name).asText(), clazz);
+        }
+        return null;
+    }
+
+    protected <T> OrchestrateRequest<T> parseLink(@Nullable String page, ResponseConverter<T> clazz) {
+        if (page == null) {
+            return null;
         }
-        return next;
+        final URI url = URI.create(page);
+        final HttpContent packet = HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri(url.getPath())
+                .query(url.getRawQuery())
+                .build()
+                .httpContentBuilder()
+                .build();
+        return new OrchestrateRequest<T>(client, packet, clazz, false);
     }
 
 
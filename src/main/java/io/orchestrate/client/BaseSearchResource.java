@@ -15,9 +15,9 @@
  */
 package io.orchestrate.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
@@ -124,6 +124,50 @@ public abstract class BaseSearchResource extends BaseResource {
     public <T> OrchestrateRequest<SearchResults<T>> get(
             final Class<T> clazz, String luceneQuery) {
         checkNotNull(clazz, "clazz");
+
+        return get(jacksonMapper.constructType(clazz), luceneQuery);
+    }
+
+    /**
+     * Retrieve data from the Orchestrate service, the values are deserialized
+     * to a generic type (e.g. a {@code List} or {@code Map} of domain objects).
+     *
+     * <p>Usage:</p>
+     * <pre>
+     * {@code
+     * String luceneQuery = "*";
+     * SearchResults<Map<String, DomainObject>> results1 =
+     *         client.searchCollection("someCollection")
+     *               .limit(10)
+     *               .get(new TypeReference<Map<String, DomainObject>>() {}, luceneQuery)
+     *               .get();
+     * }
+     * </pre>
+     *
+     * @param typeRef Type information for marshalling objects at runtime.
+     * @param luceneQuery The lucene search query.
+     * @param <T> The type to deserialize the results to.
+     * @return The prepared search request.
+     */
+    public <T> OrchestrateRequest<SearchResults<T>> get(
+            final TypeReference<T> typeRef, final String luceneQuery) {
+        checkNotNull(typeRef, "typeRef");
+
+        return get(jacksonMapper.constructType(typeRef), luceneQuery);
+    }
+
+    /**
+     * Retrieve data from the Orchestrate service, the values are deserialized
+     * to the Jackson type (e.g. one built with the mapper's {@code TypeFactory}).
+     *
+     * @param type Type information for marshalling objects at runtime.
+     * @param luceneQuery The lucene search query.
+     * @param <T> The type to deserialize the results to.
+     * @return The prepared search request.
+     */
+    public <T> OrchestrateRequest<SearchResults<T>> get(
+            final JavaType type, String luceneQuery) {
+        checkNotNull(type, "type");
         checkNotNullOrEmpty(luceneQuery, "luceneQuery");
 
         // Allow subclasses to modify the lucene query
@@ -131,24 +175,24 @@ public abstract class BaseSearchResource extends BaseResource {
 
         StringBuilder buff = new StringBuilder("query=");
         if (this.kinds != null) {
-            buff.append(client.encode(String.format(QUERY_WITH_KIND, this.kinds, luceneQuery)));
+            client.encode(buff, String.format(QUERY_WITH_KIND, this.kinds, luceneQuery));
         } else {
-            buff.append(client.encode(luceneQuery));
+            client.encode(buff, luceneQuery);
         }
         buff.append("&limit=").append(limit)
             .append("&offset=").append(offset)
             .append("&values=").append(Boolean.toString(withValues));
         if (sortFields != null) {
-            buff.append("&sort=").append(client.encode(sortFields));
+            client.encode(buff.append("&sort="), sortFields);
         }
         if (withFields != null) {
-            buff.append("&with_fields=").append(client.encode(withFields));
+            client.encode(buff.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            buff.append("&without_fields=").append(client.encode(withoutFields));
+            client.encode(buff.append("&without_fields="), withoutFields);
         }
         if (aggregateFields != null) {
-            buff.append("&aggregate=").append(client.encode(aggregateFields));
+            client.encode(buff.append("&aggregate="), aggregateFields);
         }
         final String uri = makeTargetUri();
 
@@ -166,38 +210,18 @@ public abstract class BaseSearchResource extends BaseResource {
                 final int status = ((HttpResponsePacket) response.getHttpHeader()).getStatus();
                 assert (status == 200);
 
-                final JsonNode jsonNode = toJsonNode(response);
-
-                final int totalCount = jsonNode.get("total_count").asInt();
-                final int count = jsonNode.get("count").asInt();
-                final List<Result<T>> results = new ArrayList<Result<T>>(count);
-
-                List<AggregateResult> aggregates = Collections.emptyList();
-                if (jsonNode.has("aggregates")) {
-                    aggregates = AggregateResult.from((ArrayNode) jsonNode.get("aggregates"));
-                }
-
-                final Iterator<JsonNode> iter = jsonNode.get("results").elements();
-                while (iter.hasNext()) {
-                    final JsonNode result = iter.next();
-
-                    // parse result structure (e.g.):
-                    // {"path":{...},"value":{},"score":1.0}
-                    final double score = (result.get("score") != null)
-                            ? result.get("score").asDouble(0)
-                            : 0.0;
-                    final Double distance = (result.get("distance") != null)
-                            ? result.get("distance").asDouble(0)
-                            : null;
-                    final KvObject<T> kvObject = toKvObject(result, clazz);
-
-                    results.add(new Result<T>(kvObject, score, distance));
-                }
+                final ResultsPageReader<T, Result<T>> page =
+                        new ResultsPageReader<T, Result<T>>(jacksonMapper, type, ItemKind.ITEM, client.isLazyValues()) {
+                            @Override
+                            Result<T> toResult(final KvObject<T> kvObject, final double score, final Double distance) {
+                                return new Result<T>(kvObject, score, distance);
+                            }
+                        }.read(response);
 
-                final OrchestrateRequest<SearchResults<T>> next = parseLink("next", jsonNode, this);
-                final OrchestrateRequest<SearchResults<T>> prev = parseLink("prev", jsonNode, this);
+                final OrchestrateRequest<SearchResults<T>> next = parseLink(page.getNext(), this);
+                final OrchestrateRequest<SearchResults<T>> prev = parseLink(page.getPrev(), this);
 
-                return new SearchResults<T>(results, totalCount, aggregates, next, prev);
+                return new SearchResults<T>(page.getResults(), page.getTotalCount(), page.getAggregates(), next, prev);
             }
         });
     }
@@ -1,12 +1,10 @@
 package io.orchestrate.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.*;
-import org.glassfish.grizzly.memory.ByteBufferWrapper;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -51,10 +49,7 @@ public class BulkResource extends BaseResource {
      */
     public OrchestrateRequest<BulkResponse> done() throws IOException {
         isDone = true;
-        ByteArrayOutputStream requestStream = new ByteArrayOutputStream();
-        for (BulkOperation bulkOperation : this.bulkOperations) {
-            requestStream.write(toJsonBytes(bulkOperation));
-        }
+        final Buffer content = toJsonBuffer(bulkOperations.toArray());
 
         final String uri = client.uri();
 
@@ -63,11 +58,11 @@ public class BulkResource extends BaseResource {
                 .contentType("application/orchestrate-export-stream+json")
                 .uri(uri);
 
-        httpHeaderBuilder.contentLength(requestStream.size());
+        httpHeaderBuilder.contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(requestStream.toByteArray())))
+                .content(content)
                 .build();
 
         return new OrchestrateRequest<BulkResponse>(client, packet, new ResponseConverter<BulkResponse>() {
@@ -115,7 +110,7 @@ public class BulkResource extends BaseResource {
     private BulkFailureResult createBulkErrorResult(JsonNode errorNode) throws IOException {
         return new BulkFailureResult(
                 errorNode.get("operation_index").asInt(),
-                ResponseConverterUtil.jsonToDomainObject(mapper, errorNode.get("error"), BulkError.class));
+                ResponseConverterUtil.jsonToDomainObject(jacksonMapper, errorNode.get("error"), BulkError.class));
     }
 
     private BulkSuccessResult createBulkSuccessResult(JsonNode successNode) throws IOException {
@@ -138,11 +133,11 @@ public class BulkResource extends BaseResource {
         if (kind == ItemKind.ITEM) {
             bulkSuccessResult = new BulkSuccessResult<ItemPath>(
                     operation_index,
-                    ResponseConverterUtil.jsonToDomainObject(mapper, pathNode, ItemPath.class));
+                    ResponseConverterUtil.jsonToDomainObject(jacksonMapper, pathNode, ItemPath.class));
         } else if (kind == ItemKind.EVENT) {
             bulkSuccessResult = new BulkSuccessResult<EventPath>(
                     operation_index,
-                    ResponseConverterUtil.jsonToDomainObject(mapper, pathNode, EventPath.class));
+                    ResponseConverterUtil.jsonToDomainObject(jacksonMapper, pathNode, EventPath.class));
         } else {
             throw new IllegalStateException(String.format("Unable to handle bulk result with kind: '%s'", kind));
         }
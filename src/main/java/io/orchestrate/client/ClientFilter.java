@@ -17,7 +17,7 @@ package io.orchestrate.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.extern.slf4j.Slf4j;
+import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
@@ -25,12 +25,18 @@ import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.http.*;
 import org.glassfish.grizzly.http.util.Base64Utils;
 import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HeaderValue;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.utils.NullaryFunction;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static org.glassfish.grizzly.attributes.AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER;
 
@@ -38,23 +44,40 @@ import static org.glassfish.grizzly.attributes.AttributeBuilder.DEFAULT_ATTRIBUT
  * A filter to handle HTTP operations and apply the Orchestrate.io
  * authentication header.
  */
-@Slf4j
 final class ClientFilter extends BaseFilter {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    /** The name of the filter attribute for a HTTP response. */
-    public static final String OIO_RESPONSE_FUTURE_ATTR = "httpResp";
+    /** The name of the filter attribute for the pending HTTP responses. */
+    public static final String OIO_RESPONSE_QUEUE_ATTR = "httpRespQueue";
     /** The value for the user agent header. */
     private static final String BASE_USER_AGENT = buildBaseUserAgent();
+    /** The header value to accept gzip encoded responses. */
+    private static final HeaderValue ACCEPT_ENCODING_VALUE =
+            HeaderValue.newHeaderValue("gzip").prepare();
+
+    /** The attribute for the pending HTTP requests, in the order they were written. */
+    private static final Attribute<Queue<OrchestrateRequest<?>>> HTTP_RESPONSE_QUEUE_ATTR =
+            DEFAULT_ATTRIBUTE_BUILDER.createAttribute(OIO_RESPONSE_QUEUE_ATTR,
+                    new NullaryFunction<Queue<OrchestrateRequest<?>>>() {
+                        @Override
+                        public Queue<OrchestrateRequest<?>> evaluate() {
+                            return new ConcurrentLinkedQueue<OrchestrateRequest<?>>();
+                        }
+                    });
+
+    /**
+     * The attribute marking a connection whose pending requests have been
+     * failed or sent again, no further requests may be written to it.
+     */
+    private static final Attribute<Boolean> CONNECTION_CLOSING_ATTR =
+            DEFAULT_ATTRIBUTE_BUILDER.createAttribute("oioConnClosing");
 
-    /** The attribute for the HTTP response. */
-    private final Attribute<SafeFutureImpl<HttpContent>> httpResponseAttr;
     /** The header value to authenticate with the Orchestrate.io service */
-    private final String authHeaderValue;
+    private final HeaderValue authHeaderValue;
     /** The header value to indicate the client and version queried with. */
-    private final String userAgentValue;
+    private final HeaderValue userAgentValue;
     /** The hostname for the Orchestrate.io service. */
-    private final String host;
+    private final HeaderValue host;
 
     ClientFilter(
             final String apiKey,
@@ -63,38 +86,131 @@ final class ClientFilter extends BaseFilter {
         assert (apiKey != null);
         assert (host != null);
 
-        this.httpResponseAttr =
-                DEFAULT_ATTRIBUTE_BUILDER.createAttribute(OIO_RESPONSE_FUTURE_ATTR);
-        this.authHeaderValue =
-                "Basic ".concat(Base64Utils.encodeToString(apiKey.getBytes(), true));
-        this.userAgentValue = (userAgent == null)
+        this.authHeaderValue = HeaderValue.newHeaderValue(
+                "Basic ".concat(Base64Utils.encodeToString(apiKey.getBytes(), true))).prepare();
+        this.userAgentValue = HeaderValue.newHeaderValue((userAgent == null)
                 ? BASE_USER_AGENT
-                : String.format("%s %s", BASE_USER_AGENT, userAgent);
-        this.host = host.getHost();
+                : String.format("%s %s", BASE_USER_AGENT, userAgent)).prepare();
+        this.host = HeaderValue.newHeaderValue(host.getHost()).prepare();
+    }
+
+    /**
+     * Returns the requests awaiting a response on the {@code connection}, in
+     * the order they were written.
+     *
+     * <p>Requests must be written to the connection while holding the lock on
+     * the returned queue so that the order of the responses matches the order
+     * of the requests in the queue.
+     *
+     * @param connection The connection to get the pending requests for.
+     * @return The pending requests for the connection.
+     */
+    static Queue<OrchestrateRequest<?>> responseQueue(final Connection connection) {
+        final Queue<OrchestrateRequest<?>> pending = HTTP_RESPONSE_QUEUE_ATTR.peek(connection);
+        if (pending != null) {
+            return pending;
+        }
+        // the initializer of an attribute isn't atomic, requests pipelined on
+        // a new connection must not each create (and lock) a different queue
+        synchronized (connection) {
+            return HTTP_RESPONSE_QUEUE_ATTR.get(connection);
+        }
+    }
+
+    /**
+     * Returns the oldest request awaiting a response on the {@code
+     * connection}, without creating the queue of pending requests.
+     *
+     * @param connection The connection to get the pending request for.
+     * @return The pending request, or {@code null} if there is none.
+     */
+    @Nullable
+    static OrchestrateRequest<?> pendingRequest(final Connection connection) {
+        final Queue<OrchestrateRequest<?>> pending = HTTP_RESPONSE_QUEUE_ATTR.peek(connection);
+        return (pending == null) ? null : pending.peek();
+    }
+
+    /**
+     * Returns the number of requests awaiting a response on the {@code
+     * connection}, without creating the queue of pending requests.
+     *
+     * @param connection The connection to count the pending requests for.
+     * @return The number of pending requests.
+     */
+    static int pendingCount(final Connection connection) {
+        final Queue<OrchestrateRequest<?>> pending = HTTP_RESPONSE_QUEUE_ATTR.peek(connection);
+        return (pending == null) ? 0 : pending.size();
+    }
+
+    /**
+     * Returns whether the requests pending on the {@code connection} have
+     * been drained, because it's closed or closing. Must be called with the
+     * lock held on the connection's response queue.
+     *
+     * @param connection The connection to check.
+     * @return {@code true} if no more requests may be written to the connection.
+     */
+    static boolean isClosing(final Connection connection) {
+        return CONNECTION_CLOSING_ATTR.isSet(connection);
     }
 
     @Override
     public void exceptionOccurred(final FilterChainContext ctx, final Throwable error) {
-        final SafeFutureImpl<HttpContent> future =
-                httpResponseAttr.get(ctx.getConnection().getAttributes());
-        future.failure(error);
+        final Connection connection = ctx.getConnection();
+        failPending(connection, error);
+        // the state of the connection is unknown, don't return it to the pool
+        connection.closeSilently();
         super.exceptionOccurred(ctx, error);
     }
 
+    @Override
+    public NextAction handleClose(final FilterChainContext ctx) throws IOException {
+        failPending(ctx.getConnection(),
+                new IOException("Connection closed before the response was received."));
+        return ctx.getInvokeAction();
+    }
+
     @Override
     public NextAction handleRead(final FilterChainContext ctx) throws IOException {
-        final SafeFutureImpl<HttpContent> future =
-                httpResponseAttr.get(ctx.getConnection().getAttributes());
-        try {
-            final HttpContent content = ctx.getMessage();
-            if (!content.isLast()) {
-                return ctx.getStopAction(content);
+        final HttpContent content = ctx.getMessage();
+        final Connection connection = ctx.getConnection();
+        if (!content.isLast()) {
+            final OrchestrateRequest<?> request = pendingRequest(connection);
+            if (request != null) {
+                request.getTimings().endedOnce(RequestPhase.WAIT);
             }
+            return ctx.getStopAction(content);
+        }
+
+        final OrchestrateRequest<?> request = responseQueue(connection).poll();
+        if (request == null) {
+            // a response without a request, nothing sensible can be done
+            connection.closeSilently();
+            return ctx.getStopAction();
+        }
+        final RequestTimings timings = request.getTimings();
+        timings.endedOnce(RequestPhase.WAIT);
+        timings.ended(RequestPhase.RECEIVE);
 
+        final SafeFutureImpl<HttpContent> future = request.getRawResponseFuture();
+
+        try {
             final HttpHeader header = content.getHttpHeader();
             final int status = ((HttpResponsePacket) header).getStatus();
 
-            ClientFilter.log.info("Received content: {}", header);
+            // the response has been read in full, the connection can be reused
+            if (isKeepAlive(header)) {
+                ConnectionPool.release(connection, true);
+            } else {
+                // pipelined requests written after a "Connection: close"
+                // response are never processed by the server, the connection
+                // is removed from the pool before they're sent again
+                final List<OrchestrateRequest<?>> unprocessed = drain(connection);
+                ConnectionPool.release(connection, false);
+                resend(unprocessed,
+                        new IOException("Connection closed before the response was received."));
+            }
+
             if (status == 200 || status == 201 || status == 204 || status == 404) {
                 future.result(content);
             } else {
@@ -109,6 +225,52 @@ final class ClientFilter extends BaseFilter {
         return ctx.getStopAction();
     }
 
+    private static void failPending(final Connection connection, final Throwable error) {
+        // the server may or may not have processed the requests, only
+        // idempotent requests are safe to send again
+        final List<OrchestrateRequest<?>> requests = drain(connection);
+        // removed from the pool first, so the requests can't be sent on it again
+        ConnectionPool.release(connection, false);
+        if (requests.isEmpty()) {
+            return;
+        }
+        // the first request may have caused the failure so it's retried once,
+        // the requests pipelined behind it are sent again on a new connection
+        final OrchestrateRequest<?> first = requests.remove(0);
+        if (!first.retry()) {
+            first.getRawResponseFuture().failure(error);
+        }
+        resend(requests, error);
+    }
+
+    private static void resend(final List<OrchestrateRequest<?>> requests, final Throwable error) {
+        for (final OrchestrateRequest<?> request : requests) {
+            if (!request.resend()) {
+                request.getRawResponseFuture().failure(error);
+            }
+        }
+    }
+
+    private static List<OrchestrateRequest<?>> drain(final Connection connection) {
+        final Queue<OrchestrateRequest<?>> pending = responseQueue(connection);
+        // hold the lock so no request is written to the connection meanwhile,
+        // and none is written once it's drained
+        synchronized (pending) {
+            CONNECTION_CLOSING_ATTR.set(connection, Boolean.TRUE);
+            final List<OrchestrateRequest<?>> drained = new ArrayList<OrchestrateRequest<?>>(pending);
+            pending.clear();
+            return drained;
+        }
+    }
+
+    private static boolean isKeepAlive(final HttpHeader header) {
+        final String connection = header.getHeader(Header.Connection);
+        if (header.getProtocol() == Protocol.HTTP_1_1) {
+            return !"close".equalsIgnoreCase(connection);
+        }
+        return "keep-alive".equalsIgnoreCase(connection);
+    }
+
     private Exception toException(int status, String reqId, String json) {
         final JsonNode errorJsonNode = parseErrorJsonNode(json);
 
@@ -163,16 +325,16 @@ final class ClientFilter extends BaseFilter {
         final HttpPacket request = (HttpPacket) message;
         final HttpRequestPacket httpHeader = (HttpRequestPacket) request.getHttpHeader();
 
-        // adjust the HTTP request to include standard headers
+        // adjust the HTTP request to include standard headers, the values
+        // are prepared so they're not encoded again for each request
         httpHeader.setProtocol(Protocol.HTTP_1_1);
         httpHeader.setHeader(Header.Host, host);
         httpHeader.setHeader(Header.UserAgent, userAgentValue);
-        httpHeader.setHeader(Header.AcceptEncoding, "gzip");
+        httpHeader.setHeader(Header.AcceptEncoding, ACCEPT_ENCODING_VALUE);
 
         // add basic auth information
-        httpHeader.addHeader(Header.Authorization, authHeaderValue);
+        httpHeader.setHeader(Header.Authorization, authHeaderValue);
 
-        ClientFilter.log.info("Sending request: {}", httpHeader);
         ctx.write(request);
 
         return ctx.getStopAction();
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The performance metrics of a {@code Client}, for each type of operation:
+ * request latencies, status codes, bytes sent and received and requests
+ * in-flight.
+ *
+ * <p>The metrics can also be published over JMX, see {@link
+ * OrchestrateClient.Builder#jmxMetrics(boolean)}. Each type of operation is
+ * registered as {@code io.orchestrate.client:type=ClientMetrics,client=N,operation=TYPE}.</p>
+ *
+ * <pre>
+ * {@code
+ * ClientMetrics metrics = client.getMetrics();
+ * long p99 = metrics.get(OperationType.KV_GET).getLatency(99, TimeUnit.MILLISECONDS);
+ * }
+ * </pre>
+ */
+@Slf4j
+public final class ClientMetrics {
+
+    /** The domain for the JMX names of the metrics. */
+    private static final String JMX_DOMAIN = "io.orchestrate.client";
+    /** The sequence to name clients in JMX. */
+    private static final AtomicInteger CLIENT_IDS = new AtomicInteger();
+
+    /** The metrics for each type of operation. */
+    private final Map<OperationType, OperationMetrics> operations;
+    /** The JMX names registered, empty unless published over JMX. */
+    private final List<ObjectName> registered;
+
+    ClientMetrics() {
+        this.operations = new EnumMap<OperationType, OperationMetrics>(OperationType.class);
+        for (final OperationType type : OperationType.values()) {
+            operations.put(type, new OperationMetrics(type));
+        }
+        this.registered = new ArrayList<ObjectName>(operations.size());
+    }
+
+    /**
+     * Returns the metrics for a type of operation.
+     *
+     * @param type The type of operation.
+     * @return The metrics for the operation.
+     */
+    public OperationMetrics get(final @NonNull OperationType type) {
+        return operations.get(type);
+    }
+
+    /**
+     * Publish the metrics over JMX with the platform MBean server. Failures
+     * to register are logged, metrics are still recorded.
+     */
+    synchronized void registerMBeans() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final int clientId = CLIENT_IDS.incrementAndGet();
+        for (final OperationMetrics metrics : operations.values()) {
+            try {
+                final ObjectName name = new ObjectName(String.format(
+                        "%s:type=ClientMetrics,client=%d,operation=%s",
+                        JMX_DOMAIN, clientId, metrics.getType()));
+                server.registerMBean(metrics, name);
+                registered.add(name);
+            } catch (final JMException e) {
+                log.warn("Failed to register the metrics for {} with JMX.", metrics.getType(), e);
+            }
+        }
+    }
+
+    /**
+     * Remove the metrics published over JMX.
+     */
+    synchronized void unregisterMBeans() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (final JMException e) {
+                log.debug("Failed to unregister '{}' from JMX.", name, e);
+            }
+        }
+        registered.clear();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.ssl.SSLContextConfigurator;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * An {@code SSLEngineConfigurator} that creates client SSL engines for a known
+ * peer, so that TLS sessions cached by the SSL context are resumed when a new
+ * connection is opened to the same host.
+ *
+ * <p>The SSL context is shared by all clients in the JVM and is created the
+ * first time it's needed.
+ */
+final class ClientSSLEngineConfigurator extends SSLEngineConfigurator {
+
+    /** The maximum number of TLS sessions to cache for resumption. */
+    static final int SESSION_CACHE_SIZE = 1024;
+    /** The time (in seconds) a cached TLS session can be resumed for. */
+    static final int SESSION_TIMEOUT = 3600;
+
+    /** The host name of the peer. */
+    private final String peerHost;
+    /** The port of the peer. */
+    private final int peerPort;
+
+    ClientSSLEngineConfigurator(final String peerHost, final int peerPort) {
+        super(SharedContextHolder.SSL_CONTEXT, true, false, false);
+        assert (peerHost != null);
+
+        this.peerHost = peerHost;
+        this.peerPort = peerPort;
+    }
+
+    private ClientSSLEngineConfigurator(final ClientSSLEngineConfigurator original) {
+        super(original);
+
+        this.peerHost = original.peerHost;
+        this.peerPort = original.peerPort;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SSLEngine createSSLEngine() {
+        // the peer is the key used to look up sessions to resume
+        return configure(getSslContext().createSSLEngine(peerHost, peerPort));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ClientSSLEngineConfigurator copy() {
+        return new ClientSSLEngineConfigurator(this);
+    }
+
+    /**
+     * Lazily holds the SSL context shared by all clients.
+     */
+    private static final class SharedContextHolder {
+
+        private static final SSLContext SSL_CONTEXT = createSSLContext();
+
+        private static SSLContext createSSLContext() {
+            final SSLContext sslContext = new SSLContextConfigurator().createSSLContext();
+            final SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            if (sessionContext != null) {
+                sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+                sessionContext.setSessionTimeout(SESSION_TIMEOUT);
+            }
+            return sslContext;
+        }
+
+    }
+
+}
@@ -17,23 +17,27 @@ package io.orchestrate.client;
 
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
 import org.glassfish.grizzly.GrizzlyFuture;
-import org.glassfish.grizzly.attributes.AttributeHolder;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
 
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Queue;
+
 /**
  * A grizzly adapter handler that writes the HTTP request to the connection.
  */
 final class ConnectionCompletionHandler implements CompletionHandler<Connection> {
 
     /** The OrchestrateRequest object. */
-    private final OrchestrateRequest orchestrateRequest;
+    private final OrchestrateRequest<?> orchestrateRequest;
     /** The HTTP request to write to the connection. */
     private final HttpContent rawRequest;
 
     public ConnectionCompletionHandler(
-            final OrchestrateRequest orchestrateRequest,
+            final OrchestrateRequest<?> orchestrateRequest,
             final HttpContent rawRequest) {
         assert (orchestrateRequest != null);
         assert (rawRequest != null);
@@ -42,6 +46,16 @@ final class ConnectionCompletionHandler implements CompletionHandler<Connection>
         this.rawRequest = rawRequest;
     }
 
+    /**
+     * Returns whether the request no longer needs a connection, because it
+     * completed (e.g. it was cancelled) while waiting for one.
+     *
+     * @return {@code true} if the request has completed.
+     */
+    boolean isDone() {
+        return orchestrateRequest.isDone();
+    }
+
     /** {@inheritDoc} */
     @Override
     public void cancelled() {
@@ -54,17 +68,68 @@ final class ConnectionCompletionHandler implements CompletionHandler<Connection>
         orchestrateRequest.failed(t);
     }
 
+    /**
+     * The connect to the {@code address} failed, the request is sent to
+     * another of the host's addresses if it has any left to try.
+     *
+     * @param address The address that failed to connect.
+     * @param t The cause of the failure.
+     */
+    void connectFailed(final SocketAddress address, final Throwable t) {
+        if (!orchestrateRequest.failover(address)) {
+            failed(t);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
+    @SuppressWarnings("unchecked")
     public void completed(final Connection conn) {
-        final AttributeHolder attrs = conn.getAttributes();
-        attrs.setAttribute(ClientFilter.OIO_RESPONSE_FUTURE_ATTR, orchestrateRequest.getRawResponseFuture());
+        if (orchestrateRequest.isDone()) {
+            // cancelled or timed out while waiting, the connection was never used
+            ConnectionPool.release(conn, true);
+            return;
+        }
+        final RequestTimings timings = orchestrateRequest.getTimings();
+        timings.ended(RequestPhase.CONNECT);
 
-        if(!orchestrateRequest.isCancelled()) {
-            @SuppressWarnings("unchecked")
-            final GrizzlyFuture write = conn.write(rawRequest);
-            orchestrateRequest.setActiveRequest(write);
+        // queue the response future and write under the same lock, so that
+        // pipelined responses are matched to requests in the order written
+        final Queue<OrchestrateRequest<?>> responses = ClientFilter.responseQueue(conn);
+        final GrizzlyFuture write;
+        final boolean expired;
+        synchronized (responses) {
+            // checked under the lock so a request that times out is either
+            // never written, or its connection is closed
+            expired = orchestrateRequest.isDone();
+            if (!ClientFilter.isClosing(conn) && conn.isOpen() && !expired) {
+                responses.add(orchestrateRequest);
+                orchestrateRequest.setConnection(conn);
+                write = conn.write(rawRequest);
+            } else {
+                write = null;
+            }
+        }
+
+        if (expired) {
+            ConnectionPool.release(conn, true);
+            return;
+        }
+        if (write == null) {
+            // the connection was closed (or its pending requests drained)
+            // after it was leased
+            if (!orchestrateRequest.retry()) {
+                failed(new IOException("Connection closed before the request was sent."));
+            }
+            return;
         }
+        orchestrateRequest.setActiveRequest(write);
+        write.addCompletionHandler(new EmptyCompletionHandler<Object>() {
+            @Override
+            public void completed(final Object result) {
+                timings.ended(RequestPhase.WRITE);
+            }
+        });
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,588 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.CloseType;
+import org.glassfish.grizzly.Closeable;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.SocketConnectorHandler;
+import org.glassfish.grizzly.attributes.Attribute;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.glassfish.grizzly.Grizzly.DEFAULT_ATTRIBUTE_BUILDER;
+
+/**
+ * A pool of persistent (HTTP/1.1 keep-alive) connections to the Orchestrate
+ * service.
+ *
+ * <p>Connections are leased for the duration of a single request and returned
+ * to the pool once the response has been read. When every connection to a host
+ * is leased and the pool is at capacity, further leases are queued (in FIFO
+ * order) until a connection is released or evicted.
+ *
+ * <p>If the pipeline depth is greater than {@code 1}, leases that are safe to
+ * pipeline (idempotent requests) may share a connection that already has
+ * requests in-flight, up to the pipeline depth. The responses for these
+ * requests are matched to their requests in the order they were written.
+ */
+@Slf4j
+final class ConnectionPool {
+
+    /** The attribute to track the host pool that owns a connection. */
+    private static final Attribute<HostPool> OIO_HOST_POOL_ATTR =
+            DEFAULT_ATTRIBUTE_BUILDER.createAttribute("oioHostPool");
+    /** The attribute to track when a connection was last returned to the pool. */
+    private static final Attribute<Long> OIO_IDLE_SINCE_ATTR =
+            DEFAULT_ATTRIBUTE_BUILDER.createAttribute("oioIdleSince");
+
+    /** The transport to open new connections with. */
+    private final SocketConnectorHandler connector;
+    /** The number of idle connections to keep open per host. */
+    private final int minConnectionsPerHost;
+    /** The maximum number of connections to open per host. */
+    private final int maxConnectionsPerHost;
+    /** The time (in milliseconds) an idle connection is kept open. */
+    private final long idleTimeoutMillis;
+    /** The maximum number of requests in-flight on a single connection. */
+    private final int pipelineDepth;
+    /** The pools of connections per remote address. */
+    private final ConcurrentMap<SocketAddress, HostPool> hostPools;
+
+    ConnectionPool(
+            final SocketConnectorHandler connector,
+            final int minConnectionsPerHost,
+            final int maxConnectionsPerHost,
+            final long idleTimeoutMillis,
+            final int pipelineDepth) {
+        assert (connector != null);
+        assert (minConnectionsPerHost >= 0);
+        assert (maxConnectionsPerHost > 0);
+        assert (idleTimeoutMillis >= 0);
+        assert (pipelineDepth > 0);
+
+        this.connector = connector;
+        this.minConnectionsPerHost = minConnectionsPerHost;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.pipelineDepth = pipelineDepth;
+        this.hostPools = new ConcurrentHashMap<SocketAddress, HostPool>();
+    }
+
+    /**
+     * Lease a connection to the {@code address}, the {@code handler} is
+     * completed with the connection once one is available.
+     *
+     * @param address The remote address to connect to.
+     * @param handler The handler to notify with the leased connection.
+     * @param pipelinable Whether the request can share a connection with
+     *                    other in-flight requests.
+     */
+    void lease(
+            final SocketAddress address,
+            final ConnectionCompletionHandler handler,
+            final boolean pipelinable) {
+        assert (address != null);
+        assert (handler != null);
+
+        HostPool hostPool = hostPools.get(address);
+        if (hostPool == null) {
+            final HostPool newPool = new HostPool(address);
+            hostPool = hostPools.putIfAbsent(address, newPool);
+            if (hostPool == null) {
+                hostPool = newPool;
+            }
+        }
+        hostPool.lease(handler, pipelinable && pipelineDepth > 1);
+    }
+
+    /**
+     * Returns the number of connections to the {@code address} in use, plus
+     * the number of leases waiting for a connection.
+     *
+     * @param address The remote address to get the load for.
+     * @return The load on the address.
+     */
+    int load(final SocketAddress address) {
+        final HostPool hostPool = hostPools.get(address);
+        return (hostPool == null) ? 0 : hostPool.load();
+    }
+
+    /**
+     * Return a leased connection to the pool it was leased from.
+     *
+     * @param connection The connection to return.
+     * @param keepAlive If {@code false} the connection will be closed instead
+     *                  of being reused.
+     */
+    static void release(final Connection connection, final boolean keepAlive) {
+        assert (connection != null);
+
+        final HostPool hostPool = OIO_HOST_POOL_ATTR.get(connection);
+        if (hostPool == null) {
+            connection.closeSilently();
+            return;
+        }
+        hostPool.release(connection, keepAlive);
+    }
+
+    /**
+     * Close the idle connections that have expired (keeping the minimum open)
+     * and lease the idle connections that have been idle for at least {@code
+     * idleForMillis}, to check they're still usable. The leased connections
+     * must be released as usual.
+     *
+     * @param idleForMillis The time (in milliseconds) a connection must have
+     *                      been idle to be checked.
+     * @return The connections to check.
+     */
+    List<Connection> leaseIdle(final long idleForMillis) {
+        final List<Connection> leased = new ArrayList<Connection>();
+        for (final HostPool hostPool : hostPools.values()) {
+            hostPool.leaseIdle(idleForMillis, leased);
+        }
+        return leased;
+    }
+
+    /**
+     * Retire the pools of connections to addresses other than {@code
+     * addresses}, once the host no longer resolves to them. A lease for a
+     * retired address opens a new pool.
+     *
+     * @param addresses The addresses the host resolves to.
+     */
+    void retainAll(final Collection<? extends SocketAddress> addresses) {
+        assert (addresses != null);
+
+        for (final Map.Entry<SocketAddress, HostPool> entry : hostPools.entrySet()) {
+            if (!addresses.contains(entry.getKey()) && hostPools.remove(entry.getKey(), entry.getValue())) {
+                log.debug("Retired the connections to {}.", entry.getKey());
+                entry.getValue().retire();
+            }
+        }
+    }
+
+    /**
+     * Close all pooled connections and fail any pending leases.
+     */
+    void close() {
+        for (final HostPool hostPool : hostPools.values()) {
+            hostPool.close();
+        }
+        hostPools.clear();
+    }
+
+    /**
+     * A lease waiting for a connection to become available.
+     */
+    private static final class Waiter {
+
+        /** The handler to notify with the leased connection. */
+        final ConnectionCompletionHandler handler;
+        /** Whether the lease can share a connection with other requests. */
+        final boolean pipelinable;
+
+        Waiter(final ConnectionCompletionHandler handler, final boolean pipelinable) {
+            this.handler = handler;
+            this.pipelinable = pipelinable;
+        }
+
+    }
+
+    /**
+     * The connections to a single remote address.
+     */
+    private final class HostPool
+            implements CloseListener<Closeable, CloseType> {
+
+        /** The remote address of the connections. */
+        private final SocketAddress address;
+        /** The open connections (leased and idle) owned by this pool. */
+        private final Set<Connection> connections;
+        /** The idle connections, most recently used first. */
+        private final Deque<Connection> idle;
+        /** The number of requests in-flight on the pipelined connections. */
+        private final Map<Connection, Integer> pipelined;
+        /** The leases waiting for a connection to become available. */
+        private final Queue<Waiter> waiters;
+        /** The idle connections leased for a health check. */
+        private final Set<Connection> checking;
+        /** The number of open connections including pending connects. */
+        private int open;
+        /** Whether this pool has been closed. */
+        private boolean closed;
+        /** Whether this pool's address is no longer resolved for the host. */
+        private boolean retired;
+
+        HostPool(final SocketAddress address) {
+            assert (address != null);
+
+            this.address = address;
+            this.connections = new HashSet<Connection>();
+            this.idle = new ArrayDeque<Connection>();
+            this.pipelined = new HashMap<Connection, Integer>();
+            this.waiters = new LinkedList<Waiter>();
+            this.checking = new HashSet<Connection>();
+        }
+
+        void lease(final ConnectionCompletionHandler handler, final boolean pipelinable) {
+            final List<Connection> expired = new ArrayList<Connection>(0);
+            Connection connection = null;
+            boolean connect = false;
+
+            final boolean isClosed;
+            synchronized (this) {
+                isClosed = closed;
+
+                final long now = System.currentTimeMillis();
+                while ((connection = idle.pollFirst()) != null) {
+                    if (!connection.isOpen()) {
+                        continue;
+                    }
+                    if (open - expired.size() > minConnectionsPerHost && isExpired(connection, now)) {
+                        expired.add(connection);
+                        continue;
+                    }
+                    break;
+                }
+
+                if (connection == null && pipelinable && !isClosed) {
+                    connection = leastPipelined();
+                }
+
+                if (connection != null) {
+                    if (pipelinable) {
+                        final Integer inFlight = pipelined.get(connection);
+                        pipelined.put(connection, (inFlight == null) ? 1 : inFlight + 1);
+                    }
+                } else if (!isClosed) {
+                    if (open < maxConnectionsPerHost) {
+                        open++;
+                        connect = true;
+                    } else {
+                        waiters.add(new Waiter(handler, pipelinable));
+                    }
+                }
+            }
+
+            // connections are removed from the pool by the close listener
+            for (final Connection conn : expired) {
+                conn.closeSilently();
+            }
+
+            if (isClosed) {
+                handler.failed(new IOException("The connection pool has been closed."));
+            } else if (connection != null) {
+                handler.completed(connection);
+            } else if (connect) {
+                connect(handler, pipelinable);
+            }
+        }
+
+        void release(final Connection connection, final boolean keepAlive) {
+            if (!keepAlive || !connection.isOpen()) {
+                // removed before it's closed so it can't be leased meanwhile,
+                // the close listener has nothing left to do
+                evict(connection, "released");
+                connection.closeSilently();
+                return;
+            }
+
+            final Waiter waiter;
+            boolean unused = false;
+            synchronized (this) {
+                final Integer inFlight = pipelined.remove(connection);
+                // a health check doesn't count as use of the connection
+                final boolean checked = checking.remove(connection);
+                if (closed || !connections.contains(connection)) {
+                    waiter = null;
+                    connection.closeSilently();
+                } else if (inFlight != null && inFlight > 1) {
+                    // other requests are still in-flight on the connection
+                    final Waiter next = nextWaiter();
+                    if (next != null && next.pipelinable && inFlight(connection, inFlight - 1) < pipelineDepth) {
+                        waiter = waiters.poll();
+                        pipelined.put(connection, inFlight);
+                    } else {
+                        waiter = null;
+                        pipelined.put(connection, inFlight - 1);
+                    }
+                } else {
+                    waiter = (nextWaiter() == null) ? null : waiters.poll();
+                    if (waiter == null && retired) {
+                        // the address is no longer used for new requests
+                        unused = true;
+                    } else if (waiter == null && checked) {
+                        idle.addLast(connection);
+                    } else if (waiter == null) {
+                        OIO_IDLE_SINCE_ATTR.set(connection, System.currentTimeMillis());
+                        idle.addFirst(connection);
+                    } else if (waiter.pipelinable) {
+                        pipelined.put(connection, 1);
+                    }
+                }
+            }
+
+            if (unused) {
+                evict(connection, "retired");
+                connection.closeSilently();
+            } else if (waiter != null) {
+                waiter.handler.completed(connection);
+            }
+        }
+
+        /**
+         * Retire the pool once the host no longer resolves to its address, the
+         * idle connections are closed at once and the leased connections are
+         * closed when they're released (after serving any waiting leases).
+         */
+        void retire() {
+            final List<Connection> unused;
+            synchronized (this) {
+                retired = true;
+                unused = new ArrayList<Connection>(idle);
+                idle.clear();
+            }
+
+            // connections are removed from the pool by the close listener
+            for (final Connection connection : unused) {
+                connection.closeSilently();
+            }
+        }
+
+        @Override
+        public void onClosed(final Closeable closeable, final CloseType type) throws IOException {
+            evict((Connection) closeable, type);
+        }
+
+        /**
+         * Remove the connection from the pool, a lease waiting for a
+         * connection is given a new one in its place.
+         */
+        private void evict(final Connection connection, final Object reason) {
+            final Waiter waiter;
+            synchronized (this) {
+                if (!connections.remove(connection)) {
+                    return;
+                }
+                idle.remove(connection);
+                pipelined.remove(connection);
+                checking.remove(connection);
+                open--;
+
+                if (!closed && nextWaiter() != null && open < maxConnectionsPerHost) {
+                    waiter = waiters.poll();
+                    open++;
+                } else {
+                    waiter = null;
+                }
+            }
+            log.debug("Evicted connection to {} ({}).", address, reason);
+
+            if (waiter != null) {
+                connect(waiter.handler, waiter.pipelinable);
+            }
+        }
+
+        void leaseIdle(final long idleForMillis, final List<Connection> leased) {
+            final List<Connection> expired = new ArrayList<Connection>(0);
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                final long now = System.currentTimeMillis();
+                final Iterator<Connection> iter = idle.iterator();
+                while (iter.hasNext()) {
+                    final Connection connection = iter.next();
+                    if (!connection.isOpen()) {
+                        continue;
+                    }
+                    if (open - expired.size() > minConnectionsPerHost && isExpired(connection, now)) {
+                        iter.remove();
+                        expired.add(connection);
+                    } else if (isIdleFor(connection, now, idleForMillis)) {
+                        iter.remove();
+                        checking.add(connection);
+                        leased.add(connection);
+                    }
+                }
+            }
+
+            // connections are removed from the pool by the close listener
+            for (final Connection conn : expired) {
+                conn.closeSilently();
+            }
+        }
+
+        synchronized int load() {
+            return open - idle.size() + waiters.size();
+        }
+
+        void close() {
+            final List<Connection> open;
+            final List<Waiter> waiting;
+            synchronized (this) {
+                closed = true;
+                open = new ArrayList<Connection>(connections);
+                waiting = new ArrayList<Waiter>(waiters);
+                waiters.clear();
+            }
+
+            // closed and failed outside of the lock, like a lease, as the
+            // close listeners and the handlers call back into the pool
+            for (final Connection connection : open) {
+                connection.closeSilently();
+            }
+            final IOException error = new IOException("The connection pool has been closed.");
+            for (final Waiter waiter : waiting) {
+                waiter.handler.failed(error);
+            }
+        }
+
+        /**
+         * Returns the lease at the head of the queue of waiting leases, the
+         * leases whose request completed (e.g. it was cancelled) while they
+         * waited are dropped rather than handed a connection, which would
+         * release it again at once.
+         */
+        private Waiter nextWaiter() {
+            Waiter waiter;
+            while ((waiter = waiters.peek()) != null && waiter.handler.isDone()) {
+                waiters.poll();
+            }
+            return waiter;
+        }
+
+        /**
+         * Find the pipelined connection with the fewest requests in-flight
+         * that can accept another request, or {@code null} if none can.
+         */
+        private Connection leastPipelined() {
+            Connection least = null;
+            int leastInFlight = pipelineDepth;
+            for (final Map.Entry<Connection, Integer> entry : pipelined.entrySet()) {
+                final int inFlight = inFlight(entry.getKey(), entry.getValue());
+                if (inFlight < leastInFlight && entry.getKey().isOpen()) {
+                    least = entry.getKey();
+                    leastInFlight = inFlight;
+                }
+            }
+            return least;
+        }
+
+        /**
+         * The number of requests in-flight on a pipelined connection, the
+         * leases not yet written are only in the count and the requests
+         * sent again after a close are only in the response queue.
+         */
+        private int inFlight(final Connection connection, final int leased) {
+            return Math.max(leased, ClientFilter.pendingCount(connection));
+        }
+
+        private boolean isExpired(final Connection connection, final long now) {
+            return isIdleFor(connection, now, idleTimeoutMillis);
+        }
+
+        private boolean isIdleFor(final Connection connection, final long now, final long millis) {
+            final Long idleSince = OIO_IDLE_SINCE_ATTR.get(connection);
+            return idleSince != null && (now - idleSince) >= millis;
+        }
+
+        private void connect(final ConnectionCompletionHandler handler, final boolean pipelinable) {
+            connector.connect(address, new CompletionHandler<Connection>() {
+                @Override
+                public void cancelled() {
+                    connectFailed();
+                    handler.cancelled();
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    final List<Waiter> failed = connectFailed();
+                    // the requests may be sent to another address instead
+                    handler.connectFailed(address, throwable);
+                    for (final Waiter waiter : failed) {
+                        waiter.handler.connectFailed(address, throwable);
+                    }
+                }
+
+                @Override
+                public void completed(final Connection connection) {
+                    final boolean accepted;
+                    synchronized (HostPool.this) {
+                        accepted = !closed;
+                        if (accepted) {
+                            connections.add(connection);
+                            if (pipelinable) {
+                                pipelined.put(connection, 1);
+                            }
+                        } else {
+                            open--;
+                        }
+                    }
+                    if (!accepted) {
+                        connection.closeSilently();
+                        handler.failed(new IOException("The connection pool has been closed."));
+                        return;
+                    }
+
+                    OIO_HOST_POOL_ATTR.set(connection, HostPool.this);
+                    connection.addCloseListener(HostPool.this);
+                    handler.completed(connection);
+                }
+
+                @Override
+                public void updated(final Connection connection) {
+                    // not used
+                }
+            });
+        }
+
+        /**
+         * Account for a failed connect, if no connections to the host remain
+         * open the pending leases are drained so they can be failed too.
+         */
+        private synchronized List<Waiter> connectFailed() {
+            open--;
+            if (open > 0 || waiters.isEmpty()) {
+                return new ArrayList<Waiter>(0);
+            }
+            final List<Waiter> failed = new ArrayList<Waiter>(waiters);
+            waiters.clear();
+            return failed;
+        }
+
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * A step in a chain of asynchronous operations, that transforms the result of
+ * the previous step.
+ *
+ * @param <T> The type of the result of the previous step.
+ * @param <R> The type of the result of this step.
+ * @see OrchestrateFuture#thenApply(Continuation)
+ */
+public interface Continuation<T, R> {
+
+    /**
+     * Transform the result of the previous step, an exception thrown fails
+     * the step.
+     *
+     * @param value The result of the previous step.
+     * @return The result of this step.
+     * @throws Exception If the step fails.
+     */
+    public R apply(final T value) throws Exception;
+
+}
@@ -15,8 +15,8 @@
  */
 package io.orchestrate.client;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -34,7 +34,7 @@ public class Event<T> extends KvObject<T> implements EventMetadata {
     private final String ordinal;
     private final String type;
 
-    Event(final ObjectMapper mapper, final String collection, final String key, final String type,
+    Event(final JacksonMapper mapper, final String collection, final String key, final String type,
           final Long timestamp, final String ordinal, final String ref, final Long reftime, final T value,
           final JsonNode valueNode, final String rawValue) {
         super(collection, key, ref, reftime, mapper, value, valueNode, rawValue);
@@ -43,6 +43,15 @@ public class Event<T> extends KvObject<T> implements EventMetadata {
         this.type = type;
     }
 
+    Event(final JacksonMapper mapper, final String collection, final String key, final String type,
+          final Long timestamp, final String ordinal, final String ref, final Long reftime, final T value,
+          final JavaType valueType, final JsonSlice valueSlice) {
+        super(collection, key, ref, reftime, mapper, value, valueType, valueSlice);
+        this.timestamp = timestamp;
+        this.ordinal = ordinal;
+        this.type = type;
+    }
+
     /**
      * Returns the ItemKind of this object
      */
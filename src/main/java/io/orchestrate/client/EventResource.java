@@ -15,18 +15,16 @@
  */
 package io.orchestrate.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.NonNull;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.*;
 import org.glassfish.grizzly.http.util.Header;
-import org.glassfish.grizzly.memory.ByteBufferWrapper;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 import static io.orchestrate.client.Preconditions.*;
 
@@ -106,26 +104,67 @@ public class EventResource extends BaseResource {
      */
     public <T> OrchestrateRequest<EventList<T>> get(final Class<T> clazz) {
         checkNotNull(clazz, "clazz");
+
+        return get(jacksonMapper.constructType(clazz));
+    }
+
+    /**
+     * Fetch events for a key in the Orchestrate service, the events are
+     * deserialized to a generic type (e.g. a {@code List} or {@code Map} of
+     * domain objects).
+     *
+     * <p>Usage:</p>
+     * <pre>
+     * {@code
+     * EventList<Map<String, DomainObject>> events =
+     *         client.event("someCollection", "someKey")
+     *               .type("eventType")
+     *               .get(new TypeReference<Map<String, DomainObject>>() {})
+     *               .get();
+     * }
+     * </pre>
+     *
+     * @param typeRef Type information for marshalling objects at runtime.
+     * @param <T> The type to deserialize the result of the request to.
+     * @return The prepared get request.
+     */
+    public <T> OrchestrateRequest<EventList<T>> get(final TypeReference<T> typeRef) {
+        checkNotNull(typeRef, "typeRef");
+
+        return get(jacksonMapper.constructType(typeRef));
+    }
+
+    /**
+     * Fetch events for a key in the Orchestrate service, the events are
+     * deserialized to the Jackson type (e.g. one built with the mapper's
+     * {@code TypeFactory}).
+     *
+     * @param valueType Type information for marshalling objects at runtime.
+     * @param <T> The type to deserialize the result of the request to.
+     * @return The prepared get request.
+     */
+    public <T> OrchestrateRequest<EventList<T>> get(final JavaType valueType) {
+        checkNotNull(valueType, "valueType");
         checkNotNull(type, "type");
 
         final String uri = client.uri(collection, key, "events", type);
-        String query = "limit=".concat(Integer.toString(limit));
+        final StringBuilder query = new StringBuilder("limit=").append(limit);
         final HttpRequestPacket.Builder httpHeaderBuilder = HttpRequestPacket.builder()
                 .method(Method.GET)
                 .uri(uri);
         if (start != null) {
-            query += "&start=" + start;
+            query.append("&start=").append(start);
         }
         if (end != null) {
-            query += "&end=" + end;
+            query.append("&end=").append(end);
         }
         if (withFields != null) {
-            query = query.concat("&with_fields=").concat(client.encode(withFields));
+            client.encode(query.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            query = query.concat("&without_fields=").concat(client.encode(withoutFields));
+            client.encode(query.append("&without_fields="), withoutFields);
         }
-        httpHeaderBuilder.query(query);
+        httpHeaderBuilder.query(query.toString());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
@@ -137,17 +176,15 @@ public class EventResource extends BaseResource {
                 final int status = ((HttpResponsePacket) response.getHttpHeader()).getStatus();
                 assert (status == 200);
 
-                final JsonNode jsonNode = toJsonNode(response);
-
-                final int count = jsonNode.get("count").asInt();
-                final List<Event<T>> events = new ArrayList<Event<T>>(count);
+                final ResultsPageReader<T, Event<T>> page =
+                        new ResultsPageReader<T, Event<T>>(jacksonMapper, valueType, ItemKind.EVENT, client.isLazyValues()) {
+                            @Override
+                            Event<T> toResult(final KvObject<T> kvObject, final double score, final Double distance) {
+                                return (Event<T>) kvObject;
+                            }
+                        }.read(response);
 
-                final Iterator<JsonNode> iter = jsonNode.get("results").elements();
-                while (iter.hasNext()) {
-                    final JsonNode result = iter.next();
-                    events.add(ResponseConverterUtil.wrapperJsonToEvent(mapper, result, clazz));
-                }
-                return new EventList<T>(events);
+                return new EventList<T>(page.getResults());
             }
 
         });
@@ -193,7 +230,7 @@ public class EventResource extends BaseResource {
         checkNotNull(type, "type");
         checkArgument(start == null && end == null, "'start' and 'end' not allowed with PUT requests.");
 
-        final byte[] content = toJsonBytes(value);
+        final Buffer content = toJsonBuffer(value);
 
         final String uri = client.uri(collection, key, "events", type);
 
@@ -204,11 +241,11 @@ public class EventResource extends BaseResource {
         if (timestamp != null) {
             httpHeaderBuilder.query("timestamp=" + timestamp);
         }
-        httpHeaderBuilder.contentLength(content.length);
+        httpHeaderBuilder.contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
 
         return new OrchestrateRequest<Boolean>(client, packet, new ResponseConverter<Boolean>() {
@@ -254,7 +291,7 @@ public class EventResource extends BaseResource {
         checkNotNull(type, "type");
         checkArgument(start == null && end == null, "'start' and 'end' not allowed with 'create' requests.");
 
-        final byte[] content = toJsonBytes(value);
+        final Buffer content = toJsonBuffer(value);
 
         final String uri;
         if(timestamp != null) {
@@ -267,11 +304,11 @@ public class EventResource extends BaseResource {
                 .method(Method.POST)
                 .contentType("application/json")
                 .uri(uri);
-        httpHeaderBuilder.contentLength(content.length);
+        httpHeaderBuilder.contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
 
         return new OrchestrateRequest<EventMetadata>(client, packet, new ResponseConverter<EventMetadata>() {
@@ -288,10 +325,8 @@ public class EventResource extends BaseResource {
                     Long timestamp = new Long(parts[6]);
                     String ordinal = parts[7];
 
-                    final String ref = header.getHeader(Header.ETag)
-                            .replace("\"", "")
-                            .replace("-gzip", "");
-                    return new Event<Void>(mapper, collection, key, type, timestamp, ordinal, ref, null, null, null, null);
+                    final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
+                    return new Event<Void>(jacksonMapper, collection, key, type, timestamp, ordinal, ref, null, null, (JsonNode) null, null);
                 }
                 return null;
             }
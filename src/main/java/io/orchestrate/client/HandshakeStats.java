@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics for the TLS handshakes performed by a {@code Client}.
+ *
+ * <p>A resumed handshake reuses a TLS session negotiated by an earlier
+ * connection, and is considerably cheaper than a full handshake. The values
+ * are live and are updated as connections are opened.</p>
+ *
+ * <pre>
+ * {@code
+ * HandshakeStats stats = client.getHandshakeStats();
+ * long full = stats.getCompletedCount() - stats.getResumedCount();
+ * }
+ * </pre>
+ */
+public final class HandshakeStats {
+
+    /** The number of handshakes completed. */
+    private final AtomicLong completed;
+    /** The number of handshakes that resumed a cached session. */
+    private final AtomicLong resumed;
+    /** The number of handshakes that failed. */
+    private final AtomicLong failed;
+    /** The total time (in nanoseconds) spent in completed handshakes. */
+    private final AtomicLong totalNanos;
+    /** The longest time (in nanoseconds) spent in a completed handshake. */
+    private final AtomicLong maxNanos;
+
+    HandshakeStats() {
+        this.completed = new AtomicLong();
+        this.resumed = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    void completed(final long durationNanos, final boolean wasResumed) {
+        completed.incrementAndGet();
+        if (wasResumed) {
+            resumed.incrementAndGet();
+        }
+        totalNanos.addAndGet(durationNanos);
+
+        long max;
+        while (durationNanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, durationNanos)) {
+                break;
+            }
+        }
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of handshakes that have completed.
+     *
+     * @return The number of completed handshakes.
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the number of completed handshakes that resumed a cached TLS
+     * session instead of performing a full handshake.
+     *
+     * @return The number of resumed handshakes.
+     */
+    public long getResumedCount() {
+        return resumed.get();
+    }
+
+    /**
+     * Returns the number of handshakes that have failed.
+     *
+     * @return The number of failed handshakes.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the total time spent in completed handshakes.
+     *
+     * @param unit The unit of time for the result.
+     * @return The total handshake time.
+     */
+    public long getTotalTime(final @NonNull TimeUnit unit) {
+        return unit.convert(totalNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the mean time spent in a completed handshake, or {@code 0} if no
+     * handshake has completed.
+     *
+     * @param unit The unit of time for the result.
+     * @return The mean handshake time.
+     */
+    public long getMeanTime(final @NonNull TimeUnit unit) {
+        final long count = completed.get();
+        return (count == 0) ? 0 : unit.convert(totalNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time spent in a completed handshake.
+     *
+     * @param unit The unit of time for the result.
+     * @return The longest handshake time.
+     */
+    public long getMaxTime(final @NonNull TimeUnit unit) {
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "HandshakeStats(completed=" + getCompletedCount()
+                + ", resumed=" + getResumedCount()
+                + ", failed=" + getFailedCount()
+                + ", meanMillis=" + getMeanTime(TimeUnit.MILLISECONDS)
+                + ", maxMillis=" + getMaxTime(TimeUnit.MILLISECONDS) + ")";
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.grizzly.ssl.SSLFilter;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+
+import static org.glassfish.grizzly.attributes.AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER;
+
+/**
+ * An {@code SSLFilter} that records the number and duration of the TLS
+ * handshakes it performs.
+ */
+final class HandshakeTrackingSSLFilter extends SSLFilter {
+
+    /** The attribute to track when a handshake started, as {nanoTime, currentTimeMillis}. */
+    private static final Attribute<long[]> OIO_HANDSHAKE_START_ATTR =
+            DEFAULT_ATTRIBUTE_BUILDER.createAttribute("oioHandshakeStart");
+
+    /** The statistics to record handshakes with. */
+    private final HandshakeStats stats;
+
+    HandshakeTrackingSSLFilter(
+            final SSLEngineConfigurator clientConfig,
+            final HandshakeStats stats) {
+        super(clientConfig, clientConfig);
+        assert (stats != null);
+
+        this.stats = stats;
+    }
+
+    @Override
+    protected void notifyHandshakeStart(final Connection connection) {
+        OIO_HANDSHAKE_START_ATTR.set(connection,
+                new long[] { System.nanoTime(), System.currentTimeMillis() });
+        super.notifyHandshakeStart(connection);
+    }
+
+    @Override
+    protected void notifyHandshakeComplete(final Connection<?> connection, final SSLEngine sslEngine) {
+        final long[] start = OIO_HANDSHAKE_START_ATTR.remove(connection);
+        if (start != null) {
+            // a resumed session was created before this handshake started
+            final SSLSession session = sslEngine.getSession();
+            final boolean resumed = session != null && session.getCreationTime() < start[1];
+            stats.completed(System.nanoTime() - start[0], resumed);
+        }
+        // the handshake is performed before the first request on the connection is written
+        final OrchestrateRequest<?> request = ClientFilter.pendingRequest(connection);
+        if (request != null) {
+            request.getTimings().ended(RequestPhase.HANDSHAKE);
+        }
+        super.notifyHandshakeComplete(connection, sslEngine);
+    }
+
+    @Override
+    protected void notifyHandshakeFailed(final Connection connection, final Throwable t) {
+        OIO_HANDSHAKE_START_ATTR.remove(connection);
+        stats.failed();
+        super.notifyHandshakeFailed(connection, t);
+    }
+
+}
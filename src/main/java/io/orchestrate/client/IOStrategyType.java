@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.IOStrategy;
+import org.glassfish.grizzly.strategies.LeaderFollowerNIOStrategy;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.grizzly.strategies.SimpleDynamicNIOStrategy;
+import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
+
+/**
+ * The strategy used by a {@code Client} to process network I/O events, and
+ * the responses read from the network.
+ *
+ * <p>Strategies that process events on the selector thread avoid the hand-off
+ * to a worker thread, which favours many small responses. Any
+ * {@link ResponseListener} is then called on the selector thread and must not
+ * block.</p>
+ *
+ * @see OrchestrateClient.Builder#ioStrategy(IOStrategyType)
+ */
+public enum IOStrategyType {
+    /** Process events on a pool of worker threads. */
+    WORKER_THREAD(true) {
+        @Override
+        IOStrategy getIOStrategy() {
+            return WorkerThreadIOStrategy.getInstance();
+        }
+    },
+    /** Process events on the selector thread that received them. */
+    SAME_THREAD(false) {
+        @Override
+        IOStrategy getIOStrategy() {
+            return SameThreadIOStrategy.getInstance();
+        }
+    },
+    /**
+     * Process events on the selector thread, which hands off selecting to a
+     * worker thread meanwhile.
+     */
+    LEADER_FOLLOWER(true) {
+        @Override
+        IOStrategy getIOStrategy() {
+            return LeaderFollowerNIOStrategy.getInstance();
+        }
+    },
+    /**
+     * Process events on the selector thread while few events are ready at
+     * once, and on worker threads while many are.
+     */
+    DYNAMIC(true) {
+        @Override
+        IOStrategy getIOStrategy() {
+            return SimpleDynamicNIOStrategy.getInstance();
+        }
+    };
+
+    /** Whether the strategy uses a pool of worker threads. */
+    private final boolean usesWorkerThreads;
+
+    IOStrategyType(final boolean usesWorkerThreads) {
+        this.usesWorkerThreads = usesWorkerThreads;
+    }
+
+    abstract IOStrategy getIOStrategy();
+
+    boolean usesWorkerThreads() {
+        return usesWorkerThreads;
+    }
+}
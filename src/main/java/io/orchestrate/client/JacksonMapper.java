@@ -17,9 +17,13 @@ package io.orchestrate.client;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
 import lombok.NonNull;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * A utility object to configure a Jackson JSON {@code ObjectMapper}.
  *
@@ -30,12 +34,26 @@ import lombok.NonNull;
  * }
  * </pre>
  *
+ * <p>The {@code ObjectReader}s and {@code ObjectWriter}s for each type that's
+ * read or written are built once and cached, they use the configuration of
+ * the {@code ObjectMapper} when they were first needed, so the mapper should
+ * be configured before it's used by a client.</p>
+ *
  * @see Builder
  */
 public final class JacksonMapper {
 
     /** The builder for this instance of the mapper. */
     private final Builder builder;
+    /** The readers for the types values are bound to. */
+    private final ConcurrentMap<Class<?>, ObjectReader> readers =
+            new ConcurrentHashMap<Class<?>, ObjectReader>();
+    /** The readers for the generic types values are bound to. */
+    private final ConcurrentMap<JavaType, ObjectReader> typeReaders =
+            new ConcurrentHashMap<JavaType, ObjectReader>();
+    /** The writers for the types of values that are serialized. */
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers =
+            new ConcurrentHashMap<Class<?>, ObjectWriter>();
 
     /**
      * Create a new {@code JacksonMapper} with default settings.
@@ -54,6 +72,80 @@ public final class JacksonMapper {
         return builder.objectMapper;
     }
 
+    /**
+     * Returns the (cached) reader to bind JSON to values of the type.
+     *
+     * @param type The type to bind values to.
+     * @return The reader for the type.
+     */
+    ObjectReader reader(final Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = builder.objectMapper.reader(type);
+            final ObjectReader existing = readers.putIfAbsent(type, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the (cached) reader to bind JSON to values of the generic type.
+     *
+     * @param type The type to bind values to.
+     * @return The reader for the type.
+     */
+    ObjectReader reader(final JavaType type) {
+        ObjectReader reader = typeReaders.get(type);
+        if (reader == null) {
+            reader = builder.objectMapper.reader(type);
+            final ObjectReader existing = typeReaders.putIfAbsent(type, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the (cached) writer to serialize values of the type.
+     *
+     * @param type The (runtime) type of the values to serialize.
+     * @return The writer for the type.
+     */
+    ObjectWriter writer(final Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = builder.objectMapper.writerWithType(type);
+            final ObjectWriter existing = writers.putIfAbsent(type, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Returns the Jackson type for the class.
+     *
+     * @param type The class to bind values to.
+     * @return The type.
+     */
+    JavaType constructType(final Class<?> type) {
+        return builder.objectMapper.getTypeFactory().constructType(type);
+    }
+
+    /**
+     * Returns the Jackson type for the (generic) type reference.
+     *
+     * @param type The type reference to bind values to.
+     * @return The type.
+     */
+    JavaType constructType(final TypeReference<?> type) {
+        return builder.objectMapper.getTypeFactory().constructType(type);
+    }
+
     /**
      * A new builder to create a {@code JacksonMapper} with default settings.
      *
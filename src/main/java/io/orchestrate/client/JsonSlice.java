@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.glassfish.grizzly.Buffer;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * The raw UTF-8 bytes of a JSON value, a slice of the response body it was
+ * read from. Several slices may share the bytes of a single response, so a
+ * slice keeps the whole body reachable.
+ */
+final class JsonSlice {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    JsonSlice(final byte[] bytes, final int offset, final int length) {
+        assert (bytes != null);
+        assert (offset >= 0 && length >= 0 && offset + length <= bytes.length);
+
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Copies the response body, the buffer is reused once the response has
+     * been converted.
+     *
+     * @param content The response body.
+     * @return A copy of the bytes of the body.
+     */
+    static byte[] toByteArray(final Buffer content) {
+        final byte[] bytes = new byte[content.remaining()];
+        final int position = content.position();
+        content.get(bytes);
+        content.position(position);
+        return bytes;
+    }
+
+    /**
+     * Binds the JSON value to the class, a {@code String} is given the JSON
+     * text as-is.
+     *
+     * @param mapper The mapper to bind the value with.
+     * @param clazz The type to bind the value to.
+     * @param <T> The type to bind the value to.
+     * @return The bound value, {@code null} for {@code Void}.
+     * @throws IOException If the value can't be bound to the class.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T bind(final JacksonMapper mapper, final Class<T> clazz) throws IOException {
+        if (clazz == Void.class) {
+            return null;
+        }
+        if (clazz.equals(String.class)) {
+            return (T) toString();
+        }
+        return mapper.reader(clazz).readValue(bytes, offset, length);
+    }
+
+    /**
+     * Binds the JSON value to the (generic) type, a {@code String} is given
+     * the JSON text as-is.
+     *
+     * @param mapper The mapper to bind the value with.
+     * @param type The type to bind the value to.
+     * @param <T> The type to bind the value to.
+     * @return The bound value, {@code null} for {@code Void}.
+     * @throws IOException If the value can't be bound to the type.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T bind(final JacksonMapper mapper, final JavaType type) throws IOException {
+        if (type.hasRawClass(Void.class)) {
+            return null;
+        }
+        if (type.hasRawClass(String.class)) {
+            return (T) toString();
+        }
+        return mapper.reader(type).readValue(bytes, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, UTF8);
+    }
+
+}
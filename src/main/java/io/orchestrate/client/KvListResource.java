@@ -15,7 +15,8 @@
  */
 package io.orchestrate.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import lombok.NonNull;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
@@ -24,9 +25,6 @@ import org.glassfish.grizzly.http.Method;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 import static io.orchestrate.client.Preconditions.checkArgument;
 import static io.orchestrate.client.Preconditions.checkNotNegative;
@@ -93,37 +91,70 @@ public class KvListResource extends BaseResource {
      * @return The prepared get request.
      */
     public <T> OrchestrateRequest<KvList<T>> get(final @NonNull Class<T> clazz) {
+        return get(jacksonMapper.constructType(clazz));
+    }
+
+    /**
+     * Fetch a paginated, lexicographically ordered list of items contained in a
+     * collection, the values are deserialized to a generic type (e.g. a
+     * {@code List} or {@code Map} of domain objects).
+     *
+     * <p>Usage:</p>
+     * <pre>
+     * {@code
+     * KvList<Map<String, DomainObject>> objects =
+     *         client.listCollection("someCollection")
+     *               .limit(10)
+     *               .get(new TypeReference<Map<String, DomainObject>>() {})
+     *               .get();
+     * }
+     * </pre>
+     *
+     * @param typeRef Type information for marshalling objects at runtime.
+     * @param <T> The type to deserialize the result of the request to.
+     * @return The prepared get request.
+     */
+    public <T> OrchestrateRequest<KvList<T>> get(final @NonNull TypeReference<T> typeRef) {
+        return get(jacksonMapper.constructType(typeRef));
+    }
+
+    /**
+     * Fetch a paginated, lexicographically ordered list of items contained in a
+     * collection, the values are deserialized to the Jackson type (e.g. one
+     * built with the mapper's {@code TypeFactory}).
+     *
+     * @param type Type information for marshalling objects at runtime.
+     * @param <T> The type to deserialize the result of the request to.
+     * @return The prepared get request.
+     */
+    public <T> OrchestrateRequest<KvList<T>> get(final @NonNull JavaType type) {
         checkArgument(!startInclusive || startKey != null, "'startInclusive' requires 'startKey' for request.");
         checkArgument(!stopInclusive || stopKey != null, "'stopInclusive' requires 'stopKey' for request.");
 
         final String uri = client.uri(collection);
-        String query = "limit=".concat(Integer.toString(limit));
-        query = query.concat("&values=").concat(Boolean.toString(withValues));
+        final StringBuilder query = new StringBuilder("limit=").append(limit)
+                .append("&values=").append(withValues);
         if (startKey != null) {
             final String keyName = (startInclusive) ? "startKey" : "afterKey";
-            query = query
-                    .concat('&' + keyName + '=')
-                    .concat(client.encode(startKey));
+            client.encode(query.append('&').append(keyName).append('='), startKey);
         }
 
         if (stopKey != null) {
             final String keyName = (stopInclusive) ? "endKey" : "beforeKey";
-            query = query
-                    .concat('&' + keyName + '=')
-                    .concat(client.encode(stopKey));
+            client.encode(query.append('&').append(keyName).append('='), stopKey);
         }
 
         if (withFields != null) {
-            query = query.concat("&with_fields=").concat(client.encode(withFields));
+            client.encode(query.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            query = query.concat("&without_fields=").concat(client.encode(withoutFields));
+            client.encode(query.append("&without_fields="), withoutFields);
         }
 
         final HttpContent packet = HttpRequestPacket.builder()
                 .method(Method.GET)
                 .uri(uri)
-                .query(query)
+                .query(query.toString())
                 .build()
                 .httpContentBuilder()
                 .build();
@@ -134,18 +165,10 @@ public class KvListResource extends BaseResource {
                 final int status = ((HttpResponsePacket) response.getHttpHeader()).getStatus();
                 assert (status == 200);
 
-                final JsonNode jsonNode = toJsonNode(response);
-
-                final OrchestrateRequest<KvList<T>> next = parseLink("next", jsonNode, this);
-                final int count = jsonNode.get("count").asInt();
-                final List<KvObject<T>> results = new ArrayList<KvObject<T>>(count);
-
-                final Iterator<JsonNode> iter = jsonNode.get("results").elements();
-                while (iter.hasNext()) {
-                    results.add(toKvObject(iter.next(), clazz));
-                }
+                final ResultsPageReader<T, KvObject<T>> page = readKvObjects(response, type);
 
-                return new KvList<T>(results, count, next);
+                final OrchestrateRequest<KvList<T>> next = parseLink(page.getNext(), this);
+                return new KvList<T>(page.getResults(), page.getCount(), next);
             }
         });
     }
@@ -16,8 +16,8 @@
 package io.orchestrate.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
@@ -28,10 +28,10 @@ import java.io.IOException;
  *
  * @param <T> The deserializable type for the value of this KV object.
  */
-@ToString
-@EqualsAndHashCode
+@ToString(exclude = { "valueType", "valueSlice" })
+@EqualsAndHashCode(exclude = { "valueType", "valueSlice" })
 public class KvObject<T> implements KvMetadata {
-    private final ObjectMapper mapper;
+    private final JacksonMapper mapper;
 
     /** The collection for this KV metadata. */
     private final String collection;
@@ -42,14 +42,18 @@ public class KvObject<T> implements KvMetadata {
     /** The reftime for this metadata. May be null if not known (ie parsed from a create response Location uri). */
     private final Long reftime;
 
-    /** The value for this KV object. */
-    private final T value;
+    /** The value for this KV object, bound on first use if it's lazy. */
+    private volatile T value;
     /** The raw JSON value for this KV object. */
     private String rawValue;
     private JsonNode valueNode;
+    /** The type to bind a lazy value to. */
+    private final JavaType valueType;
+    /** The raw JSON of the value, {@code null} if it was only kept as a bound value or a tree. */
+    private final JsonSlice valueSlice;
 
     KvObject(final String collection, final String key, final String ref, final Long reftime,
-             final ObjectMapper mapper, final T value,
+             final JacksonMapper mapper, final T value,
              final JsonNode valueNode, final String rawValue) {
         assert (key != null);
         assert (key.length() > 0);
@@ -65,6 +69,28 @@ public class KvObject<T> implements KvMetadata {
         this.value = value;
         this.valueNode = valueNode;
         this.rawValue = rawValue;
+        this.valueType = null;
+        this.valueSlice = null;
+    }
+
+    KvObject(final String collection, final String key, final String ref, final Long reftime,
+             final JacksonMapper mapper, final T value, final JavaType valueType, final JsonSlice valueSlice) {
+        assert (key != null);
+        assert (key.length() > 0);
+        assert (ref != null);
+        assert (ref.length() > 0);
+        assert (valueType != null);
+        assert (valueSlice != null);
+
+        this.collection = collection;
+        this.key = key;
+        this.ref = ref;
+        this.reftime = reftime;
+
+        this.mapper = mapper;
+        this.value = value;
+        this.valueType = valueType;
+        this.valueSlice = valueSlice;
     }
 
     /**
@@ -80,6 +106,15 @@ public class KvObject<T> implements KvMetadata {
      * @return The value of the KV object, may be {@code null}.
      */
     public final T getValue() {
+        T value = this.value;
+        if (value == null && valueSlice != null) {
+            try {
+                value = valueSlice.<T>bind(mapper, valueType);
+            } catch (IOException e) {
+                throw new ClientException("Could not convert response to JSON.", e);
+            }
+            this.value = value;
+        }
         return value;
     }
 
@@ -106,15 +141,30 @@ public class KvObject<T> implements KvMetadata {
      * @return The value of the KV object, may be {@code null}.
      */
     public <T> T getValue(Class<T> clazz) {
-        if (valueNode == null) {
-            return null;
+        if (valueNode == null && valueSlice != null) {
+            // bind straight from the raw JSON rather than through a tree
+            try {
+                return valueSlice.bind(mapper, clazz);
+            } catch (IOException e) {
+                throw new ClientException("Could not convert response to JSON.", e);
+            }
         }
 
-        if (rawValue == null && value != null && clazz.equals(String.class)) {
+        if (rawValue == null && value != null && value instanceof String) {
             rawValue = (String)value;
         }
 
         try {
+            if (valueNode == null) {
+                // a scalar value read from a page, its tree is the same as its JSON
+                if (rawValue != null && !rawValue.isEmpty()) {
+                    valueNode = mapper.getMapper().readTree(rawValue);
+                } else if (value != null) {
+                    valueNode = mapper.getMapper().valueToTree(value);
+                } else {
+                    return null;
+                }
+            }
             return ResponseConverterUtil.jsonToDomainObject(mapper, valueNode, rawValue, clazz);
         } catch (IOException e) {
             throw new ClientException("Could not convert response to JSON.", e);
@@ -128,11 +178,13 @@ public class KvObject<T> implements KvMetadata {
      */
     public final String getRawValue() {
         if (rawValue == null) {
-            if (valueNode != null) {
+            if (valueSlice != null) {
+                rawValue = (value instanceof String) ? (String) value : valueSlice.toString();
+            } else if (valueNode != null) {
                 rawValue = getValue(String.class);
             } else if (value != null) {
                 try {
-                    rawValue = mapper.writeValueAsString(value);
+                    rawValue = mapper.writer(value.getClass()).writeValueAsString(value);
                 } catch (JsonProcessingException ignored) {
                 }
             }
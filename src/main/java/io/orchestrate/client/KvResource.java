@@ -15,16 +15,18 @@
  */
 package io.orchestrate.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.orchestrate.client.jsonpatch.JsonPatch;
 import lombok.NonNull;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.*;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
-import org.glassfish.grizzly.memory.ByteBufferWrapper;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import static io.orchestrate.client.Preconditions.checkArgument;
 import static io.orchestrate.client.Preconditions.checkNotNull;
@@ -172,24 +174,83 @@ public class KvResource extends BaseResource {
      * @return This KV resource.
      */
     public <T> OrchestrateRequest<KvObject<T>> get(final @NonNull Class<T> clazz, @Nullable final String ref) {
+        return get(jacksonMapper.constructType(clazz), ref);
+    }
+
+    /**
+     * {@link #get(TypeReference, String)}.
+     * @param typeRef Type information for marshalling objects at runtime.
+     * @param <T> The type to deserialize the result to.
+     * @return This KV resource.
+     */
+    public <T> OrchestrateRequest<KvObject<T>> get(final TypeReference<T> typeRef) {
+        return get(typeRef, null);
+    }
+
+    /**
+     * Fetch an object by key from the Orchestrate service, the object is
+     * deserialized to a generic type (e.g. a {@code List} or {@code Map} of
+     * domain objects).
+     *
+     * <p>Usage:</p>
+     * <pre>
+     * {@code
+     * KvObject<List<DomainObject>> object =
+     *         client.kv("someCollection", "someKey")
+     *               .get(new TypeReference<List<DomainObject>>() {}, null)
+     *               .get();
+     * }
+     * </pre>
+     *
+     * @param typeRef Type information for marshalling objects at runtime.
+     * @param ref The version of the object to get.
+     * @param <T> The type to deserialize the result to.
+     * @return This KV resource.
+     */
+    public <T> OrchestrateRequest<KvObject<T>> get(
+            final @NonNull TypeReference<T> typeRef, @Nullable final String ref) {
+        return get(jacksonMapper.constructType(typeRef), ref);
+    }
+
+    /**
+     * {@link #get(JavaType, String)}.
+     * @param type Type information for marshalling objects at runtime.
+     * @param <T> The type to deserialize the result to.
+     * @return This KV resource.
+     */
+    public <T> OrchestrateRequest<KvObject<T>> get(final JavaType type) {
+        return get(type, null);
+    }
+
+    /**
+     * Fetch an object by key from the Orchestrate service, the object is
+     * deserialized to the Jackson type (e.g. one built with the mapper's
+     * {@code TypeFactory}).
+     *
+     * @param type Type information for marshalling objects at runtime.
+     * @param ref The version of the object to get.
+     * @param <T> The type to deserialize the result to.
+     * @return This KV resource.
+     */
+    public <T> OrchestrateRequest<KvObject<T>> get(final @NonNull JavaType type, @Nullable final String ref) {
         final String uri = ref != null ?
                 client.uri(collection, key, "refs", ref) :
                 client.uri(collection, key);
 
-        String query = "";
+        final StringBuilder query = new StringBuilder();
         if (withFields != null) {
-            query = query.concat("&with_fields=").concat(client.encode(withFields));
+            client.encode(query.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            query = query.concat("&without_fields=").concat(client.encode(withoutFields));
+            client.encode(query.append("&without_fields="), withoutFields);
         }
 
         final HttpRequestPacket.Builder packetBuilder = HttpRequestPacket.builder()
                 .method(Method.GET)
                 .uri(uri);
 
-        if (!query.isEmpty()) {
-            packetBuilder.query(query);
+        if (query.length() > 0) {
+            packetBuilder.query(query.toString());
         }
 
         final HttpContent packet = packetBuilder.build()
@@ -207,7 +268,7 @@ public class KvResource extends BaseResource {
                     return null;
                 }
 
-                return toKvObject(response, collection, key, clazz);
+                return toKvObject(response, collection, key, type);
             }
         });
     }
@@ -320,7 +381,7 @@ public class KvResource extends BaseResource {
      * @return The prepared put request.
      */
     public OrchestrateRequest<KvMetadata> put(final @NonNull Object value) {
-        final byte[] content = toJsonBytes(value);
+        final Buffer content = toJsonBuffer(value);
 
         final String uri = client.uri(collection, key);
 
@@ -333,11 +394,11 @@ public class KvResource extends BaseResource {
         } else if (ifAbsent) {
             httpHeaderBuilder.header(Header.IfNoneMatch, "\"*\"");
         }
-        httpHeaderBuilder.contentLength(content.length);
+        httpHeaderBuilder.contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
         return new OrchestrateRequest<KvMetadata>(client, packet, new ResponseConverter<KvMetadata>() {
             @Override
@@ -346,10 +407,8 @@ public class KvResource extends BaseResource {
                 final int status = ((HttpResponsePacket) header).getStatus();
 
                 if (status == 201) {
-                    final String ref = header.getHeader(Header.ETag)
-                            .replace("\"", "")
-                            .replace("-gzip", "");
-                    return new KvObject<Void>(collection, key, ref, null, mapper, null, null, null);
+                    final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
+                    return new KvObject<Void>(collection, key, ref, null, jacksonMapper, null, (JsonNode) null, null);
                 }
                 return null;
             }
@@ -357,7 +416,7 @@ public class KvResource extends BaseResource {
     }
 
     public OrchestrateRequest<KvMetadata> patch(JsonPatch patchOps) {
-        final byte[] content = toJsonBytes(patchOps.getOps());
+        final Buffer content = toJsonBuffer(patchOps.getOps());
 
         final String uri = client.uri(collection, key);
 
@@ -371,11 +430,11 @@ public class KvResource extends BaseResource {
         } else if (ifAbsent) {
             throw new IllegalStateException("Cannot perform an ifAbsent PATCH request.");
         }
-        httpHeaderBuilder.contentLength(content.length);
+        httpHeaderBuilder.contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
         return new OrchestrateRequest<KvMetadata>(client, packet, new ResponseConverter<KvMetadata>() {
             @Override
@@ -384,10 +443,8 @@ public class KvResource extends BaseResource {
                 final int status = ((HttpResponsePacket) header).getStatus();
 
                 if (status == 201) {
-                    final String ref = header.getHeader(Header.ETag)
-                            .replace("\"", "")
-                            .replace("-gzip", "");
-                    return new KvObject<Void>(collection, key, ref, null, mapper, null, null, null);
+                    final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
+                    return new KvObject<Void>(collection, key, ref, null, jacksonMapper, null, (JsonNode) null, null);
                 }
                 return null;
             }
@@ -395,7 +452,7 @@ public class KvResource extends BaseResource {
     }
 
     public OrchestrateRequest<KvMetadata> merge(String jsonObject) {
-        final byte[] content = toJsonBytes(jsonObject);
+        final Buffer content = toJsonBuffer(jsonObject);
 
         final String uri = client.uri(collection, key);
 
@@ -409,11 +466,11 @@ public class KvResource extends BaseResource {
         } else if (ifAbsent) {
             throw new IllegalStateException("Cannot perform an ifAbsent PATCH request.");
         }
-        httpHeaderBuilder.contentLength(content.length);
+        httpHeaderBuilder.contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
         return new OrchestrateRequest<KvMetadata>(client, packet, new ResponseConverter<KvMetadata>() {
             @Override
@@ -422,10 +479,8 @@ public class KvResource extends BaseResource {
                 final int status = ((HttpResponsePacket) header).getStatus();
 
                 if (status == 201) {
-                    final String ref = header.getHeader(Header.ETag)
-                            .replace("\"", "")
-                            .replace("-gzip", "");
-                    return new KvObject<Void>(collection, key, ref, null, mapper, null, null, null);
+                    final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
+                    return new KvObject<Void>(collection, key, ref, null, jacksonMapper, null, (JsonNode) null, null);
                 }
                 return null;
             }
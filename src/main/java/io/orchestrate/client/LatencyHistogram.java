@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations with log-linear buckets (in the style
+ * of an HDR histogram): each power of two is split into 32 buckets, so the
+ * values reported are within ~3% of the recorded values.
+ */
+final class LatencyHistogram {
+
+    /** The number of bits for the buckets within a power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** The number of buckets within a power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** The largest value (in nanoseconds) tracked, about 18 minutes. */
+    static final long MAX_VALUE = (1L << 40) - 1;
+    /** The number of buckets to track values up to {@code MAX_VALUE}. */
+    static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    /** The number of values recorded in each bucket. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** The sum of the values recorded. */
+    private final StripedCounter total = new StripedCounter();
+    /** The largest value recorded. */
+    private final AtomicLong max = new AtomicLong();
+
+    void record(final long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        total.add(value);
+
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    long getMean(final TimeUnit unit) {
+        final long count = getCount();
+        return (count == 0) ? 0 : unit.convert(total.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    long getMax(final TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the value at the {@code percentile}, the highest value in the
+     * bucket the percentile falls in.
+     */
+    long getPercentile(final double percentile, final TimeUnit unit) {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                final long value = Math.min(highestValue(i), max.get());
+                return unit.convert(value, TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    /** Returns the bucket the (non-negative) {@code value} is counted in. */
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        // the top bits of the value, between SUB_BUCKETS and 2 * SUB_BUCKETS
+        final int subBucket = (int) (value >>> shift);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (subBucket - SUB_BUCKETS);
+    }
+
+    /** Returns the highest value counted in the bucket at the {@code index}. */
+    static long highestValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        final long subBucket = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
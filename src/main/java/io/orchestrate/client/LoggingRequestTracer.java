@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link RequestTracer} that logs each trace at {@code INFO} level (or
+ * {@code WARN} for failed requests) with SLF4J.
+ */
+@Slf4j
+public final class LoggingRequestTracer implements RequestTracer {
+
+    /** {@inheritDoc} */
+    @Override
+    public void trace(final RequestTrace trace) {
+        final long millis = trace.getDuration(TimeUnit.MILLISECONDS);
+        if (trace.isFailed()) {
+            log.warn("{} {} failed with status {} in {}ms [{}] (request id: {}).",
+                    trace.getMethod(), trace.getUri(), trace.getStatus(), millis,
+                    trace.getTimings(), trace.getRequestId(), trace.getError());
+        } else if (log.isInfoEnabled()) {
+            log.info("{} {} returned status {} in {}ms [{}] (request id: {}).",
+                    trace.getMethod(), trace.getUri(), trace.getStatus(), millis,
+                    trace.getTimings(), trace.getRequestId());
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static io.orchestrate.client.Preconditions.checkArgument;
+
+/**
+ * The metrics for a type of operation performed by a {@code Client}. The
+ * values are live and are updated as requests complete.
+ *
+ * <pre>
+ * {@code
+ * OperationMetrics kvGets = client.getMetrics().get(OperationType.KV_GET);
+ * long p99 = kvGets.getLatency(99, TimeUnit.MILLISECONDS);
+ * }
+ * </pre>
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    /** The phases of a request, cached to avoid a copy of the array on each use. */
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+    /** The number of HTTP status codes tracked, 0 is a request with no response. */
+    private static final int STATUS_CODES = 600;
+
+    /** The type of operation. */
+    private final OperationType type;
+    /** The number of requests completed. */
+    private final StripedCounter requests;
+    /** The number of requests failed. */
+    private final StripedCounter failures;
+    /** The number of requests failed because they passed their deadline. */
+    private final StripedCounter timeouts;
+    /** The number of requests sent and not yet completed. */
+    private final StripedCounter inFlight;
+    /** The number of bytes of request bodies sent. */
+    private final StripedCounter bytesSent;
+    /** The number of bytes of response bodies received. */
+    private final StripedCounter bytesReceived;
+    /** The time from sending a request until it completes. */
+    private final LatencyHistogram latency;
+    /** The time spent in each phase of a request, indexed by the phase ordinal. */
+    private final LatencyHistogram[] phaseLatency;
+    /** The number of responses received with each status code. */
+    private final AtomicLongArray statusCounts;
+
+    OperationMetrics(final OperationType type) {
+        assert (type != null);
+
+        this.type = type;
+        this.requests = new StripedCounter();
+        this.failures = new StripedCounter();
+        this.timeouts = new StripedCounter();
+        this.inFlight = new StripedCounter();
+        this.bytesSent = new StripedCounter();
+        this.bytesReceived = new StripedCounter();
+        this.latency = new LatencyHistogram();
+        this.phaseLatency = new LatencyHistogram[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseLatency[i] = new LatencyHistogram();
+        }
+        this.statusCounts = new AtomicLongArray(STATUS_CODES);
+    }
+
+    void sent(final long contentLength) {
+        inFlight.increment();
+        if (contentLength > 0) {
+            bytesSent.add(contentLength);
+        }
+    }
+
+    void completed(
+            final int status,
+            final long durationNanos,
+            final long contentLength,
+            final boolean failed,
+            final boolean timedOut,
+            final RequestTimings timings) {
+        requests.increment();
+        if (failed) {
+            failures.increment();
+        }
+        if (timedOut) {
+            timeouts.increment();
+        }
+        if (contentLength > 0) {
+            bytesReceived.add(contentLength);
+        }
+        latency.record(durationNanos);
+        statusCounts.incrementAndGet((status > 0 && status < STATUS_CODES) ? status : 0);
+        // the response is converted after the request completes
+        for (int i = 0; i < RequestPhase.CONVERT_QUEUE.ordinal(); i++) {
+            final long nanos = timings.getNanos(i);
+            if (nanos >= 0) {
+                phaseLatency[i].record(nanos);
+            }
+        }
+    }
+
+    void converted(final RequestTimings timings) {
+        final int queue = RequestPhase.CONVERT_QUEUE.ordinal();
+        final long queueNanos = timings.getNanos(queue);
+        // only the responses converted off the I/O threads are queued
+        if (queueNanos > 0) {
+            phaseLatency[queue].record(queueNanos);
+        }
+        final int convert = RequestPhase.CONVERT.ordinal();
+        final long nanos = timings.getNanos(convert);
+        if (nanos >= 0) {
+            phaseLatency[convert].record(nanos);
+        }
+    }
+
+    void done() {
+        inFlight.decrement();
+    }
+
+    /**
+     * Returns the type of operation.
+     *
+     * @return The type of operation.
+     */
+    public OperationType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of requests that have completed (or failed).
+     *
+     * @return The number of requests completed.
+     */
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns the number of requests that have failed, including those with
+     * an error response from the service.
+     *
+     * @return The number of requests failed.
+     */
+    @Override
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of requests that failed because they didn't
+     * complete before their deadline, these are included in the failures.
+     *
+     * @return The number of requests timed out.
+     */
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Returns the number of requests sent that haven't completed yet.
+     *
+     * @return The number of requests in-flight.
+     */
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * Returns the number of bytes of request bodies sent (after compression).
+     *
+     * @return The number of bytes sent.
+     */
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Returns the number of bytes of response bodies received.
+     *
+     * @return The number of bytes received.
+     */
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Returns the latency of requests at the {@code percentile}, e.g. {@code
+     * 99} for the 99th percentile.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @param unit The unit of time to return the latency in.
+     * @return The latency at the percentile, or {@code 0} if no requests
+     *         have completed.
+     */
+    public long getLatency(final double percentile, final @NonNull TimeUnit unit) {
+        checkArgument(percentile >= 0 && percentile <= 100, "'percentile' must be between 0 and 100.");
+
+        return latency.getPercentile(percentile, unit);
+    }
+
+    /**
+     * Returns the mean latency of requests.
+     *
+     * @param unit The unit of time to return the latency in.
+     * @return The mean latency.
+     */
+    public long getMeanLatency(final @NonNull TimeUnit unit) {
+        return latency.getMean(unit);
+    }
+
+    /**
+     * Returns the highest latency of a request.
+     *
+     * @param unit The unit of time to return the latency in.
+     * @return The maximum latency.
+     */
+    public long getMaxLatency(final @NonNull TimeUnit unit) {
+        return latency.getMax(unit);
+    }
+
+    /**
+     * Returns the time requests spent in the {@code phase} at the {@code
+     * percentile}, e.g. {@code 99} for the 99th percentile.
+     *
+     * @param phase The phase of the requests.
+     * @param percentile The percentile, between 0 and 100.
+     * @param unit The unit of time to return the latency in.
+     * @return The latency of the phase at the percentile, or {@code 0} if no
+     *         requests have completed.
+     */
+    public long getPhaseLatency(
+            final @NonNull RequestPhase phase,
+            final double percentile,
+            final @NonNull TimeUnit unit) {
+        checkArgument(percentile >= 0 && percentile <= 100, "'percentile' must be between 0 and 100.");
+
+        return phaseLatency[phase.ordinal()].getPercentile(percentile, unit);
+    }
+
+    /**
+     * Returns the mean time requests spent in the {@code phase}.
+     *
+     * @param phase The phase of the requests.
+     * @param unit The unit of time to return the latency in.
+     * @return The mean latency of the phase.
+     */
+    public long getMeanPhaseLatency(final @NonNull RequestPhase phase, final @NonNull TimeUnit unit) {
+        return phaseLatency[phase.ordinal()].getMean(unit);
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        return toMillis(latency.getMean(TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public double getP50LatencyMillis() {
+        return toMillis(latency.getPercentile(50, TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public double getP90LatencyMillis() {
+        return toMillis(latency.getPercentile(90, TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public double getP99LatencyMillis() {
+        return toMillis(latency.getPercentile(99, TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public double getP999LatencyMillis() {
+        return toMillis(latency.getPercentile(99.9, TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return toMillis(latency.getMax(TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public Map<String, Double> getMeanPhaseLatencyMillis() {
+        final Map<String, Double> latencies = new LinkedHashMap<String, Double>();
+        for (int i = 0; i < PHASES.length; i++) {
+            latencies.put(PHASES[i].name(), toMillis(phaseLatency[i].getMean(TimeUnit.MICROSECONDS)));
+        }
+        return latencies;
+    }
+
+    @Override
+    public Map<String, Double> getP99PhaseLatencyMillis() {
+        final Map<String, Double> latencies = new LinkedHashMap<String, Double>();
+        for (int i = 0; i < PHASES.length; i++) {
+            latencies.put(PHASES[i].name(),
+                    toMillis(phaseLatency[i].getPercentile(99, TimeUnit.MICROSECONDS)));
+        }
+        return latencies;
+    }
+
+    /**
+     * Returns the number of responses received with each HTTP status code,
+     * requests that failed without a response are counted with status
+     * {@code 0}.
+     *
+     * @return The number of responses for each status code.
+     */
+    @Override
+    public Map<Integer, Long> getStatusCounts() {
+        final Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+        for (int i = 0; i < STATUS_CODES; i++) {
+            final long count = statusCounts.get(i);
+            if (count > 0) {
+                counts.put(i, count);
+            }
+        }
+        return counts;
+    }
+
+    private static double toMillis(final long micros) {
+        return micros / 1000.0;
+    }
+
+}
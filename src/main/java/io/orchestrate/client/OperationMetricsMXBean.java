@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import java.util.Map;
+
+/**
+ * The management interface for the metrics of a type of operation, the
+ * latencies are in milliseconds.
+ *
+ * @see OperationMetrics
+ */
+public interface OperationMetricsMXBean {
+
+    /** The number of requests completed (or failed). */
+    public long getRequestCount();
+
+    /** The number of requests failed. */
+    public long getFailureCount();
+
+    /** The number of requests failed because they passed their deadline. */
+    public long getTimeoutCount();
+
+    /** The number of requests sent and not yet completed. */
+    public long getInFlight();
+
+    /** The number of bytes of request bodies sent. */
+    public long getBytesSent();
+
+    /** The number of bytes of response bodies received. */
+    public long getBytesReceived();
+
+    /** The mean latency. */
+    public double getMeanLatencyMillis();
+
+    /** The median latency. */
+    public double getP50LatencyMillis();
+
+    /** The 90th percentile latency. */
+    public double getP90LatencyMillis();
+
+    /** The 99th percentile latency. */
+    public double getP99LatencyMillis();
+
+    /** The 99.9th percentile latency. */
+    public double getP999LatencyMillis();
+
+    /** The highest latency. */
+    public double getMaxLatencyMillis();
+
+    /** The mean time spent in each phase of a request. */
+    public Map<String, Double> getMeanPhaseLatencyMillis();
+
+    /** The 99th percentile time spent in each phase of a request. */
+    public Map<String, Double> getP99PhaseLatencyMillis();
+
+    /** The number of responses with each HTTP status code. */
+    public Map<Integer, Long> getStatusCounts();
+
+}
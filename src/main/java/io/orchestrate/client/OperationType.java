@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+
+/**
+ * The types of operation on the Orchestrate service that metrics are
+ * recorded for.
+ *
+ * @see ClientMetrics
+ */
+public enum OperationType {
+
+    /** Fetch a KV object, or a version of it. */
+    KV_GET,
+    /** Store a KV object, with or without a key. */
+    KV_PUT,
+    /** Update a KV object with a JSON patch. */
+    KV_PATCH,
+    /** Update a KV object with a JSON merge patch. */
+    KV_MERGE,
+    /** Delete a KV object or a collection. */
+    KV_DELETE,
+    /** List the KV objects in a collection. */
+    KV_LIST,
+    /** Search a collection, or all collections. */
+    SEARCH,
+    /** Fetch, store or delete events. */
+    EVENTS,
+    /** Fetch, store or delete relationships. */
+    RELATIONSHIPS,
+    /** Perform a bulk request. */
+    BULK,
+    /** Any other request, e.g. a ping. */
+    OTHER;
+
+    /**
+     * Returns the type of operation performed by a request, from its method
+     * and path (e.g. {@code /v0/collection/key/events/type}).
+     *
+     * @param request The request header.
+     * @return The type of operation.
+     */
+    static OperationType of(final HttpRequestPacket request) {
+        final String uri = request.getRequestURI();
+        final Method method = request.getMethod();
+
+        // the segments after "/v0", scanned without splitting the path
+        int segments = 0;
+        int thirdStart = -1;
+        int thirdEnd = uri.length();
+        for (int i = 3; i < uri.length(); i++) {
+            if (uri.charAt(i) == '/') {
+                segments++;
+                if (segments == 3) {
+                    thirdStart = i + 1;
+                } else if (segments == 4) {
+                    thirdEnd = i;
+                }
+            }
+        }
+
+        if (segments == 0) {
+            if (Method.POST.equals(method)) {
+                return BULK;
+            }
+            return Method.GET.equals(method) ? SEARCH : OTHER;
+        }
+        if (segments == 1) {
+            if (Method.GET.equals(method)) {
+                final String query = request.getQueryString();
+                return (query != null && query.startsWith("query=")) ? SEARCH : KV_LIST;
+            }
+            if (Method.POST.equals(method)) {
+                return KV_PUT;
+            }
+            return Method.DELETE.equals(method) ? KV_DELETE : OTHER;
+        }
+        if (segments == 2) {
+            if (Method.GET.equals(method)) {
+                return KV_GET;
+            }
+            if (Method.PUT.equals(method)) {
+                return KV_PUT;
+            }
+            if (Method.PATCH.equals(method)) {
+                final String contentType = request.getContentType();
+                return (contentType != null && contentType.startsWith("application/merge-patch"))
+                        ? KV_MERGE
+                        : KV_PATCH;
+            }
+            return Method.DELETE.equals(method) ? KV_DELETE : OTHER;
+        }
+
+        if (uri.startsWith("refs", thirdStart) && thirdEnd - thirdStart == 4) {
+            return KV_GET;
+        }
+        if (uri.startsWith("events", thirdStart) && thirdEnd - thirdStart == 6) {
+            return EVENTS;
+        }
+        if (uri.startsWith("relation", thirdStart)) {
+            return RELATIONSHIPS;
+        }
+        return OTHER;
+    }
+
+}
@@ -15,29 +15,38 @@
  */
 package io.orchestrate.client;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.http.*;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
-import org.glassfish.grizzly.http.util.UEncoder;
-import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.NIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
-import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
-import org.glassfish.grizzly.ssl.SSLFilter;
-import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.utils.BufferOutputStream;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static io.orchestrate.client.Preconditions.*;
@@ -52,14 +61,52 @@ public class OrchestrateClient implements Client {
     private final Builder builder;
     /** The socket transport for HTTP messages. */
     private final NIOTransport transport;
-
-    private static final ThreadLocal<UEncoder> ENCODER_HOLDER = new ThreadLocal<UEncoder>(){
+    /** Whether the transport has been started. */
+    private volatile boolean transportStarted;
+    /** The pool of persistent connections to the service. */
+    private final ConnectionPool connectionPool;
+    /** The limit on requests in-flight, or {@code null} if unlimited. */
+    private final RequestLimiter requestLimiter;
+    /** The statistics for the TLS handshakes with the service. */
+    private final HandshakeStats handshakeStats;
+    /** The cache of addresses for the service. */
+    private final AddressResolver addressResolver;
+    /** The compressor for request bodies, or {@code null} if disabled. */
+    private final RequestCompressor requestCompressor;
+    /** The pool to convert large responses on, or {@code null} if disabled. */
+    private final ResponseConversionPool conversionPool;
+    /** The performance metrics for requests. */
+    private final ClientMetrics metrics;
+    /** The tracer for requests, or {@code null} if disabled. */
+    private final RequestTracer requestTracer;
+    /** Chooses the requests to trace. */
+    private final TraceSampler traceSampler;
+    /** The next health check of idle connections, or {@code null} if disabled. */
+    private volatile TimerWheel.Timeout healthCheck;
+    /** Whether the client has been closed. */
+    private volatile boolean closed;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The time (in milliseconds) a connection health check may take. */
+    private static final long HEALTH_CHECK_TIMEOUT = 5000;
+
+    /** The maximum number of encoded collection names to cache. */
+    private static final int MAX_ENCODED_COLLECTIONS = 1024;
+    /** The largest builder to keep for reuse when building URIs. */
+    private static final int MAX_BUILDER_CAPACITY = 1024;
+
+    private static final ThreadLocal<StringBuilder> BUILDER_HOLDER = new ThreadLocal<StringBuilder>(){
         @Override
-        protected UEncoder initialValue() {
-            return new UEncoder();
+        protected StringBuilder initialValue() {
+            return new StringBuilder(128);
         }
     };
 
+    /** The cache of collection names to their encoded form. */
+    private final ConcurrentMap<String, String> encodedCollections =
+            new ConcurrentHashMap<String, String>();
+
     /**
      * Create a new {@code client} with the specified {@code apiKey} and default
      * {@code JacksonMapper}.
@@ -108,14 +155,14 @@ public class OrchestrateClient implements Client {
                 .setPoolName("OrchestrateClientPool")
                 .setCorePoolSize(builder.poolSize)
                 .setMaxPoolSize(builder.maxPoolSize);
-        // TODO add support for GZip compression
         final FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless()
                 .add(new TransportFilter());
+        this.handshakeStats = new HandshakeStats();
         if (builder.useSSL) {
-            final SSLEngineConfigurator serverConfig = initializeSSL();
-            final SSLEngineConfigurator clientConfig = serverConfig.copy().setClientMode(true);
+            final SSLEngineConfigurator clientConfig =
+                    new ClientSSLEngineConfigurator(builder.host.getHost(), builder.port);
 
-            filterChainBuilder.add(new SSLFilter(serverConfig, clientConfig));
+            filterChainBuilder.add(new HandshakeTrackingSSLFilter(clientConfig, handshakeStats));
         }
 
         HttpClientFilter httpClientFilter = new HttpClientFilter();
@@ -124,20 +171,49 @@ public class OrchestrateClient implements Client {
         filterChainBuilder
                 .add(httpClientFilter)
                 .add(new ClientFilter(builder.apiKey, builder.host, builder.userAgent));
-        // TODO experiment with the Leader-Follower IOStrategy
         this.transport = TCPNIOTransportBuilder.newInstance()
                 .setTcpNoDelay(true)
                 .setKeepAlive(true)
-                .setWorkerThreadPoolConfig(poolConfig)
-                .setIOStrategy(WorkerThreadIOStrategy.getInstance())
+                .setWorkerThreadPoolConfig(
+                        (builder.ioStrategy.usesWorkerThreads() && builder.workerExecutor == null)
+                                ? poolConfig
+                                : null)
+                .setIOStrategy(builder.ioStrategy.getIOStrategy())
                 .setProcessor(filterChainBuilder.build())
                 .build();
-    }
+        if (builder.workerExecutor != null) {
+            // the transport doesn't shut down an executor it doesn't own
+            transport.setWorkerThreadPool(builder.workerExecutor);
+        }
+        this.connectionPool = new ConnectionPool(transport,
+                builder.minConnectionsPerHost,
+                builder.maxConnectionsPerHost,
+                builder.idleConnectionTimeout,
+                builder.pipelineDepth);
+        this.addressResolver = new AddressResolver(builder.host.getHost(), builder.port,
+                builder.addressCacheTtl, builder.addressSelection, connectionPool, builder.nameService);
+        this.requestLimiter = (builder.maxInFlightRequests == Integer.MAX_VALUE)
+                ? null
+                : new RequestLimiter(builder.maxInFlightRequests, builder.backpressureMode);
+        this.requestCompressor = (builder.compressionThreshold == Integer.MAX_VALUE)
+                ? null
+                : new RequestCompressor(builder.compressionThreshold, transport.getMemoryManager());
+        this.conversionPool = (builder.conversionThreshold == Integer.MAX_VALUE)
+                ? null
+                : new ResponseConversionPool(builder.conversionThreshold, builder.conversionPoolSize);
+        this.metrics = new ClientMetrics();
+        if (builder.jmxMetrics) {
+            metrics.registerMBeans();
+        }
+        this.requestTracer = builder.requestTracer;
+        this.traceSampler = builder.traceSampler;
 
-    private static SSLEngineConfigurator initializeSSL() {
-        final SSLContextConfigurator sslContextConfig = new SSLContextConfigurator();
-        return new SSLEngineConfigurator(sslContextConfig.createSSLContext(),
-                false, false, false);
+        if (builder.healthCheckIntervalMillis > 0) {
+            scheduleHealthCheck();
+        }
+        if (builder.warmUpConnections > 0) {
+            warmUp(builder.warmUpConnections);
+        }
     }
 
 //    <T> SafeFutureImpl<HttpContent> execute(
@@ -167,25 +243,391 @@ public class OrchestrateClient implements Client {
 //        return future;
 //    }
 
-    void execute(
-            final HttpContent request,
-            final ConnectionCompletionHandler handler) {
+    void execute(final OrchestrateRequest<?> request, final HttpContent httpRequest) {
         assert (request != null);
-        assert (handler != null);
+        assert (httpRequest != null);
+
+        if (requestLimiter == null) {
+            dispatch(request, httpRequest);
+            return;
+        }
 
         try {
-            if (transport.isStopped()) {
-                transport.start();
-            }
+            requestLimiter.acquire(new RequestLimiter.Task() {
+                @Override
+                public boolean run() {
+                    // the request may have been cancelled while queued, its
+                    // permit is handed on rather than returned from its own
+                    // completion
+                    if (request.isDone()) {
+                        return false;
+                    }
+                    request.onDone(new Runnable() {
+                        @Override
+                        public void run() {
+                            requestLimiter.release();
+                        }
+                    });
+                    if (!request.isDone()) {
+                        dispatch(request, httpRequest);
+                    }
+                    return true;
+                }
+            });
+        } catch (final TooManyInFlightRequestsException e) {
+            request.failed(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.failed(new ClientException(e));
+        }
+    }
+
+    void dispatch(final OrchestrateRequest<?> request, final HttpContent httpRequest) {
+        request.getTimings().dispatched();
+        final ConnectionCompletionHandler handler =
+                new ConnectionCompletionHandler(request, httpRequest);
+        try {
+            startTransport();
 
-            final InetSocketAddress addr =
-                    new InetSocketAddress(builder.host.getHost(), builder.port);
-            transport.connect(addr, handler);
+            final InetSocketAddress addr = addressResolver.resolve();
+            // only idempotent requests are safe to pipeline
+            connectionPool.lease(addr, handler, isIdempotent(httpRequest));
         } catch (final IOException e) {
             handler.failed(e);
         }
     }
 
+    /**
+     * Send the request again after the connect to the {@code address} failed,
+     * unless it has failed to connect to each of the host's addresses.
+     *
+     * @return {@code true} if the request was sent again.
+     */
+    boolean failover(
+            final OrchestrateRequest<?> request,
+            final HttpContent httpRequest,
+            final SocketAddress address,
+            final int connectFailures) {
+        addressResolver.connectFailed(address);
+        if (connectFailures >= addressResolver.size()) {
+            return false;
+        }
+        dispatch(request, httpRequest);
+        return true;
+    }
+
+    private void startTransport() throws IOException {
+        // the transport is started on the first request, which may be sent
+        // from many threads at once
+        if (!transportStarted) {
+            synchronized (transport) {
+                if (!transportStarted) {
+                    transport.start();
+                    transportStarted = true;
+                }
+            }
+        }
+    }
+
+    static boolean isIdempotent(final HttpContent request) {
+        final Method method = ((HttpRequestPacket) request.getHttpHeader()).getMethod();
+        return Method.GET.equals(method) || Method.HEAD.equals(method);
+    }
+
+    /**
+     * Serializes the values as JSON into buffers allocated by the transport's
+     * memory manager, the buffers are returned to the pool once the request
+     * has been written. Strings are sent as-is.
+     */
+    Buffer toJsonBuffer(final JacksonMapper mapper, final Object... values) {
+        final MemoryManager memoryManager = transport.getMemoryManager();
+        if (values.length == 1 && values[0] instanceof String) {
+            // the wrapped array isn't owned by the pool, so it's not disposed
+            return Buffers.wrap(memoryManager, ((String) values[0]).getBytes(UTF8));
+        }
+
+        final BufferOutputStream out = new BufferOutputStream(memoryManager);
+        try {
+            for (final Object value : values) {
+                if (value instanceof String) {
+                    out.write(((String) value).getBytes(UTF8));
+                } else {
+                    mapper.writer(value.getClass()).writeValue(out, value);
+                }
+            }
+        } catch (final Exception e) {
+            throw new RuntimeException(e); // FIXME
+        }
+
+        final Buffer buffer = out.getBuffer();
+        buffer.flip();
+        buffer.allowBufferDispose(true);
+        return buffer;
+    }
+
+    /**
+     * Fail a request that didn't complete before its deadline. The timer
+     * thread hands the request off to a worker thread (if the I/O strategy
+     * uses them) so that listeners don't run on the timer thread.
+     */
+    void expire(final OrchestrateRequest<?> request, final RequestTimeoutException error) {
+        runOffTimer(new Runnable() {
+            @Override
+            public void run() {
+                request.expire(error);
+            }
+        });
+    }
+
+    /**
+     * Run a task from the timer thread on a worker thread (if the I/O
+     * strategy uses them), otherwise on the calling thread.
+     */
+    private void runOffTimer(final Runnable task) {
+        final ExecutorService workers = transport.getWorkerThreadPool();
+        if (workers != null) {
+            try {
+                workers.execute(task);
+                return;
+            } catch (final RejectedExecutionException ignored) {
+                // the transport is stopping
+            }
+        }
+        task.run();
+    }
+
+    private void scheduleHealthCheck() {
+        healthCheck = TimerWheel.shared().schedule(new Runnable() {
+            @Override
+            public void run() {
+                runOffTimer(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (closed) {
+                            return;
+                        }
+                        try {
+                            checkIdleConnections();
+                        } finally {
+                            scheduleHealthCheck();
+                        }
+                    }
+                });
+            }
+        }, builder.healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        if (closed) {
+            // raced with close()
+            healthCheck.cancel();
+        }
+    }
+
+    /**
+     * Send a {@code HEAD} request on each connection that has been idle for
+     * the health check interval, a connection that fails the check (or
+     * doesn't answer in time) is closed and evicted from the pool. Expired
+     * idle connections are closed too.
+     */
+    private void checkIdleConnections() {
+        final List<Connection> idle = connectionPool.leaseIdle(builder.healthCheckIntervalMillis);
+        for (final Connection connection : idle) {
+            final OrchestrateRequest<Void> check = newPing(false);
+            check.timeout(HEALTH_CHECK_TIMEOUT, TimeUnit.MILLISECONDS);
+            check.on(new ResponseAdapter<Void>() {
+                @Override
+                public void onFailure(final Throwable error) {
+                    log.debug("Health check failed for connection to {}.", connection.getPeerAddress(), error);
+                    // an error response doesn't mean the connection is broken
+                    if (!(error instanceof ClientException) || error instanceof RequestTimeoutException) {
+                        connection.closeSilently();
+                    }
+                }
+            });
+            check.sendOn(connection);
+        }
+    }
+
+    /**
+     * Open up to {@code connections} connections to the service (including
+     * the TLS handshake) and send a {@code HEAD} request on each, so that
+     * the first requests don't pay the cost of connecting. The connections
+     * are returned to the pool, set {@link Builder#minConnectionsPerHost(int)}
+     * to keep them open while idle.
+     *
+     * @param connections The number of connections to open, at most the
+     *                    maximum connections per host are opened.
+     * @return The future number of connections that were warmed up.
+     * @see Builder#warmUpConnections(int)
+     */
+    public OrchestrateFuture<Integer> warmUp(final int connections) {
+        checkArgument(connections > 0, "'connections' must be greater than 0.");
+
+        final int count = Math.min(connections, builder.maxConnectionsPerHost);
+        final List<OrchestrateFuture<Boolean>> pings = new ArrayList<OrchestrateFuture<Boolean>>(count);
+        for (int i = 0; i < count; i++) {
+            pings.add(newPing(true).toFuture()
+                    .thenApply(new Continuation<Void, Boolean>() {
+                        @Override
+                        public Boolean apply(final Void value) {
+                            return Boolean.TRUE;
+                        }
+                    })
+                    .exceptionally(new Continuation<Throwable, Boolean>() {
+                        @Override
+                        public Boolean apply(final Throwable error) {
+                            log.warn("Failed to warm up a connection.", error);
+                            return Boolean.FALSE;
+                        }
+                    }));
+        }
+        return OrchestrateFuture.allOf(pings).thenApply(new Continuation<List<Boolean>, Integer>() {
+            @Override
+            public Integer apply(final List<Boolean> results) {
+                int warmed = 0;
+                for (final Boolean result : results) {
+                    if (result) {
+                        warmed++;
+                    }
+                }
+                log.debug("Warmed up {} of {} connections.", warmed, count);
+                return warmed;
+            }
+        });
+    }
+
+    /**
+     * Hand the {@code conversion} of a large response to the conversion pool.
+     *
+     * @return {@code false} if the response should be converted on the
+     *         calling thread.
+     */
+    boolean offloadConversion(final HttpContent response, final Runnable conversion) {
+        return (conversionPool != null) && conversionPool.offload(response, conversion);
+    }
+
+    /**
+     * Returns the default time (in nanoseconds) a request may take, {@code 0}
+     * for no deadline.
+     */
+    long getRequestTimeoutNanos() {
+        return builder.requestTimeoutNanos;
+    }
+
+    /**
+     * Returns whether the values of the results on a page are kept as raw
+     * JSON and bound on first use.
+     */
+    boolean isLazyValues() {
+        return builder.lazyValues;
+    }
+
+    /**
+     * Returns the request with its body compressed if it's at or above the
+     * compression threshold.
+     */
+    HttpContent compress(final HttpContent httpRequest) {
+        return (requestCompressor == null)
+                ? httpRequest
+                : requestCompressor.compress(httpRequest);
+    }
+
+    /**
+     * Records the metrics for the completed request, and passes it to the
+     * tracer if it's chosen by the sampler. Nothing is allocated for requests
+     * that aren't traced.
+     */
+    void completed(
+            final HttpContent httpRequest,
+            final OperationType operation,
+            final RequestTimings timings,
+            @Nullable final HttpContent response,
+            @Nullable final Throwable error) {
+        final int status;
+        if (response != null) {
+            status = ((HttpResponsePacket) response.getHttpHeader()).getStatus();
+        } else if (error instanceof RequestException) {
+            status = ((RequestException) error).getStatusCode();
+        } else {
+            status = 0;
+        }
+        final long durationNanos = System.nanoTime() - timings.getSentNanos();
+        final long contentLength = (response != null) ? response.getContent().remaining() : 0;
+        metrics.get(operation).completed(status, durationNanos, contentLength,
+                error != null, error instanceof RequestTimeoutException, timings);
+
+        if (requestTracer == null
+                || !traceSampler.isSampled(status, durationNanos, error != null)) {
+            return;
+        }
+
+        final String requestId;
+        if (response != null) {
+            requestId = response.getHttpHeader().getHeader("x-orchestrate-req-id");
+        } else if (error instanceof RequestException) {
+            requestId = ((RequestException) error).getRequestId();
+        } else {
+            requestId = null;
+        }
+        final HttpRequestPacket header = (HttpRequestPacket) httpRequest.getHttpHeader();
+        try {
+            requestTracer.trace(new RequestTrace(header.getMethod().getMethodString(),
+                    header.getRequestURI(), header.getQueryString(), status, requestId,
+                    durationNanos, timings, error));
+        } catch (final RuntimeException e) {
+            log.warn("Failed to trace request.", e);
+        }
+    }
+
+    /**
+     * Returns the performance metrics for the requests made by this client.
+     *
+     * @return The client metrics.
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the statistics for the TLS handshakes performed by this client,
+     * the values are all {@code 0} if the client doesn't use SSL.
+     *
+     * @return The TLS handshake statistics.
+     */
+    public HandshakeStats getHandshakeStats() {
+        return handshakeStats;
+    }
+
+    /**
+     * Returns an executor that runs tasks on the client's worker threads, the
+     * threads that process responses. Use it to run the steps of an {@link
+     * OrchestrateFuture} that must not block the selector thread.
+     *
+     * @return The executor for the client's worker threads.
+     * @throws IllegalStateException If the client's I/O strategy doesn't use
+     *         worker threads.
+     * @see Builder#ioStrategy(IOStrategyType)
+     */
+    public Executor getWorkerExecutor() {
+        if (!builder.ioStrategy.usesWorkerThreads()) {
+            throw new IllegalStateException(
+                    "The '" + builder.ioStrategy + "' I/O strategy doesn't use worker threads.");
+        }
+        return new Executor() {
+            @Override
+            public void execute(final Runnable task) {
+                try {
+                    startTransport();
+                } catch (final IOException e) {
+                    throw new RejectedExecutionException(e);
+                }
+                final ExecutorService workers = transport.getWorkerThreadPool();
+                if (workers == null) {
+                    throw new RejectedExecutionException("The client has been stopped.");
+                }
+                workers.execute(task);
+            }
+        };
+    }
+
     /** {@inheritDoc} */
     @Override
     public BulkResource bulk() {
@@ -195,9 +637,22 @@ public class OrchestrateClient implements Client {
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException {
+        closed = true;
+        final TimerWheel.Timeout check = healthCheck;
+        if (check != null) {
+            check.cancel();
+        }
+        connectionPool.close();
         if (transport != null && !transport.isStopped()) {
             transport.shutdownNow();
         }
+        if (requestCompressor != null) {
+            requestCompressor.close();
+        }
+        if (conversionPool != null) {
+            conversionPool.close();
+        }
+        metrics.unregisterMBeans();
     }
 
     /** {@inheritDoc} */
@@ -253,6 +708,10 @@ public class OrchestrateClient implements Client {
     /** {@inheritDoc} */
     @Override
     public void ping() throws IOException {
+        newPing(true).get(5000, TimeUnit.MILLISECONDS);
+    }
+
+    private OrchestrateRequest<Void> newPing(final boolean sendImmediate) {
         final String uri = uri("");
 
         final HttpContent packet = HttpRequestPacket.builder()
@@ -262,7 +721,7 @@ public class OrchestrateClient implements Client {
                 .httpContentBuilder()
                 .build();
 
-        new OrchestrateRequest<Void>(this, packet, new ResponseConverter<Void>() {
+        return new OrchestrateRequest<Void>(this, packet, new ResponseConverter<Void>() {
             @Override
             public Void from(final HttpContent response) throws IOException {
                 final int status = ((HttpResponsePacket) response.getHttpHeader()).getStatus();
@@ -271,7 +730,7 @@ public class OrchestrateClient implements Client {
                 }
                 return null;
             }
-        }).get(5000, TimeUnit.MILLISECONDS);
+        }, sendImmediate);
     }
 
     /** {@inheritDoc} */
@@ -288,14 +747,7 @@ public class OrchestrateClient implements Client {
         checkNotNullOrEmpty(collection, "collection");
         checkNotNull(value, "value");
 
-        final byte[] content;
-        try {
-            content = (value instanceof String)
-                    ? ((String) value).getBytes(Charset.forName("UTF-8"))
-                    : builder.mapper.getMapper().writeValueAsBytes(value);
-        } catch (final Exception e) {
-            throw new RuntimeException(e); // FIXME
-        }
+        final Buffer content = toJsonBuffer(builder.mapper, value);
 
         final String uri = this.uri(collection);
 
@@ -303,11 +755,11 @@ public class OrchestrateClient implements Client {
                 .method(Method.POST)
                 .contentType("application/json")
                 .uri(uri)
-                .contentLength(content.length);
+                .contentLength(content.remaining());
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
         return new OrchestrateRequest<KvMetadata>(this, packet, new ResponseConverter<KvMetadata>() {
             @Override
@@ -317,10 +769,8 @@ public class OrchestrateClient implements Client {
 
                 if (status == 201) {
                     final String key = header.getHeader(Header.Location).split("/")[3];
-                    final String ref = header.getHeader(Header.ETag)
-                            .replace("\"", "")
-                            .replace("-gzip", "");
-                    return new KvObject<Void>(collection, key, ref, null, builder.mapper.getMapper(), null, null, null);
+                    final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
+                    return new KvObject<Void>(collection, key, ref, null, builder.mapper, null, (JsonNode) null, null);
                 }
                 return null;
             }
@@ -372,6 +822,7 @@ public class OrchestrateClient implements Client {
      *         .port(80)           // optional
      *         .poolSize(Runtime.getRuntime().availableProcessors()) // optional
      *         .maxPoolSize(15)    // optional
+     *         .maxConnectionsPerHost(32) // optional
      *         .build();
      * }
      * </pre>
@@ -382,6 +833,28 @@ public class OrchestrateClient implements Client {
         public static final String DEFAULT_HOST = "https://api.orchestrate.io";
         /** The default port for the Orchestrate.io service. */
         public static final int DEFAULT_PORT = 443;
+        /** The default maximum number of connections to open per host. */
+        public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 64;
+        /** The default time (in milliseconds) to keep an idle connection open. */
+        public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+        /** The default number of requests in-flight per connection (pipelining disabled). */
+        public static final int DEFAULT_PIPELINE_DEPTH = 1;
+        /** The default maximum number of requests in-flight (unlimited). */
+        public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = Integer.MAX_VALUE;
+        /** The default time (in milliseconds) to cache resolved addresses. */
+        public static final long DEFAULT_ADDRESS_CACHE_TTL = 60000;
+        /** The default minimum size (in bytes) of request body to compress (compression disabled). */
+        public static final int DEFAULT_COMPRESSION_THRESHOLD = Integer.MAX_VALUE;
+        /** The default time (in milliseconds) a request may take (no deadline). */
+        public static final long DEFAULT_REQUEST_TIMEOUT = 0;
+        /** The default minimum size (in bytes) of response body to convert off the I/O threads (disabled). */
+        public static final int DEFAULT_CONVERSION_THRESHOLD = Integer.MAX_VALUE;
+        /** The default number of connections to open when the client is built (none). */
+        public static final int DEFAULT_WARM_UP_CONNECTIONS = 0;
+        /** The default time (in milliseconds) between health checks of idle connections (disabled). */
+        public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 0;
+        /** The default for whether to bind the values of results on first use (disabled). */
+        public static final boolean DEFAULT_LAZY_VALUES = false;
 
         /** An API key for the Orchestrate.io service. */
         private final String apiKey;
@@ -393,12 +866,54 @@ public class OrchestrateClient implements Client {
         private int poolSize;
         /** The maximum size of the thread pool to use with the client. */
         private int maxPoolSize;
+        /** The executor to process I/O events with, or {@code null} for a thread pool. */
+        private ExecutorService workerExecutor;
         /** The configured JSON mapper. */
         private JacksonMapper mapper;
         /** Whether to use SSL with the connection. */
         private boolean useSSL;
         /** Value to append as the "User-Agent" in requests to Orchestrate. */
         private String userAgent;
+        /** The number of idle connections to keep open per host. */
+        private int minConnectionsPerHost;
+        /** The maximum number of connections to open per host. */
+        private int maxConnectionsPerHost;
+        /** The time (in milliseconds) to keep an idle connection open. */
+        private long idleConnectionTimeout;
+        /** The maximum number of requests in-flight on a single connection. */
+        private int pipelineDepth;
+        /** The maximum number of requests in-flight at once. */
+        private int maxInFlightRequests;
+        /** What to do with requests sent while at the in-flight limit. */
+        private BackpressureMode backpressureMode;
+        /** The time (in milliseconds) to cache resolved addresses. */
+        private long addressCacheTtl;
+        /** How to choose between the resolved addresses. */
+        private AddressSelection addressSelection;
+        /** The name service to resolve the host with. */
+        private AddressResolver.NameService nameService;
+        /** The strategy to process network I/O events with. */
+        private IOStrategyType ioStrategy;
+        /** The minimum size (in bytes) of request body to compress. */
+        private int compressionThreshold;
+        /** The minimum size (in bytes) of response body to convert off the I/O threads. */
+        private int conversionThreshold;
+        /** The number of threads to convert large responses on. */
+        private int conversionPoolSize;
+        /** Whether to bind the values of results on first use. */
+        private boolean lazyValues;
+        /** The number of connections to open when the client is built. */
+        private int warmUpConnections;
+        /** The time (in milliseconds) between health checks of idle connections, {@code 0} to disable. */
+        private long healthCheckIntervalMillis;
+        /** The tracer for requests. */
+        private RequestTracer requestTracer;
+        /** Chooses the requests to trace. */
+        private TraceSampler traceSampler;
+        /** Whether to publish the client metrics over JMX. */
+        private boolean jmxMetrics;
+        /** The time (in nanoseconds) a request may take, {@code 0} for no deadline. */
+        private long requestTimeoutNanos;
 
         private Builder(final String apiKey) {
             checkNotNullOrEmpty(apiKey, "apiKey");
@@ -410,6 +925,24 @@ public class OrchestrateClient implements Client {
             maxPoolSize(Integer.MAX_VALUE);
             mapper(JacksonMapper.builder());
             useSSL(Boolean.TRUE);
+            minConnectionsPerHost(0);
+            maxConnectionsPerHost(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+            idleConnectionTimeout(DEFAULT_IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+            pipelineDepth(DEFAULT_PIPELINE_DEPTH);
+            maxInFlightRequests(DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+            backpressureMode(BackpressureMode.QUEUE);
+            addressCacheTtl(DEFAULT_ADDRESS_CACHE_TTL, TimeUnit.MILLISECONDS);
+            addressSelection(AddressSelection.ROUND_ROBIN);
+            nameService(AddressResolver.SYSTEM_NAME_SERVICE);
+            ioStrategy(IOStrategyType.WORKER_THREAD);
+            compressionThreshold(DEFAULT_COMPRESSION_THRESHOLD);
+            conversionThreshold(DEFAULT_CONVERSION_THRESHOLD);
+            conversionPoolSize(Runtime.getRuntime().availableProcessors());
+            lazyValues(DEFAULT_LAZY_VALUES);
+            warmUpConnections(DEFAULT_WARM_UP_CONNECTIONS);
+            healthCheckInterval(DEFAULT_HEALTH_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            traceSampler(TraceSamplers.always());
+            requestTimeout(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
         }
 
         /**
@@ -468,6 +1001,33 @@ public class OrchestrateClient implements Client {
             return this;
         }
 
+        /**
+         * The executor to process network I/O events (and run response
+         * listeners) with, replacing the client's own thread pool. For
+         * example, on Java 21 or later a virtual-thread-per-task executor:
+         *
+         * <pre>
+         * {@code
+         * ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+         * Client client = OrchestrateClient.builder("your api key")
+         *         .workerExecutor(executor)
+         *         .build();
+         * }
+         * </pre>
+         *
+         * <p>The pool sizes don't apply to the executor, and the executor is
+         * not shut down when the client is closed. The I/O strategy must use
+         * worker threads.</p>
+         *
+         * @param workerExecutor The executor to process I/O events with.
+         * @return This builder.
+         * @see #ioStrategy(IOStrategyType)
+         */
+        public Builder workerExecutor(final @NonNull ExecutorService workerExecutor) {
+            this.workerExecutor = workerExecutor;
+            return this;
+        }
+
         /**
          * The Jackson JSON {@code ObjectMapper} to use when marshalling data to
          * and from the service, defaults to {@link io.orchestrate.client.JacksonMapper#builder()}.
@@ -530,46 +1090,396 @@ public class OrchestrateClient implements Client {
             return this;
         }
 
+        /**
+         * The number of idle connections to keep open to each host, defaults
+         * to {@code 0}. Idle connections beyond this number are closed once
+         * they've been unused for longer than the idle connection timeout.
+         *
+         * @param minConnectionsPerHost The number of idle connections to keep open.
+         * @return This builder.
+         * @see #idleConnectionTimeout(long, TimeUnit)
+         */
+        public Builder minConnectionsPerHost(final int minConnectionsPerHost) {
+            this.minConnectionsPerHost = checkNotNegative(minConnectionsPerHost, "minConnectionsPerHost");
+
+            return this;
+        }
+
+        /**
+         * The maximum number of connections to open to each host, defaults to
+         * {@code Builder.DEFAULT_MAX_CONNECTIONS_PER_HOST}. Requests sent while
+         * all connections are in use wait for a connection to be returned to
+         * the pool.
+         *
+         * @param maxConnectionsPerHost The maximum number of connections to open.
+         * @return This builder.
+         * @see Builder#DEFAULT_MAX_CONNECTIONS_PER_HOST
+         */
+        public Builder maxConnectionsPerHost(final int maxConnectionsPerHost) {
+            checkArgument(maxConnectionsPerHost > 0, "'maxConnectionsPerHost' must be greater than 0.");
+
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * The time to keep an idle connection open for reuse, defaults to
+         * {@code Builder.DEFAULT_IDLE_CONNECTION_TIMEOUT} milliseconds.
+         *
+         * @param timeout The time to keep an idle connection open.
+         * @param unit The unit of time for the {@code timeout}.
+         * @return This builder.
+         * @see Builder#DEFAULT_IDLE_CONNECTION_TIMEOUT
+         */
+        public Builder idleConnectionTimeout(final long timeout, final @NonNull TimeUnit unit) {
+            checkNotNegative(timeout, "timeout");
+
+            this.idleConnectionTimeout = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * The number of connections to open (and send a {@code HEAD} request
+         * on) when the client is built, so that the first requests don't wait
+         * to connect or for the TLS handshake. Defaults to {@code
+         * Builder.DEFAULT_WARM_UP_CONNECTIONS} which opens connections only
+         * when needed. The warm-up runs in the background, {@link
+         * OrchestrateClient#warmUp(int)} can be used to wait for it instead.
+         *
+         * @param warmUpConnections The number of connections to open.
+         * @return This builder.
+         * @see Builder#DEFAULT_WARM_UP_CONNECTIONS
+         * @see #minConnectionsPerHost(int)
+         */
+        public Builder warmUpConnections(final int warmUpConnections) {
+            this.warmUpConnections = checkNotNegative(warmUpConnections, "warmUpConnections");
+            return this;
+        }
+
+        /**
+         * The time between health checks of idle connections, defaults to
+         * {@code Builder.DEFAULT_HEALTH_CHECK_INTERVAL} which disables them.
+         * Each check sends a {@code HEAD} request on the connections that have
+         * been idle since the last check, a connection that fails (or doesn't
+         * answer in time) is closed so it's not leased to a request. Expired
+         * idle connections are closed by the checks too.
+         *
+         * @param interval The time between health checks, {@code 0} to disable.
+         * @param unit The unit of time for the {@code interval}.
+         * @return This builder.
+         * @see Builder#DEFAULT_HEALTH_CHECK_INTERVAL
+         */
+        public Builder healthCheckInterval(final long interval, final @NonNull TimeUnit unit) {
+            checkNotNegative(interval, "interval");
+
+            this.healthCheckIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * The maximum number of requests to send on a single connection
+         * before their responses are received (HTTP/1.1 pipelining), defaults
+         * to {@code Builder.DEFAULT_PIPELINE_DEPTH} which disables pipelining.
+         *
+         * <p>Only idempotent requests ({@code GET} and {@code HEAD}) are
+         * pipelined, other requests always have a connection to themselves.
+         * Note that a slow response delays every response pipelined behind
+         * it on the same connection.</p>
+         *
+         * @param pipelineDepth The maximum number of requests in-flight per connection.
+         * @return This builder.
+         * @see Builder#DEFAULT_PIPELINE_DEPTH
+         */
+        public Builder pipelineDepth(final int pipelineDepth) {
+            checkArgument(pipelineDepth > 0, "'pipelineDepth' must be greater than 0.");
+
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        /**
+         * The maximum number of requests in-flight at once, defaults to
+         * {@code Builder.DEFAULT_MAX_IN_FLIGHT_REQUESTS} which is unlimited.
+         * A request is in-flight from when it's sent until its response has
+         * been received (or it fails or is cancelled).
+         *
+         * @param maxInFlightRequests The maximum number of requests in-flight.
+         * @return This builder.
+         * @see #backpressureMode(BackpressureMode)
+         * @see Builder#DEFAULT_MAX_IN_FLIGHT_REQUESTS
+         */
+        public Builder maxInFlightRequests(final int maxInFlightRequests) {
+            checkArgument(maxInFlightRequests > 0, "'maxInFlightRequests' must be greater than 0.");
+
+            this.maxInFlightRequests = maxInFlightRequests;
+            return this;
+        }
+
+        /**
+         * What to do with requests sent while the maximum number of requests
+         * are in-flight, defaults to {@link BackpressureMode#QUEUE}.
+         *
+         * @param backpressureMode The behaviour at the in-flight limit.
+         * @return This builder.
+         * @see #maxInFlightRequests(int)
+         */
+        public Builder backpressureMode(final @NonNull BackpressureMode backpressureMode) {
+            this.backpressureMode = backpressureMode;
+            return this;
+        }
+
+        /**
+         * The time to use the resolved addresses of the host before they're
+         * resolved again, defaults to {@code Builder.DEFAULT_ADDRESS_CACHE_TTL}
+         * milliseconds. Addresses are refreshed in the background, if the host
+         * can't be resolved the previous addresses continue to be used.
+         *
+         * @param ttl The time to cache resolved addresses.
+         * @param unit The unit of time for the {@code ttl}.
+         * @return This builder.
+         * @see Builder#DEFAULT_ADDRESS_CACHE_TTL
+         */
+        public Builder addressCacheTtl(final long ttl, final @NonNull TimeUnit unit) {
+            checkNotNegative(ttl, "ttl");
+
+            this.addressCacheTtl = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * How to choose between the addresses the host resolves to, defaults
+         * to {@link AddressSelection#ROUND_ROBIN}. A request that fails to
+         * connect to an address is sent to the next address, and the failed
+         * address is skipped for a while.
+         *
+         * @param addressSelection How to choose between resolved addresses.
+         * @return This builder.
+         */
+        public Builder addressSelection(final @NonNull AddressSelection addressSelection) {
+            this.addressSelection = addressSelection;
+            return this;
+        }
+
+        /** The name service to resolve the host with, e.g. a fake in tests. */
+        Builder nameService(final @NonNull AddressResolver.NameService nameService) {
+            this.nameService = nameService;
+            return this;
+        }
+
+        /**
+         * The strategy to process network I/O events with, defaults to
+         * {@link IOStrategyType#WORKER_THREAD}. The thread pool size applies
+         * only to strategies that use worker threads.
+         *
+         * @param ioStrategy The strategy to process network I/O events with.
+         * @return This builder.
+         * @see #poolSize(int)
+         * @see #maxPoolSize(int)
+         * @see #workerExecutor(ExecutorService)
+         */
+        public Builder ioStrategy(final @NonNull IOStrategyType ioStrategy) {
+            this.ioStrategy = ioStrategy;
+            return this;
+        }
+
+        /**
+         * The minimum size (in bytes) of a request body to compress with gzip,
+         * defaults to {@code Builder.DEFAULT_COMPRESSION_THRESHOLD} which
+         * disables compression. Bodies that don't get smaller when compressed
+         * are sent as-is.
+         *
+         * @param compressionThreshold The minimum size of body to compress.
+         * @return This builder.
+         * @see Builder#DEFAULT_COMPRESSION_THRESHOLD
+         */
+        public Builder compressionThreshold(final int compressionThreshold) {
+            this.compressionThreshold = checkNotNegative(compressionThreshold, "compressionThreshold");
+            return this;
+        }
+
+        /**
+         * The minimum size (in bytes) of a response body to convert (e.g.
+         * deserialize a page of search results) on a separate pool of
+         * threads, rather than the I/O thread that read the response.
+         * Defaults to {@code Builder.DEFAULT_CONVERSION_THRESHOLD} which
+         * converts all responses on the I/O threads.
+         *
+         * <p>Responses are converted on the I/O thread when the pool is
+         * saturated. The time responses wait for the pool is recorded as the
+         * {@link RequestPhase#CONVERT_QUEUE} phase.</p>
+         *
+         * @param conversionThreshold The minimum size of response body to
+         *                            convert on the pool.
+         * @return This builder.
+         * @see Builder#DEFAULT_CONVERSION_THRESHOLD
+         * @see #conversionPoolSize(int)
+         */
+        public Builder conversionThreshold(final int conversionThreshold) {
+            this.conversionThreshold = checkNotNegative(conversionThreshold, "conversionThreshold");
+            return this;
+        }
+
+        /**
+         * The number of threads to convert large responses on, defaults to
+         * the number of processors.
+         *
+         * @param conversionPoolSize The number of threads in the pool.
+         * @return This builder.
+         * @see #conversionThreshold(int)
+         */
+        public Builder conversionPoolSize(final int conversionPoolSize) {
+            checkArgument(conversionPoolSize > 0, "'conversionPoolSize' must be greater than 0.");
+
+            this.conversionPoolSize = conversionPoolSize;
+            return this;
+        }
+
+        /**
+         * Whether to keep the values of the results on a page (from a KV
+         * list, search, event or graph query) as raw JSON and only bind
+         * them on the first call to {@code getValue()}, {@code getValue(Class)}
+         * or {@code getRawValue()} on a result. Defaults to {@code
+         * Builder.DEFAULT_LAZY_VALUES}.
+         *
+         * <p>This saves binding the values of results that are never read,
+         * e.g. when paging through a collection for the keys. The results of
+         * a page share a copy of the response body until they're all
+         * garbage collected.</p>
+         *
+         * @param lazyValues {@code true} to bind values on first use.
+         * @return This builder.
+         * @see Builder#DEFAULT_LAZY_VALUES
+         */
+        public Builder lazyValues(final boolean lazyValues) {
+            this.lazyValues = lazyValues;
+            return this;
+        }
+
+        /**
+         * The tracer to pass completed requests to, by default requests are
+         * not traced.
+         *
+         * @param requestTracer The tracer for requests.
+         * @return This builder.
+         * @see #traceSampler(TraceSampler)
+         * @see LoggingRequestTracer
+         */
+        public Builder requestTracer(final @NonNull RequestTracer requestTracer) {
+            this.requestTracer = requestTracer;
+            return this;
+        }
+
+        /**
+         * Chooses which requests are traced, defaults to
+         * {@link TraceSamplers#always()}.
+         *
+         * @param traceSampler The sampler for traces.
+         * @return This builder.
+         * @see #requestTracer(RequestTracer)
+         * @see TraceSamplers
+         */
+        public Builder traceSampler(final @NonNull TraceSampler traceSampler) {
+            this.traceSampler = traceSampler;
+            return this;
+        }
+
+        /**
+         * Whether to publish the client metrics over JMX with the platform
+         * MBean server, defaults to {@code false}.
+         *
+         * @param jmxMetrics {@code true} to publish the metrics over JMX.
+         * @return This builder.
+         * @see OrchestrateClient#getMetrics()
+         */
+        public Builder jmxMetrics(final boolean jmxMetrics) {
+            this.jmxMetrics = jmxMetrics;
+            return this;
+        }
+
+        /**
+         * The time a request may take from when it's sent until its response
+         * is received, defaults to {@code Builder.DEFAULT_REQUEST_TIMEOUT}
+         * which sets no deadline. The time spent waiting for a connection is
+         * included. A request that passes its deadline fails with a {@link
+         * RequestTimeoutException}, and the connection it was sent on is
+         * closed so it can't be held by a slow response.
+         *
+         * <p>The deadline can be changed for a single request with {@link
+         * OrchestrateRequest#timeout(long, TimeUnit)}.</p>
+         *
+         * @param timeout The time a request may take, {@code 0} for no deadline.
+         * @param unit The unit of time for the {@code timeout}.
+         * @return This builder.
+         * @see Builder#DEFAULT_REQUEST_TIMEOUT
+         */
+        public Builder requestTimeout(final long timeout, final @NonNull TimeUnit unit) {
+            checkNotNegative(timeout, "timeout");
+
+            this.requestTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
         public OrchestrateClient build() {
+            checkArgument(workerExecutor == null || ioStrategy.usesWorkerThreads(),
+                    "The '" + ioStrategy + "' I/O strategy doesn't use a 'workerExecutor'.");
+
             return new OrchestrateClient(this);
         }
 
     }
 
     String uri(String... segments) {
-        int length = 3 + segments.length;
-        for(String segment:segments) {
-            length += segment.length();
-        }
-
-        UEncoder encoder = ENCODER_HOLDER.get();
-
-        StringBuilder buff = new StringBuilder(length).append("/v0");
-        for(String segment:segments) {
-            buff.append('/').append(encoder.encodeURL(segment));
+        final StringBuilder buff = uriBuilder().append("/v0");
+        for (int i = 0; i < segments.length; i++) {
+            buff.append('/');
+            if (i == 0) {
+                // the collection name, the same few are used by almost every request
+                buff.append(encodeCollection(segments[0]));
+            } else {
+                UrlEncoder.append(buff, segments[i]);
+            }
         }
         return buff.toString();
     }
 
     String encode(String... segments) {
-        UEncoder encoder = ENCODER_HOLDER.get();
-        if(segments.length == 1){
-            return encoder.encodeURL(segments[0]);
+        if (segments.length == 1) {
+            return UrlEncoder.encode(segments[0]);
         }
 
-        int length = segments.length - 1;
-        for(String segment:segments) {
-            length += segment.length();
+        final StringBuilder buff = uriBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (i != 0) {
+                buff.append('/');
+            }
+            UrlEncoder.append(buff, segments[i]);
         }
+        return buff.toString();
+    }
 
-        StringBuilder buff = new StringBuilder(length);
-        for(int i=0; i<segments.length; i++) {
-            if(i != 0) {
-                buff.append('/');
+    StringBuilder encode(final StringBuilder buff, final String value) {
+        return UrlEncoder.append(buff, value);
+    }
+
+    private String encodeCollection(final String collection) {
+        String encoded = encodedCollections.get(collection);
+        if (encoded == null) {
+            encoded = UrlEncoder.encode(collection);
+            if (encodedCollections.size() < MAX_ENCODED_COLLECTIONS) {
+                encodedCollections.putIfAbsent(collection, encoded);
             }
-            buff.append(encoder.encodeURL(segments[i]));
         }
+        return encoded;
+    }
 
-        return buff.toString();
+    private static StringBuilder uriBuilder() {
+        StringBuilder buff = BUILDER_HOLDER.get();
+        if (buff.capacity() > MAX_BUILDER_CAPACITY) {
+            // don't hold on to the memory used by an unusually long URI
+            buff = new StringBuilder(128);
+            BUILDER_HOLDER.set(buff);
+        }
+        buff.setLength(0);
+        return buff;
     }
 }
@@ -0,0 +1,556 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.impl.SafeFutureImpl;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.orchestrate.client.Preconditions.checkNotNegative;
+
+/**
+ * The future result of a request, or of a chain of requests, that can be
+ * composed with further steps without blocking a thread (in the style of
+ * Java 8's {@code CompletionStage}).
+ *
+ * <p>Each step runs once the previous step completes, by default on the
+ * thread that completed it. Depending on the client's {@link IOStrategyType}
+ * that's a worker thread or the selector thread, in which case the step must
+ * not block. A step can be run with an {@code Executor} instead, e.g. the
+ * client's worker pool ({@link OrchestrateClient#getWorkerExecutor()}) or an
+ * application thread pool.
+ *
+ * <p>For example, a read-modify-write of a KV object:
+ * <pre>
+ * {@code
+ * OrchestrateFuture<KvMetadata> updated = client.kv("users", "jane")
+ *         .get(User.class)
+ *         .toFuture()
+ *         .thenCompose(new AsyncContinuation<KvObject<User>, KvMetadata>() {
+ *             @Override
+ *             public OrchestrateFuture<KvMetadata> apply(KvObject<User> user) {
+ *                 user.getValue().setVisits(user.getValue().getVisits() + 1);
+ *                 return client.kv("users", "jane")
+ *                         .ifMatch(user.getRef())
+ *                         .put(user.getValue())
+ *                         .toFuture();
+ *             }
+ *         });
+ * }
+ * </pre>
+ *
+ * @param <T> The type of the result.
+ * @see OrchestrateRequest#toFuture()
+ */
+public final class OrchestrateFuture<T> implements Future<T> {
+
+    /** The result of this future. */
+    private final SafeFutureImpl<T> future;
+    /** The executor for the steps chained to this future, or {@code null} to run them directly. */
+    @Nullable
+    private final Executor executor;
+    /**
+     * The operation this future waits for, cancelled along with this future
+     * unless other steps or listeners also wait for it.
+     */
+    @Nullable
+    private volatile Future<?> upstream;
+    /** The number of steps and listeners chained to this future. */
+    private final AtomicInteger dependents = new AtomicInteger();
+
+    OrchestrateFuture(@Nullable final Executor executor, @Nullable final Future<?> upstream) {
+        this.future = SafeFutureImpl.create();
+        this.executor = executor;
+        this.upstream = upstream;
+    }
+
+    /**
+     * Returns a future that's already completed with the {@code value}, e.g.
+     * to start a chain of steps or to skip a request.
+     *
+     * @param value The result.
+     * @param <T> The type of the result.
+     * @return The completed future.
+     */
+    public static <T> OrchestrateFuture<T> completed(@Nullable final T value) {
+        final OrchestrateFuture<T> completed = new OrchestrateFuture<T>(null, null);
+        completed.future.result(value);
+        return completed;
+    }
+
+    /**
+     * Returns a future that has already failed with the {@code error}.
+     *
+     * @param error The cause of the failure.
+     * @param <T> The type of the result.
+     * @return The failed future.
+     */
+    public static <T> OrchestrateFuture<T> failed(final @NonNull Throwable error) {
+        final OrchestrateFuture<T> failed = new OrchestrateFuture<T>(null, null);
+        failed.future.failure(error);
+        return failed;
+    }
+
+    /**
+     * Returns a future that completes with the results of all the {@code
+     * futures} (in the same order) once they've all completed, or fails as
+     * soon as one of them fails.
+     *
+     * @param futures The futures to wait for.
+     * @param <T> The type of the results.
+     * @return The future list of results.
+     */
+    public static <T> OrchestrateFuture<List<T>> allOf(
+            final @NonNull List<? extends OrchestrateFuture<? extends T>> futures) {
+        final int size = futures.size();
+        final OrchestrateFuture<List<T>> all = new OrchestrateFuture<List<T>>(null, null);
+        if (size == 0) {
+            all.future.result(Collections.<T>emptyList());
+            return all;
+        }
+
+        final AtomicReferenceArray<T> results = new AtomicReferenceArray<T>(size);
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            futures.get(i).whenDone(new Completer<T>() {
+                @Override
+                public void completed(final T result) {
+                    results.set(index, result);
+                    if (remaining.decrementAndGet() == 0) {
+                        final List<T> values = new ArrayList<T>(size);
+                        for (int j = 0; j < size; j++) {
+                            values.add(results.get(j));
+                        }
+                        all.future.result(values);
+                    }
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    all.future.failure(throwable);
+                }
+
+                @Override
+                public void cancelled() {
+                    all.future.cancel(false);
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * Add a listener to be notified with the result, or the failure.
+     *
+     * @param listener The listener to notify.
+     * @return This future.
+     */
+    public OrchestrateFuture<T> on(final @NonNull ResponseListener<? super T> listener) {
+        dependents.incrementAndGet();
+        future.addCompletionHandler(new Completer<T>() {
+            @Override
+            public void completed(final T result) {
+                listener.onSuccess(result);
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                listener.onFailure(throwable);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Transform the result once it's available. If this future fails the
+     * returned future fails with the same error.
+     *
+     * @param continuation The transform of the result.
+     * @param <R> The type of the transformed result.
+     * @return The future transformed result.
+     */
+    public <R> OrchestrateFuture<R> thenApply(
+            final @NonNull Continuation<? super T, ? extends R> continuation) {
+        return applyWith(continuation, executor);
+    }
+
+    /**
+     * Transform the result once it's available, the transform runs with the
+     * {@code executor}. If this future fails the returned future fails with
+     * the same error.
+     *
+     * @param continuation The transform of the result.
+     * @param executor The executor to run the transform with.
+     * @param <R> The type of the transformed result.
+     * @return The future transformed result.
+     */
+    public <R> OrchestrateFuture<R> thenApply(
+            final @NonNull Continuation<? super T, ? extends R> continuation,
+            final @NonNull Executor executor) {
+        return applyWith(continuation, executor);
+    }
+
+    private <R> OrchestrateFuture<R> applyWith(
+            final Continuation<? super T, ? extends R> continuation,
+            @Nullable final Executor stepExecutor) {
+        final OrchestrateFuture<R> next = new OrchestrateFuture<R>(executor, this);
+        dependents.incrementAndGet();
+        future.addCompletionHandler(new Step<R>(next, stepExecutor) {
+            @Override
+            void run(final T result) throws Exception {
+                next.future.result(continuation.apply(result));
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Start another asynchronous operation (e.g. a request) with the result
+     * once it's available, the returned future completes with the result of
+     * that operation. If this future fails the returned future fails with the
+     * same error.
+     *
+     * @param continuation The step that starts the next operation.
+     * @param <R> The type of the result of the next operation.
+     * @return The future result of the next operation.
+     */
+    public <R> OrchestrateFuture<R> thenCompose(
+            final @NonNull AsyncContinuation<? super T, R> continuation) {
+        return composeWith(continuation, executor);
+    }
+
+    /**
+     * Start another asynchronous operation (e.g. a request) with the result
+     * once it's available, the step runs with the {@code executor}. The
+     * returned future completes with the result of that operation. If this
+     * future fails the returned future fails with the same error.
+     *
+     * @param continuation The step that starts the next operation.
+     * @param executor The executor to run the step with.
+     * @param <R> The type of the result of the next operation.
+     * @return The future result of the next operation.
+     */
+    public <R> OrchestrateFuture<R> thenCompose(
+            final @NonNull AsyncContinuation<? super T, R> continuation,
+            final @NonNull Executor executor) {
+        return composeWith(continuation, executor);
+    }
+
+    private <R> OrchestrateFuture<R> composeWith(
+            final AsyncContinuation<? super T, R> continuation,
+            @Nullable final Executor stepExecutor) {
+        final OrchestrateFuture<R> next = new OrchestrateFuture<R>(executor, this);
+        dependents.incrementAndGet();
+        future.addCompletionHandler(new Step<R>(next, stepExecutor) {
+            @Override
+            void run(final T result) throws Exception {
+                final OrchestrateFuture<R> inner = continuation.apply(result);
+                if (inner == null) {
+                    next.future.failure(new NullPointerException("The continuation returned null."));
+                    return;
+                }
+                // cancelling the chain now cancels the next operation
+                inner.dependents.incrementAndGet();
+                next.upstream = inner;
+                inner.future.addCompletionHandler(new Completer<R>() {
+                    @Override
+                    public void completed(final R value) {
+                        next.future.result(value);
+                    }
+
+                    @Override
+                    public void failed(final Throwable throwable) {
+                        next.future.failure(throwable);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        next.future.cancel(false);
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Recover from a failure, the returned future completes with the result
+     * of this future or, if it fails, with the value returned by the {@code
+     * continuation} for the error.
+     *
+     * @param continuation The recovery from the error.
+     * @return The future result.
+     */
+    public OrchestrateFuture<T> exceptionally(
+            final @NonNull Continuation<Throwable, ? extends T> continuation) {
+        return recoverWith(continuation, executor);
+    }
+
+    /**
+     * Recover from a failure, the returned future completes with the result
+     * of this future or, if it fails, with the value returned by the {@code
+     * continuation} for the error. The recovery runs with the {@code
+     * executor}.
+     *
+     * @param continuation The recovery from the error.
+     * @param executor The executor to run the recovery with.
+     * @return The future result.
+     */
+    public OrchestrateFuture<T> exceptionally(
+            final @NonNull Continuation<Throwable, ? extends T> continuation,
+            final @NonNull Executor executor) {
+        return recoverWith(continuation, executor);
+    }
+
+    private OrchestrateFuture<T> recoverWith(
+            final Continuation<Throwable, ? extends T> continuation,
+            @Nullable final Executor stepExecutor) {
+        final OrchestrateFuture<T> next = new OrchestrateFuture<T>(executor, this);
+        dependents.incrementAndGet();
+        future.addCompletionHandler(new Completer<T>() {
+            @Override
+            public void completed(final T result) {
+                next.future.result(result);
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                execute(stepExecutor, next, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            next.future.result(continuation.apply(throwable));
+                        } catch (final Throwable t) {
+                            next.future.failure(t);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void cancelled() {
+                next.future.cancel(false);
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Cancel this future, and the request (or step) it's waiting for if this
+     * future is the only step chained to it. Cancelling one of several steps
+     * chained to the same future leaves the others (and the future they share)
+     * running.
+     *
+     * @param mayInterruptIfRunning Passed to the request.
+     * @return {@code true} if this future was cancelled.
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = future.cancel(mayInterruptIfRunning);
+        final Future<?> waitingFor = upstream;
+        if (cancelled && waitingFor != null && isOnlyDependentOf(waitingFor)) {
+            waitingFor.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Waits for the result, with no timeout. The requests in the chain fail
+     * at their deadlines, if they have them.
+     *
+     * @return The result.
+     * @see OrchestrateClient.Builder#requestTimeout(long, TimeUnit)
+     */
+    @Override
+    public T get() {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException(e);
+        }
+    }
+
+    @Override
+    public T get(final long timeout, final TimeUnit unit) {
+        checkNotNegative(timeout, "timeout");
+
+        try {
+            return future.get(timeout, unit);
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException(e);
+        } catch (final Exception e) {
+            throw new ClientException(e);
+        }
+    }
+
+    /** Complete this future with the result (or failure) of the request. */
+    CompletionHandler<T> completer() {
+        return new Completer<T>() {
+            @Override
+            public void completed(final T result) {
+                future.result(result);
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                future.failure(throwable);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        };
+    }
+
+    /** Notify the {@code handler} when this future completes, fails or is cancelled. */
+    void whenDone(final CompletionHandler<? super T> handler) {
+        dependents.incrementAndGet();
+        future.addCompletionHandler(new Completer<T>() {
+            @Override
+            public void completed(final T result) {
+                handler.completed(result);
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                handler.failed(throwable);
+            }
+
+            @Override
+            public void cancelled() {
+                handler.cancelled();
+            }
+        });
+    }
+
+    private static boolean isOnlyDependentOf(final Future<?> waitingFor) {
+        return !(waitingFor instanceof OrchestrateFuture)
+                || ((OrchestrateFuture<?>) waitingFor).dependents.get() <= 1;
+    }
+
+    private static ClientException unwrap(final ExecutionException e) {
+        if (e.getCause() instanceof ClientException) {
+            return (ClientException) e.getCause();
+        }
+        return new ClientException(e.getCause());
+    }
+
+    private static void execute(
+            @Nullable final Executor executor,
+            final OrchestrateFuture<?> next,
+            final Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (final Throwable t) {
+            // e.g. the executor rejected the task
+            next.future.failure(t);
+        }
+    }
+
+    /**
+     * A completion handler for the events that are used.
+     */
+    private abstract static class Completer<V> implements CompletionHandler<V> {
+        @Override
+        public void cancelled() {
+        }
+
+        @Override
+        public void updated(final V result) {
+        }
+    }
+
+    /**
+     * Runs a step with the result of this future, failures and cancellation
+     * are passed down the chain.
+     */
+    private abstract class Step<R> extends Completer<T> {
+
+        private final OrchestrateFuture<R> next;
+        @Nullable
+        private final Executor stepExecutor;
+
+        Step(final OrchestrateFuture<R> next, @Nullable final Executor stepExecutor) {
+            this.next = next;
+            this.stepExecutor = stepExecutor;
+        }
+
+        abstract void run(T result) throws Exception;
+
+        @Override
+        public void completed(final T result) {
+            execute(stepExecutor, next, new Runnable() {
+                @Override
+                public void run() {
+                    if (next.isDone()) {
+                        // cancelled meanwhile
+                        return;
+                    }
+                    try {
+                        Step.this.run(result);
+                    } catch (final Throwable t) {
+                        next.future.failure(t);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void failed(final Throwable throwable) {
+            next.future.failure(throwable);
+        }
+
+        @Override
+        public void cancelled() {
+            next.future.cancel(false);
+        }
+
+    }
+
+}
@@ -18,14 +18,22 @@ package io.orchestrate.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.NonNull;
 import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.GrizzlyFuture;
 import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpHeader;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
 
+import javax.annotation.Nullable;
+import java.net.SocketAddress;
 import java.net.URI;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.orchestrate.client.Preconditions.checkNotNegative;
 
@@ -38,8 +46,21 @@ public final class OrchestrateRequest<T> implements Future<T> {
     private final SafeFutureImpl<T> convertedResponseFuture;
     private final OrchestrateClient client;
     private final HttpContent httpRequest;
-    private GrizzlyFuture activeRequest;
+    private volatile GrizzlyFuture activeRequest;
+    /** The connection the request was written to, or {@code null} if not yet written. */
+    private volatile Connection connection;
     private final Semaphore sent = new Semaphore(1);
+    private final AtomicBoolean retried = new AtomicBoolean(false);
+    /** The number of addresses the request failed to connect to. */
+    private final AtomicInteger connectFailures = new AtomicInteger();
+    /** The time spent in each phase of the request. */
+    private final RequestTimings timings = new RequestTimings();
+    /** The type of operation the request performs. */
+    private final OperationType operation;
+    /** The time (in nanoseconds) the request may take once sent, {@code 0} for no deadline. */
+    private volatile long timeoutNanos;
+    /** The scheduled deadline, or {@code null} if none is scheduled. */
+    private volatile TimerWheel.Timeout deadline;
 
     OrchestrateRequest(
             final OrchestrateClient client,
@@ -58,7 +79,10 @@ public final class OrchestrateRequest<T> implements Future<T> {
         assert (converter != null);
 
         this.client = client;
-        this.httpRequest = httpRequest;
+        // compress on the calling thread rather than an I/O thread
+        this.httpRequest = client.compress(httpRequest);
+        this.operation = OperationType.of((HttpRequestPacket) httpRequest.getHttpHeader());
+        this.timeoutNanos = client.getRequestTimeoutNanos();
         rawResponseFuture = SafeFutureImpl.create();
         convertedResponseFuture = SafeFutureImpl.create();
         rawResponseFuture.addCompletionHandler(new CompletionHandler<HttpContent>() {
@@ -69,15 +93,22 @@ public final class OrchestrateRequest<T> implements Future<T> {
 
             @Override
             public void failed(Throwable throwable) {
+                traced(null, throwable);
                 convertedResponseFuture.failure(throwable);
             }
 
             @Override
-            public void completed(HttpContent result) {
-                try {
-                    convertedResponseFuture.result(converter.from(result));
-                } catch (Exception e) {
-                    failed(e);
+            public void completed(final HttpContent result) {
+                traced(result, null);
+                final boolean offloaded = client.offloadConversion(result, new Runnable() {
+                    @Override
+                    public void run() {
+                        timings.ended(RequestPhase.CONVERT_QUEUE);
+                        convert(converter, result);
+                    }
+                });
+                if (!offloaded) {
+                    convert(converter, result);
                 }
             }
 
@@ -91,6 +122,19 @@ public final class OrchestrateRequest<T> implements Future<T> {
         }
     }
 
+    private void convert(final ResponseConverter<T> converter, final HttpContent response) {
+        final T converted;
+        try {
+            converted = converter.from(response);
+        } catch (Exception e) {
+            convertedResponseFuture.failure(e);
+            return;
+        }
+        timings.ended(RequestPhase.CONVERT);
+        client.getMetrics().get(operation).converted(timings);
+        convertedResponseFuture.result(converted);
+    }
+
     public OrchestrateRequest<T> on(final @NonNull Iterable<ResponseListener<T>> listeners) {
         for(ResponseListener<T> listener : listeners) {
             convertedResponseFuture.addCompletionHandler(new ResponseCompletionHandler<T>(listener));
@@ -108,16 +152,89 @@ public final class OrchestrateRequest<T> implements Future<T> {
         return this;
     }
 
+    /**
+     * Send the request and return its future result, further steps can be
+     * chained to the future (e.g. another request with the response). The
+     * steps run on the thread that completes the request.
+     *
+     * @return The future result of the request.
+     * @see OrchestrateFuture
+     */
+    public OrchestrateFuture<T> toFuture() {
+        return newFuture(null);
+    }
+
+    /**
+     * Send the request and return its future result, further steps can be
+     * chained to the future (e.g. another request with the response). The
+     * steps run with the {@code executor}, unless another executor is given
+     * for a step.
+     *
+     * @param executor The executor to run chained steps with.
+     * @return The future result of the request.
+     * @see OrchestrateClient#getWorkerExecutor()
+     */
+    public OrchestrateFuture<T> toFuture(final @NonNull Executor executor) {
+        return newFuture(executor);
+    }
+
+    private OrchestrateFuture<T> newFuture(@Nullable final Executor executor) {
+        final OrchestrateFuture<T> future = new OrchestrateFuture<T>(executor, this);
+        convertedResponseFuture.addCompletionHandler(future.completer());
+        send();
+        return future;
+    }
+
+    /**
+     * Set the time the request may take from when it's sent until its
+     * response is received, replacing the client's default request timeout.
+     * If the deadline passes the request fails with a {@link
+     * RequestTimeoutException}, which is passed to any listeners, and the
+     * connection it was sent on is closed.
+     *
+     * <p>The deadline is measured from when the request was sent, so it may
+     * be changed after the request has been sent.
+     *
+     * @param timeout The time the request may take, {@code 0} for no deadline.
+     * @param unit The unit of time for the {@code timeout}.
+     * @return This request.
+     * @see OrchestrateClient.Builder#requestTimeout(long, TimeUnit)
+     */
+    public OrchestrateRequest<T> timeout(final long timeout, final @NonNull TimeUnit unit) {
+        checkNotNegative(timeout, "timeout");
+
+        timeoutNanos = unit.toNanos(timeout);
+        if (hasSent()) {
+            scheduleDeadline();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the time the request has spent in each of its phases, e.g.
+     * waiting for a connection or for the response from the service.
+     *
+     * @return The timings of the request.
+     */
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
     public boolean hasSent() {
         return sent.availablePermits() == 0;
     }
 
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        if(activeRequest != null) {
-            activeRequest.cancel(mayInterruptIfRunning);
+        final GrizzlyFuture write = activeRequest;
+        if(write != null) {
+            write.cancel(mayInterruptIfRunning);
         }
-        return convertedResponseFuture.cancel(mayInterruptIfRunning);
+        final boolean cancelled = convertedResponseFuture.cancel(mayInterruptIfRunning);
+        // the response would otherwise hold the connection until it's received
+        rawResponseFuture.cancel(false);
+        closeConnection();
+        return cancelled;
     }
 
     @Override
@@ -130,18 +247,49 @@ public final class OrchestrateRequest<T> implements Future<T> {
         return convertedResponseFuture.isDone();
     }
 
+    /**
+     * Waits for the response to the request, if the request has a deadline
+     * this waits until the deadline, otherwise it waits for up to {@link
+     * #DEFAULT_TIMEOUT} milliseconds.
+     *
+     * @return The response.
+     */
     @Override
     public T get() {
+        final long timeout = timeoutNanos;
+        if (timeout > 0) {
+            send();
+            // the deadline fails the request if it takes too long
+            return await(0, null);
+        }
         return get(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Waits for the response to the request for up to the {@code timeout},
+     * if the timeout passes the request is cancelled and a {@link
+     * RequestTimeoutException} is thrown.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of time for the {@code timeout}.
+     * @return The response.
+     */
     @Override
     public T get(long timeout, TimeUnit unit) {
         checkNotNegative(timeout, "timeout");
         send();
+        return await(timeout, unit);
+    }
 
+    private T await(final long timeout, final TimeUnit unit) {
         try {
-            return convertedResponseFuture.get(timeout, unit);
+            return (unit == null)
+                    ? convertedResponseFuture.get()
+                    : convertedResponseFuture.get(timeout, unit);
+        } catch (final TimeoutException e) {
+            final RequestTimeoutException error = new RequestTimeoutException(unit.toNanos(timeout));
+            expire(error);
+            throw error;
         } catch (final ClientException ex) {
             throw ex;
         } catch (final ExecutionException ex) {
@@ -149,25 +297,224 @@ public final class OrchestrateRequest<T> implements Future<T> {
                 throw (ClientException) ex.getCause();
             }
             throw new ClientException(ex.getCause());
+        } catch (final InterruptedException e) {
+            // keep the interrupt, e.g. for a virtual thread being cancelled
+            Thread.currentThread().interrupt();
+            throw new ClientException(e);
         } catch (final Exception e) {
             throw new ClientException(e);
         }
     }
 
     private void send() {
-        if(sent.tryAcquire()) {
-            client.execute(httpRequest, new ConnectionCompletionHandler(this, httpRequest));
+        if (markSent()) {
+            client.execute(this, httpRequest);
+        }
+    }
+
+    /**
+     * Send the request on the {@code connection}, rather than a connection
+     * leased from the pool (e.g. to health check an idle connection). The
+     * request isn't retried on another connection if it fails.
+     *
+     * @param connection The leased connection to send the request on.
+     */
+    void sendOn(final Connection connection) {
+        if (markSent()) {
+            retried.set(true);
+            new ConnectionCompletionHandler(this, httpRequest).completed(connection);
+        } else {
+            ConnectionPool.release(connection, true);
+        }
+    }
+
+    /**
+     * Mark the request as sent, returns {@code false} if it was already sent.
+     */
+    private boolean markSent() {
+        if (sent.tryAcquire()) {
+            final OperationMetrics metrics = client.getMetrics().get(operation);
+            metrics.sent(httpRequest.getHttpHeader().getContentLength());
+            onDone(new Runnable() {
+                @Override
+                public void run() {
+                    metrics.done();
+                }
+            });
+            timings.sent();
+            if (timeoutNanos > 0) {
+                scheduleDeadline();
+            }
+            onDone(new Runnable() {
+                @Override
+                public void run() {
+                    final TimerWheel.Timeout timeout = deadline;
+                    if (timeout != null) {
+                        timeout.cancel();
+                    }
+                }
+            });
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Schedule the deadline of the request from the time it was sent,
+     * replacing any deadline already scheduled.
+     */
+    private void scheduleDeadline() {
+        final long timeout = timeoutNanos;
+        final TimerWheel.Timeout previous = deadline;
+        if (timeout > 0 && !isDone()) {
+            final long remaining = timings.getSentNanos() + timeout - System.nanoTime();
+            deadline = TimerWheel.shared().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    client.expire(OrchestrateRequest.this, new RequestTimeoutException(timeout));
+                }
+            }, remaining, TimeUnit.NANOSECONDS);
+            // the request may have completed meanwhile
+            if (isDone()) {
+                deadline.cancel();
+            }
+        } else {
+            deadline = null;
+        }
+        if (previous != null) {
+            previous.cancel();
         }
     }
 
+    /**
+     * Fail the request because it didn't complete in time, and release its
+     * connection. Nothing is done if the response has been received.
+     *
+     * @param error The error to fail the request with.
+     */
+    void expire(final RequestTimeoutException error) {
+        if (rawResponseFuture.isDone()) {
+            return;
+        }
+        final GrizzlyFuture write = activeRequest;
+        if (write != null) {
+            write.cancel(false);
+        }
+        rawResponseFuture.failure(error);
+        closeConnection();
+    }
+
+    /**
+     * Close the connection the request was written to if the response hasn't
+     * been received, the late response can't be matched to another request.
+     * Requests pipelined behind this one are sent again.
+     */
+    private void closeConnection() {
+        final Connection conn = connection;
+        if (conn == null) {
+            return;
+        }
+        final Queue<OrchestrateRequest<?>> responses = ClientFilter.responseQueue(conn);
+        synchronized (responses) {
+            if (responses.contains(this)) {
+                conn.closeSilently();
+            }
+        }
+    }
+
+    /**
+     * Send the request again after its connection closed before the response
+     * was received. Only idempotent requests are retried, and only once.
+     *
+     * @return {@code true} if the request was sent again.
+     */
+    boolean retry() {
+        return OrchestrateClient.isIdempotent(httpRequest)
+                && retried.compareAndSet(false, true)
+                && resend();
+    }
+
+    /**
+     * Send the request to another of the host's addresses after the connect
+     * to the {@code address} failed. The request was never written, so it's
+     * sent again whatever its method, until each address has been tried.
+     *
+     * @param address The address that failed to connect.
+     * @return {@code true} if the request was sent again.
+     */
+    boolean failover(final SocketAddress address) {
+        return !isDone() && client.failover(this, httpRequest, address, connectFailures.incrementAndGet());
+    }
+
+    /**
+     * Send the request again on another connection, for an idempotent request
+     * pipelined behind a request whose connection was closed.
+     *
+     * @return {@code true} if the request was sent again.
+     */
+    boolean resend() {
+        if (isDone() || !OrchestrateClient.isIdempotent(httpRequest)) {
+            return false;
+        }
+        // the request header was serialized when it was first written
+        final HttpHeader header = httpRequest.getHttpHeader();
+        final MimeHeaders headers = header.getHeaders();
+        for (int i = 0; i < headers.size(); i++) {
+            headers.setSerialized(i, false);
+        }
+        header.setCommitted(false);
+        // the request still holds its in-flight permit
+        client.dispatch(this, httpRequest);
+        return true;
+    }
+
+    private void traced(final HttpContent response, final Throwable error) {
+        client.completed(httpRequest, operation, timings, response, error);
+    }
+
+    /**
+     * Fail the request before a response was received, e.g. it was rejected
+     * by the in-flight limit or its connection couldn't be opened. It fails
+     * as a transport error does, so it's counted in the metrics and traced.
+     *
+     * @param t The cause of the failure.
+     */
     void failed(Throwable t){
-        convertedResponseFuture.failure(t);
+        rawResponseFuture.failure(t);
+    }
+
+    void onDone(final Runnable callback) {
+        convertedResponseFuture.addCompletionHandler(new CompletionHandler<T>() {
+            @Override
+            public void cancelled() {
+                callback.run();
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                callback.run();
+            }
+
+            @Override
+            public void completed(T result) {
+                callback.run();
+            }
+
+            @Override
+            public void updated(T result) {
+            }
+        });
     }
 
     void setActiveRequest(GrizzlyFuture activeRequest) {
         this.activeRequest = activeRequest;
     }
 
+    /** Called with the lock held on the connection's response queue. */
+    void setConnection(final Connection connection) {
+        this.connection = connection;
+    }
+
     SafeFutureImpl<HttpContent> getRawResponseFuture() {
         return rawResponseFuture;
     }
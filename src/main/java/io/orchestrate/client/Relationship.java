@@ -18,8 +18,8 @@ package io.orchestrate.client;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * A container for a graph relationship and its associated data.
@@ -36,7 +36,7 @@ public class Relationship<T> extends KvObject<T> implements RelationshipMetadata
     private final String relation;
 
     Relationship(
-        final ObjectMapper mapper,
+        final JacksonMapper mapper,
         final String collection, final String key,
         final String relation,
         final String destinationCollection, final String destinationKey,
@@ -49,6 +49,20 @@ public class Relationship<T> extends KvObject<T> implements RelationshipMetadata
         this.relation = relation;
     }
 
+    Relationship(
+        final JacksonMapper mapper,
+        final String collection, final String key,
+        final String relation,
+        final String destinationCollection, final String destinationKey,
+        final String ref, final Long reftime,
+        final T value, final JavaType valueType, final JsonSlice valueSlice
+    ) {
+        super(collection, key, ref, reftime, mapper, value, valueType, valueSlice);
+        this.destinationCollection = destinationCollection;
+        this.destinationKey = destinationKey;
+        this.relation = relation;
+    }
+
     /**
      * Returns the ItemKind of this object
      */
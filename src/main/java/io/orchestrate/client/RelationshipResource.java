@@ -17,6 +17,7 @@ package io.orchestrate.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpHeader;
 import org.glassfish.grizzly.http.HttpRequestPacket;
@@ -24,13 +25,9 @@ import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Method;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
-import org.glassfish.grizzly.memory.ByteBufferWrapper;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 import lombok.NonNull;
 import static io.orchestrate.client.Preconditions.*;
@@ -192,14 +189,14 @@ public class RelationshipResource extends BaseResource {
                 .method(Method.GET)
                 .uri(uri);
 
-        String query = "";
+        final StringBuilder query = new StringBuilder();
         if (withFields != null) {
-            query = query.concat("&with_fields=").concat(client.encode(withFields));
+            client.encode(query.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            query = query.concat("&without_fields=").concat(client.encode(withoutFields));
+            client.encode(query.append("&without_fields="), withoutFields);
         }
-        httpHeaderBuilder.query(query);
+        httpHeaderBuilder.query(query.toString());
 
         final HttpContent packet = httpHeaderBuilder
                 .build()
@@ -217,13 +214,11 @@ public class RelationshipResource extends BaseResource {
                     return null;
                 }
 
-                final String ref = header.getHeader(Header.ETag)
-                        .replace("\"", "")
-                        .replace("-gzip", "");
+                final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
 
                 JsonNode valueNode = toJsonNodeOrNull(response);
 
-                final T value = ResponseConverterUtil.jsonToDomainObject(mapper, valueNode, clazz);
+                final T value = ResponseConverterUtil.jsonToDomainObject(jacksonMapper, valueNode, clazz);
                 String rawValue = null;
                 if(value != null && value instanceof String) {
                     rawValue = (String)value;
@@ -233,7 +228,7 @@ public class RelationshipResource extends BaseResource {
                 Long reftime = null;
 
                 return new Relationship<T>(
-                    mapper,
+                    jacksonMapper,
                     sourceCollection, sourceKey,
                     relation, destCollection, destKey,
                     ref, reftime,
@@ -271,20 +266,20 @@ public class RelationshipResource extends BaseResource {
 
         final String uri = client.uri(sourceCollection, sourceKey, "relations").concat("/" + client.encode(relations));
 
-        String query = "limit=".concat(limit + "")
-                .concat("&offset=").concat(offset + "");
+        final StringBuilder query = new StringBuilder("limit=").append(limit)
+                .append("&offset=").append(offset);
 
         if (withFields != null) {
-            query = query.concat("&with_fields=").concat(client.encode(withFields));
+            client.encode(query.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            query = query.concat("&without_fields=").concat(client.encode(withoutFields));
+            client.encode(query.append("&without_fields="), withoutFields);
         }
 
         final HttpContent packet = HttpRequestPacket.builder()
                 .method(Method.GET)
                 .uri(uri)
-                .query(query)
+                .query(query.toString())
                 .build()
                 .httpContentBuilder()
                 .build();
@@ -299,12 +294,11 @@ public class RelationshipResource extends BaseResource {
                     return null;
                 }
 
-                final JsonNode jsonNode = toJsonNode(response);
+                final ResultsPageReader<T, KvObject<T>> page = readKvObjects(response, jacksonMapper.constructType(clazz));
 
-                OrchestrateRequest<RelationshipList<T>> next = parseLink("next", jsonNode, this);
-                if (jsonNode.has("next")) {
-                    final String page = jsonNode.get("next").asText();
-                    final URI url = URI.create(page);
+                final OrchestrateRequest<RelationshipList<T>> next;
+                if (page.getNext() != null) {
+                    final URI url = URI.create(page.getNext());
                     final HttpContent packet = HttpRequestPacket.builder()
                             .method(Method.GET)
                             .uri(uri)
@@ -317,14 +311,7 @@ public class RelationshipResource extends BaseResource {
                     next = null;
                 }
 
-                final int count = jsonNode.path("count").asInt();
-                final List<KvObject<T>> relatedObjects = new ArrayList<KvObject<T>>(count);
-
-                for (JsonNode node : jsonNode.path("results")) {
-                    relatedObjects.add(toKvObject(node, clazz));
-                }
-
-                return new RelationshipList<T>(relatedObjects, next);
+                return new RelationshipList<T>(page.getResults(), next);
             }
         });
     }
@@ -388,15 +375,13 @@ public class RelationshipResource extends BaseResource {
                 final int status = ((HttpResponsePacket) header).getStatus();
 
                 if (status == HttpStatus.CREATED_201.getStatusCode()) {
-                    final String ref = header.getHeader(Header.ETag)
-                            .replace("\"", "")
-                            .replace("-gzip", "");
+                    final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
 
                     // The server doesn't send reftime on graph relationship PUT
                     Long reftime = null;
 
                     return new Relationship<Object>(
-                        mapper,
+                        jacksonMapper,
                         sourceCollection, sourceKey,
                         relation,
                         destCollection, destKey,
@@ -435,17 +420,17 @@ public class RelationshipResource extends BaseResource {
             requestBuilder.header(Header.IfNoneMatch, "\"*\"");
         }
 
-        byte[] content = null;
+        Buffer content = null;
         if (properties != null) {
-            content = toJsonBytes(properties);
-            requestBuilder.contentLength(content.length);
+            content = toJsonBuffer(properties);
+            requestBuilder.contentLength(content.remaining());
         }
 
         HttpRequestPacket request = requestBuilder.build();
 
         HttpContent.Builder<?> httpContentBuilder = request.httpContentBuilder();
         if (properties != null) {
-            httpContentBuilder.content(new ByteBufferWrapper(ByteBuffer.wrap(content)));
+            httpContentBuilder.content(content);
         }
 
         HttpContent packet = httpContentBuilder.build();
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpHeader;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.memory.ByteBufferArray;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.BufferOutputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses request bodies with gzip, the {@code Deflater}s used are pooled
+ * and shared by the requests of a client.
+ */
+final class RequestCompressor {
+
+    /** The fixed gzip member header (no file name, modification time or flags). */
+    private static final byte[] GZIP_HEADER =
+            { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+    /** The size of the buffers used to copy data in and out of the deflater. */
+    private static final int CHUNK_SIZE = 8192;
+
+    /** The minimum size (in bytes) of request body to compress. */
+    private final int threshold;
+    /** The memory manager to allocate compressed bodies from. */
+    private final MemoryManager memoryManager;
+    /** The idle deflaters, ready to be reused. */
+    private final BlockingQueue<GzipState> pool;
+
+    RequestCompressor(final int threshold, final MemoryManager memoryManager) {
+        assert (threshold >= 0);
+        assert (memoryManager != null);
+
+        this.threshold = threshold;
+        this.memoryManager = memoryManager;
+        this.pool = new ArrayBlockingQueue<GzipState>(
+                Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Returns the request with its body gzip compressed, or the request as-is
+     * if the body is smaller than the threshold or doesn't compress.
+     *
+     * @param request The request to compress.
+     * @return The request to send.
+     */
+    HttpContent compress(final HttpContent request) {
+        final Buffer content = request.getContent();
+        final HttpHeader header = request.getHttpHeader();
+        if (content == null || !content.hasRemaining() || content.remaining() < threshold
+                || header.containsHeader(Header.ContentEncoding)) {
+            return request;
+        }
+
+        final Buffer compressed = gzip(content);
+        if (compressed.remaining() >= content.remaining()) {
+            // already compressed or too small to benefit
+            compressed.tryDispose();
+            return request;
+        }
+
+        header.setHeader(Header.ContentEncoding, "gzip");
+        header.setContentLengthLong(compressed.remaining());
+        content.tryDispose();
+        return HttpContent.builder(header)
+                .content(compressed)
+                .last(request.isLast())
+                .build();
+    }
+
+    /**
+     * Release the pooled deflaters.
+     */
+    void close() {
+        GzipState state;
+        while ((state = pool.poll()) != null) {
+            state.deflater.end();
+        }
+    }
+
+    private Buffer gzip(final Buffer content) {
+        GzipState state = pool.poll();
+        if (state == null) {
+            state = new GzipState();
+        }
+
+        final BufferOutputStream out = new BufferOutputStream(memoryManager);
+        final ByteBufferArray input = content.toByteBufferArray();
+        try {
+            out.write(GZIP_HEADER);
+            final ByteBuffer[] buffers = input.getArray();
+            for (int i = 0; i < input.size(); i++) {
+                deflate(state, buffers[i], out);
+            }
+            state.deflater.finish();
+            while (!state.deflater.finished()) {
+                drain(state, out);
+            }
+            writeIntLE(out, (int) state.crc.getValue());
+            writeIntLE(out, content.remaining());
+        } catch (final IOException e) {
+            // writes to a buffer don't fail
+            throw new IllegalStateException(e);
+        } finally {
+            input.restore();
+            input.recycle();
+            release(state);
+        }
+
+        final Buffer compressed = out.getBuffer();
+        compressed.flip();
+        compressed.allowBufferDispose(true);
+        return compressed;
+    }
+
+    private static void deflate(
+            final GzipState state, final ByteBuffer buffer, final BufferOutputStream out)
+            throws IOException {
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset() + buffer.position();
+            final int length = buffer.remaining();
+            state.crc.update(buffer.array(), offset, length);
+            state.deflater.setInput(buffer.array(), offset, length);
+            while (!state.deflater.needsInput()) {
+                drain(state, out);
+            }
+            return;
+        }
+
+        // direct buffers are copied into the deflater in chunks
+        while (buffer.hasRemaining()) {
+            final int length = Math.min(buffer.remaining(), CHUNK_SIZE);
+            buffer.get(state.input, 0, length);
+            state.crc.update(state.input, 0, length);
+            state.deflater.setInput(state.input, 0, length);
+            while (!state.deflater.needsInput()) {
+                drain(state, out);
+            }
+        }
+    }
+
+    private static void drain(final GzipState state, final BufferOutputStream out)
+            throws IOException {
+        final int length = state.deflater.deflate(state.output);
+        if (length > 0) {
+            out.write(state.output, 0, length);
+        }
+    }
+
+    private static void writeIntLE(final BufferOutputStream out, final int value)
+            throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    private void release(final GzipState state) {
+        state.deflater.reset();
+        state.crc.reset();
+        if (!pool.offer(state)) {
+            state.deflater.end();
+        }
+    }
+
+    /**
+     * A deflater with its checksum and copy buffers.
+     */
+    private static final class GzipState {
+        /** The deflater, raw deflate data is written as the gzip header is added separately. */
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        /** The checksum of the uncompressed data. */
+        final CRC32 crc = new CRC32();
+        /** The buffer for uncompressed data copied out of direct buffers. */
+        final byte[] input = new byte[CHUNK_SIZE];
+        /** The buffer for compressed data. */
+        final byte[] output = new byte[CHUNK_SIZE];
+    }
+
+}
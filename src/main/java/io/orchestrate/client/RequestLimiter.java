@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A fair limit on the number of requests in-flight at once.
+ *
+ * <p>Permits are granted in the order they were requested. Once a permit is
+ * granted the task it was requested for is run, either on the calling thread
+ * or (if the permit was queued) on the thread that released the previous
+ * permit. The task must not block.
+ */
+final class RequestLimiter {
+
+    /**
+     * A task to run once a permit has been granted.
+     */
+    interface Task {
+
+        /**
+         * Run the task with the permit.
+         *
+         * @return {@code false} if the task no longer needs the permit (e.g.
+         *         its request was cancelled while queued), the permit is
+         *         handed on to the next waiting task.
+         */
+        boolean run();
+
+    }
+
+    /** The maximum number of permits that can be held at once. */
+    private final int maxInFlight;
+    /** What to do when a permit is requested and none are available. */
+    private final BackpressureMode mode;
+    /** The tasks waiting for a permit, in the order they were requested. */
+    private final Queue<Task> waiters;
+    /** The number of permits held. */
+    private int inFlight;
+    /** The number of permits returned that are yet to be handed on. */
+    private int released;
+    /** Whether a thread is handing on the returned permits. */
+    private boolean handingOver;
+
+    RequestLimiter(final int maxInFlight, final BackpressureMode mode) {
+        assert (maxInFlight > 0);
+        assert (mode != null);
+
+        this.maxInFlight = maxInFlight;
+        this.mode = mode;
+        this.waiters = new LinkedList<Task>();
+    }
+
+    /**
+     * Acquire a permit and run the {@code task} with it, the permit must be
+     * returned with {@link #release()} once the request has completed.
+     *
+     * @param task The task to run once a permit has been granted.
+     * @throws TooManyInFlightRequestsException If no permit is available and
+     *         the mode is {@link BackpressureMode#FAIL_FAST}.
+     * @throws InterruptedException If the thread is interrupted while blocked
+     *         and the mode is {@link BackpressureMode#BLOCK}.
+     */
+    void acquire(final Task task) throws InterruptedException {
+        assert (task != null);
+
+        final CountDownLatch granted;
+        final Task signal;
+        synchronized (this) {
+            if (inFlight < maxInFlight && waiters.isEmpty()) {
+                inFlight++;
+                granted = null;
+                signal = null;
+            } else if (mode == BackpressureMode.FAIL_FAST) {
+                throw new TooManyInFlightRequestsException(maxInFlight);
+            } else if (mode == BackpressureMode.QUEUE) {
+                waiters.add(task);
+                return;
+            } else {
+                granted = new CountDownLatch(1);
+                signal = new Task() {
+                    @Override
+                    public boolean run() {
+                        granted.countDown();
+                        return true;
+                    }
+                };
+                waiters.add(signal);
+            }
+        }
+
+        if (granted != null) {
+            // wait outside of the monitor so the permit can be handed over
+            try {
+                granted.await();
+            } catch (final InterruptedException e) {
+                final boolean wasWaiting;
+                synchronized (this) {
+                    wasWaiting = waiters.remove(signal);
+                }
+                if (!wasWaiting) {
+                    // the permit was granted while interrupted, hand it on
+                    release();
+                }
+                throw e;
+            }
+        }
+        if (!task.run()) {
+            release();
+        }
+    }
+
+    /**
+     * Return a permit, the next waiting task (if any) is run with it.
+     *
+     * <p>The permits are handed on in a loop, rather than by recursion, so a
+     * permit returned while a task runs (e.g. its request failed at once) is
+     * handed on by the thread already handing on permits.
+     */
+    void release() {
+        synchronized (this) {
+            released++;
+            if (handingOver) {
+                return;
+            }
+            handingOver = true;
+        }
+
+        RuntimeException failure = null;
+        for (;;) {
+            final Task next;
+            synchronized (this) {
+                if (released == 0) {
+                    handingOver = false;
+                    break;
+                }
+                released--;
+                next = waiters.poll();
+                if (next == null) {
+                    inFlight--;
+                    continue;
+                }
+            }
+
+            // the permit is handed over to the next task
+            boolean used = false;
+            try {
+                used = next.run();
+            } catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                if (!used) {
+                    synchronized (this) {
+                        released++;
+                    }
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * The phases of a request, in the order a request passes through them.
+ *
+ * @see RequestTimings
+ */
+public enum RequestPhase {
+
+    /** Waiting for the in-flight request limit, before a connection is leased. */
+    QUEUE,
+    /** Leasing a connection from the pool, including opening a new connection. */
+    CONNECT,
+    /** Performing the TLS handshake on a new connection. */
+    HANDSHAKE,
+    /** Writing the request to the connection. */
+    WRITE,
+    /** Waiting for the first byte of the response, the time spent by the service. */
+    WAIT,
+    /** Reading the response, from the first byte until the last. */
+    RECEIVE,
+    /**
+     * Waiting for a thread to convert the response on, only large responses
+     * are converted off the I/O threads.
+     *
+     * @see OrchestrateClient.Builder#conversionThreshold(int)
+     */
+    CONVERT_QUEUE,
+    /** Converting the response into its result, e.g. deserializing a KV object. */
+    CONVERT
+
+}
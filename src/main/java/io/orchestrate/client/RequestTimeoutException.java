@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RequestTimeoutException is thrown when a request doesn't complete
+ * before its deadline, the request is cancelled and the connection it was
+ * sent on is closed.
+ *
+ * <pre>
+ * {@code
+ *   try {
+ *     client.kv("collection", "key")
+ *     .get(String.class)
+ *     .timeout(500, TimeUnit.MILLISECONDS)
+ *     .get();
+ *   } catch (RequestTimeoutException ex) {
+ *     //retry or degrade
+ *   }
+ * }
+ * </pre>
+ *
+ * @see OrchestrateClient.Builder#requestTimeout(long, TimeUnit)
+ * @see OrchestrateRequest#timeout(long, TimeUnit)
+ */
+@SuppressWarnings("serial")
+public class RequestTimeoutException extends ClientException {
+
+    /** The time (in nanoseconds) the request was allowed to take. */
+    private final long timeoutNanos;
+
+    RequestTimeoutException(final long timeoutNanos) {
+        super("The request didn't complete within "
+                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms.");
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Returns the time the request was allowed to take.
+     *
+     * @param unit The unit of time to return the timeout in.
+     * @return The timeout of the request.
+     */
+    public long getTimeout(final TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The time a request spent in each of its phases, measured with
+ * {@link System#nanoTime()}. The values are live and are updated as the
+ * request progresses.
+ *
+ * <pre>
+ * {@code
+ * OrchestrateRequest<KvObject<User>> request = client.kv("users", "key").get(User.class);
+ * request.get();
+ * long wait = request.getTimings().getDuration(RequestPhase.WAIT, TimeUnit.MILLISECONDS);
+ * }
+ * </pre>
+ *
+ * @see RequestPhase
+ */
+public final class RequestTimings {
+
+    /** The phases, cached to avoid a copy of the array on each use. */
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    /**
+     * The time the request was sent (at index {@code 0}), and the time each
+     * phase ended (at the index of its ordinal plus one), {@code 0} if the
+     * phase hasn't ended.
+     */
+    private final AtomicLongArray marks = new AtomicLongArray(PHASES.length + 1);
+
+    /**
+     * Returns the time the request spent in the {@code phase}. A phase that
+     * was skipped, e.g. the {@link RequestPhase#HANDSHAKE} of a pooled
+     * connection, has a duration of {@code 0}.
+     *
+     * @param phase The phase of the request.
+     * @param unit The unit of time to return the duration in.
+     * @return The duration of the phase, or {@code -1} if the request hasn't
+     *         reached the end of the phase.
+     */
+    public long getDuration(final @NonNull RequestPhase phase, final @NonNull TimeUnit unit) {
+        final long nanos = getNanos(phase.ordinal());
+        return (nanos < 0) ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the time from when the request was sent until the end of the
+     * last phase reached.
+     *
+     * @param unit The unit of time to return the duration in.
+     * @return The elapsed time, or {@code -1} if the request hasn't been sent.
+     */
+    public long getElapsed(final @NonNull TimeUnit unit) {
+        final long start = marks.get(0);
+        if (start == 0) {
+            return -1;
+        }
+        for (int i = PHASES.length; i > 0; i--) {
+            final long end = marks.get(i);
+            if (end != 0) {
+                return unit.convert(Math.max(end - start, 0), TimeUnit.NANOSECONDS);
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the time (from {@link System#nanoTime()}) the request was sent. */
+    long getSentNanos() {
+        return marks.get(0);
+    }
+
+    /** Record the time the request was sent, all other phases are reset. */
+    void sent() {
+        for (int i = 1; i < marks.length(); i++) {
+            marks.set(i, 0);
+        }
+        marks.set(0, System.nanoTime());
+    }
+
+    /**
+     * Record the time the request was dispatched to a connection, the phases
+     * after it are reset so a request sent again is timed on its last attempt.
+     */
+    void dispatched() {
+        for (int i = RequestPhase.QUEUE.ordinal() + 2; i < marks.length(); i++) {
+            marks.set(i, 0);
+        }
+        ended(RequestPhase.QUEUE);
+    }
+
+    /** Record the time the {@code phase} ended. */
+    void ended(final RequestPhase phase) {
+        marks.set(phase.ordinal() + 1, System.nanoTime());
+    }
+
+    /** Record the time the {@code phase} ended, unless it's already ended. */
+    void endedOnce(final RequestPhase phase) {
+        marks.compareAndSet(phase.ordinal() + 1, 0, System.nanoTime());
+    }
+
+    /**
+     * Returns the nanoseconds spent in the phase (at {@code ordinal}),
+     * {@code 0} if the phase was skipped or {@code -1} if it hasn't ended.
+     */
+    long getNanos(final int ordinal) {
+        final long end = marks.get(ordinal + 1);
+        if (end == 0) {
+            // a phase was skipped if a later phase has ended
+            for (int i = ordinal + 2; i < marks.length(); i++) {
+                if (marks.get(i) != 0) {
+                    return 0;
+                }
+            }
+            return -1;
+        }
+        // the phase starts at the end of the last phase before it
+        for (int i = ordinal; i >= 0; i--) {
+            final long start = marks.get(i);
+            if (start != 0) {
+                // the write may be acknowledged after the response starts
+                return Math.max(end - start, 0);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the duration (in milliseconds) of each phase the request has
+     * reached, e.g. {@code "QUEUE=0.012 CONNECT=0.003 ..."}.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buff = new StringBuilder(96);
+        for (final RequestPhase phase : PHASES) {
+            final long nanos = getNanos(phase.ordinal());
+            if (nanos < 0) {
+                continue;
+            }
+            if (buff.length() > 0) {
+                buff.append(' ');
+            }
+            buff.append(phase).append('=').append(nanos / 1000 / 1000.0);
+        }
+        return buff.toString();
+    }
+
+}
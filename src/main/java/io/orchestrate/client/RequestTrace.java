@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The trace of a request made to the Orchestrate service.
+ *
+ * @see RequestTracer
+ */
+@ToString
+public final class RequestTrace {
+
+    /** The HTTP method of the request. */
+    private final String method;
+    /** The path of the request. */
+    private final String uri;
+    /** The query string of the request. */
+    private final String query;
+    /** The HTTP status of the response. */
+    private final int status;
+    /** The ID the service assigned to the request. */
+    private final String requestId;
+    /** The time (in nanoseconds) from when the request was sent until it completed. */
+    private final long durationNanos;
+    /** The time spent in each phase of the request. */
+    private final RequestTimings timings;
+    /** The reason the request failed. */
+    private final Throwable error;
+
+    RequestTrace(
+            final String method,
+            final String uri,
+            @Nullable final String query,
+            final int status,
+            @Nullable final String requestId,
+            final long durationNanos,
+            final RequestTimings timings,
+            @Nullable final Throwable error) {
+        assert (method != null);
+        assert (uri != null);
+        assert (timings != null);
+
+        this.method = method;
+        this.uri = uri;
+        this.query = query;
+        this.status = status;
+        this.requestId = requestId;
+        this.durationNanos = durationNanos;
+        this.timings = timings;
+        this.error = error;
+    }
+
+    /**
+     * Returns the HTTP method of the request.
+     *
+     * @return The HTTP method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the path of the request.
+     *
+     * @return The request path.
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Returns the query string of the request, if any.
+     *
+     * @return The query string, may be {@code null}.
+     */
+    @Nullable
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the HTTP status of the response.
+     *
+     * @return The HTTP status, or {@code 0} if no response was received.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the ID the Orchestrate service assigned to the request, useful
+     * when contacting support about a request.
+     *
+     * @return The request ID, may be {@code null}.
+     */
+    @Nullable
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Returns the time from when the request was sent until it completed.
+     *
+     * @param unit The unit of time to return the duration in.
+     * @return The duration of the request.
+     */
+    public long getDuration(final @NonNull TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the time spent in each phase of the request, e.g. to find
+     * whether a slow request waited for a connection or for the service.
+     * The {@link RequestPhase#CONVERT_QUEUE} and {@link RequestPhase#CONVERT}
+     * phases end after the request is traced.
+     *
+     * @return The timings of the request.
+     */
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Returns whether the request failed.
+     *
+     * @return {@code true} if the request failed.
+     */
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * Returns the reason the request failed.
+     *
+     * @return The error, or {@code null} if the request succeeded.
+     */
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+}
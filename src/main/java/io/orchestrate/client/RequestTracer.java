@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * Receives traces of requests made by a {@code Client}, for the requests
+ * chosen by the client's {@link TraceSampler}.
+ *
+ * <p>Traces are delivered on the thread that completes the request, often a
+ * network I/O thread, implementations must be thread-safe and must not
+ * block.</p>
+ *
+ * <pre>
+ * {@code
+ * Client client = OrchestrateClient.builder("your api key")
+ *         .requestTracer(new LoggingRequestTracer())
+ *         .traceSampler(TraceSamplers.slowerThan(250, TimeUnit.MILLISECONDS))
+ *         .build();
+ * }
+ * </pre>
+ *
+ * @see OrchestrateClient.Builder#requestTracer(RequestTracer)
+ */
+public interface RequestTracer {
+
+    /**
+     * Invoked when a sampled request has completed or failed.
+     *
+     * @param trace The trace of the request.
+     */
+    public void trace(final RequestTrace trace);
+
+}
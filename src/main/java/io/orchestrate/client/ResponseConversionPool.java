@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Converts large responses (e.g. pages of search results) on a bounded pool
+ * of threads, so that deserializing them doesn't hold up the I/O threads
+ * that read responses for other connections. Small responses are converted
+ * on the I/O thread, where the hand-off would cost more than it saves.
+ */
+final class ResponseConversionPool {
+
+    /** The number of conversions that may wait for each thread of the pool. */
+    private static final int QUEUE_LIMIT_PER_THREAD = 64;
+
+    /** The minimum size (in bytes) of response body to convert on the pool. */
+    private final int threshold;
+    /** The threads to convert responses on. */
+    private final ExecutorService pool;
+
+    ResponseConversionPool(final int threshold, final int poolSize) {
+        assert (threshold >= 0);
+        assert (poolSize > 0);
+
+        this.threshold = threshold;
+        this.pool = GrizzlyExecutorService.createInstance(ThreadPoolConfig.defaultConfig()
+                .setPoolName("OrchestrateClientConverter")
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setQueueLimit(poolSize * QUEUE_LIMIT_PER_THREAD));
+    }
+
+    /**
+     * Run the {@code conversion} of the {@code response} on the pool if the
+     * response body is at least the threshold size.
+     *
+     * @param response The response to convert.
+     * @param conversion The task that converts the response.
+     * @return {@code true} if the conversion was handed to the pool, {@code
+     *         false} if it should run on the calling thread because the
+     *         response is small or the pool is saturated.
+     */
+    boolean offload(final HttpContent response, final Runnable conversion) {
+        final Buffer content = response.getContent();
+        if (content == null || content.remaining() < threshold) {
+            return false;
+        }
+        try {
+            pool.execute(conversion);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            // the queue is full (or the client is closing), converting on the
+            // I/O thread slows down reads until the pool catches up
+            return false;
+        }
+    }
+
+    void close() {
+        // the conversions already queued complete their requests
+        pool.shutdown();
+    }
+
+}
@@ -16,7 +16,6 @@
 package io.orchestrate.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 
@@ -25,6 +24,12 @@ import java.io.IOException;
  * Orchestrate.
  */
 final class ResponseConverterUtil {
+
+    /** The suffix of the ETag of a gzip encoded response. */
+    private static final String GZIP_SUFFIX = "-gzip";
+    /** The prefix of a weak ETag. */
+    private static final String WEAK_PREFIX = "W/";
+
     static ItemKind parseItemKind(String kindText) {
         ItemKind kind;
         try {
@@ -35,8 +40,38 @@ final class ResponseConverterUtil {
         return kind;
     }
 
+    /**
+     * Returns the ref from an {@code ETag} header, the value without its
+     * quotes or a {@code -gzip} suffix (e.g. {@code "0eb2ab25de0ce4a3-gzip"}).
+     *
+     * <p>A weak ETag (e.g. {@code W/"0eb2ab25de0ce4a3"}, as a proxy that
+     * compresses the response may send) has the same ref as the strong ETag,
+     * the {@code W/} prefix is dropped. Quotes within the value are kept.</p>
+     *
+     * @param etag The value of the {@code ETag} header.
+     * @return The ref, {@code null} if the header was missing.
+     */
+    static String parseRef(final String etag) {
+        if (etag == null) {
+            return null;
+        }
+
+        int start = etag.startsWith(WEAK_PREFIX) ? WEAK_PREFIX.length() : 0;
+        int end = etag.length();
+        while (start < end && etag.charAt(start) == '"') {
+            start++;
+        }
+        while (end > start && etag.charAt(end - 1) == '"') {
+            end--;
+        }
+        if (end - start >= GZIP_SUFFIX.length() && etag.startsWith(GZIP_SUFFIX, end - GZIP_SUFFIX.length())) {
+            end -= GZIP_SUFFIX.length();
+        }
+        return etag.substring(start, end);
+    }
+
     static <T> KvObject<T> wrapperJsonToKvObject(
-            final ObjectMapper mapper, final JsonNode jsonNode, final Class<T> clazz)
+            final JacksonMapper mapper, final JsonNode jsonNode, final Class<T> clazz)
             throws IOException {
         assert (mapper != null);
         assert (jsonNode != null);
@@ -71,13 +106,13 @@ final class ResponseConverterUtil {
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> KvObject<T> jsonToKvObject(ObjectMapper mapper, JsonNode valueNode, Class<T> clazz,
+    public static <T> KvObject<T> jsonToKvObject(JacksonMapper mapper, JsonNode valueNode, Class<T> clazz,
                                                  String collection, String key, String ref) throws IOException {
         return jsonToKvObject(mapper, valueNode, clazz, collection, key, ref, null);
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> KvObject<T> jsonToKvObject(ObjectMapper mapper, JsonNode valueNode, Class<T> clazz,
+    public static <T> KvObject<T> jsonToKvObject(JacksonMapper mapper, JsonNode valueNode, Class<T> clazz,
                                                  String collection, String key, String ref, Long reftime) throws IOException {
         assert (mapper != null);
         assert (clazz != null);
@@ -92,14 +127,14 @@ final class ResponseConverterUtil {
         return new KvObject<T>(collection, key, ref, reftime, mapper, value, valueNode, rawValue);
     }
 
-    public static <T> KvObject<T> jsonToKvObject(ObjectMapper mapper, String rawValue, Class<T> clazz,
+    public static <T> KvObject<T> jsonToKvObject(JacksonMapper mapper, String rawValue, Class<T> clazz,
                                                  String collection, String key, String ref) throws IOException {
         assert (mapper != null);
         assert (clazz != null);
 
         JsonNode valueNode = null;
         if (rawValue != null && !rawValue.isEmpty()) {
-            valueNode = mapper.readTree(rawValue);
+            valueNode = mapper.getMapper().readTree(rawValue);
         }
 
         final T value = jsonToDomainObject(mapper, valueNode, rawValue, clazz);
@@ -109,7 +144,7 @@ final class ResponseConverterUtil {
 
     @SuppressWarnings("unchecked")
     @Deprecated
-    public static <T> T jsonToDomainObject(ObjectMapper mapper,
+    public static <T> T jsonToDomainObject(JacksonMapper mapper,
                        String rawValue, Class<T> clazz) throws IOException {
         if (clazz == null || clazz == Void.class || rawValue == null || rawValue.isEmpty()) {
             return null;
@@ -118,11 +153,11 @@ final class ResponseConverterUtil {
         if (clazz.equals(String.class) ){
             return (T)rawValue;
         }
-        return mapper.readValue(rawValue, clazz);
+        return mapper.reader(clazz).readValue(rawValue);
     }
 
     @SuppressWarnings("unchecked")
-    static <T> T jsonToDomainObject(ObjectMapper mapper,
+    static <T> T jsonToDomainObject(JacksonMapper mapper,
                                            JsonNode json, String rawValue, Class<T> clazz) throws IOException {
         if (clazz == null || clazz == Void.class || json == null || json.isNull()) {
             return null;
@@ -132,25 +167,34 @@ final class ResponseConverterUtil {
             if (rawValue != null) {
                 return (T)rawValue;
             }
-            return (T)mapper.writeValueAsString(json);
+            return (T)mapper.writer(json.getClass()).writeValueAsString(json);
         }
-        return mapper.treeToValue(json, clazz);
+        return treeToValue(mapper, json, clazz);
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> T jsonToDomainObject(ObjectMapper mapper,
+    public static <T> T jsonToDomainObject(JacksonMapper mapper,
                                            JsonNode json, Class<T> clazz) throws IOException {
         if (clazz == null || clazz == Void.class || json == null || json.isNull()) {
             return null;
         }
 
         if (clazz.equals(String.class) ){
-            return (T)mapper.writeValueAsString(json);
+            return (T)mapper.writer(json.getClass()).writeValueAsString(json);
+        }
+        return treeToValue(mapper, json, clazz);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T treeToValue(JacksonMapper mapper, JsonNode json, Class<T> clazz) throws IOException {
+        // as ObjectMapper#treeToValue, a node is returned as-is
+        if (clazz != Object.class && clazz.isAssignableFrom(json.getClass())) {
+            return (T) json;
         }
-        return mapper.treeToValue(json, clazz);
+        return mapper.reader(clazz).readValue(json);
     }
 
-    public static <T> Event<T> wrapperJsonToEvent(ObjectMapper mapper, JsonNode wrapperJson, Class<T> clazz) throws IOException {
+    public static <T> Event<T> wrapperJsonToEvent(JacksonMapper mapper, JsonNode wrapperJson, Class<T> clazz) throws IOException {
         assert (mapper != null);
         assert (clazz != null);
 
@@ -181,7 +225,7 @@ final class ResponseConverterUtil {
         return new Event<T>(mapper, collection, key, eventType, timestamp, ordinal, ref, reftime, value, valueNode, rawValue);
     }
 
-    public static <T> Relationship<T> wrapperJsonToRelationship(ObjectMapper mapper, JsonNode wrapperJson, Class<T> clazz) throws IOException {
+    public static <T> Relationship<T> wrapperJsonToRelationship(JacksonMapper mapper, JsonNode wrapperJson, Class<T> clazz) throws IOException {
         assert (mapper != null);
         assert (clazz != null);
 
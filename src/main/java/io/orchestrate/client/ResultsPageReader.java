@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.glassfish.grizzly.http.HttpContent;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a page of results (from a KV list, search, event or graph query)
+ * in a single pass over the response with a streaming {@code JsonParser}.
+ * The "path" metadata of each result is read as it's parsed and the "value"
+ * is bound straight to the target type, the page is never built as a tree of
+ * {@code JsonNode}s.
+ *
+ * <p>The raw JSON of each value is kept next to the bound value, as a slice
+ * of a copy of the response body, so the value can be bound to another type
+ * (or returned as-is) from the JSON the service sent. With lazy values only
+ * the slice is kept, and it's bound on first use.</p>
+ *
+ * @param <T> The deserializable type for the value of each result.
+ * @param <R> The type of the results on the page.
+ */
+abstract class ResultsPageReader<T, R> {
+
+    private final JacksonMapper mapper;
+    /** The type to bind each value to. */
+    private final JavaType valueType;
+    /** The kind of the results that don't include a "kind" in their path. */
+    private final ItemKind defaultKind;
+    /** Whether to keep the raw JSON of each value rather than bind it. */
+    private final boolean lazyValues;
+    /** The response body the values are sliced from. */
+    private byte[] bytes;
+
+    private int count;
+    private int totalCount;
+    private String next;
+    private String prev;
+    private List<AggregateResult> aggregates = Collections.emptyList();
+    private List<R> results = Collections.emptyList();
+
+    ResultsPageReader(final JacksonMapper mapper, final JavaType valueType, final ItemKind defaultKind,
+                      final boolean lazyValues) {
+        assert (mapper != null);
+        assert (valueType != null);
+        assert (defaultKind != null);
+
+        this.mapper = mapper;
+        this.valueType = valueType;
+        this.defaultKind = defaultKind;
+        this.lazyValues = lazyValues;
+    }
+
+    /**
+     * Creates a result on the page from the KV object (or event, or
+     * relationship) that was read.
+     *
+     * @param kvObject The KV object read from the result.
+     * @param score The score of the result, {@code 0} if it has none.
+     * @param distance The distance of the result, may be {@code null}.
+     * @return The result.
+     */
+    abstract R toResult(KvObject<T> kvObject, double score, Double distance);
+
+    ResultsPageReader<T, R> read(final HttpContent response) throws IOException {
+        // the buffer is reused once the response is converted
+        return read(JsonSlice.toByteArray(response.getContent()));
+    }
+
+    ResultsPageReader<T, R> read(final byte[] body) throws IOException {
+        bytes = body;
+        return read(mapper.getMapper().getFactory().createParser(body));
+    }
+
+    private ResultsPageReader<T, R> read(final JsonParser parser) throws IOException {
+        try {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                    readResults(parser);
+                } else if ("count".equals(field)) {
+                    count = parser.getValueAsInt();
+                } else if ("total_count".equals(field)) {
+                    totalCount = parser.getValueAsInt();
+                } else if ("next".equals(field)) {
+                    next = parser.getValueAsString();
+                } else if ("prev".equals(field)) {
+                    prev = parser.getValueAsString();
+                } else if ("aggregates".equals(field) && token == JsonToken.START_ARRAY) {
+                    aggregates = AggregateResult.from((ArrayNode) mapper.getMapper().readTree(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return this;
+        } finally {
+            parser.close();
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getTotalCount() {
+        return totalCount;
+    }
+
+    /** Returns the URL of the next page, may be {@code null}. */
+    String getNext() {
+        return next;
+    }
+
+    /** Returns the URL of the previous page, may be {@code null}. */
+    String getPrev() {
+        return prev;
+    }
+
+    List<AggregateResult> getAggregates() {
+        return aggregates;
+    }
+
+    List<R> getResults() {
+        return results;
+    }
+
+    private void readResults(final JsonParser parser) throws IOException {
+        // the "count" usually precedes the results
+        results = new ArrayList<R>(count > 0 ? count : 10);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser.getCurrentToken(), JsonToken.START_OBJECT, parser);
+            results.add(readResult(parser));
+        }
+    }
+
+    // parse result structure (e.g.):
+    // {"path":{...},"value":{},"score":1.0}
+    private R readResult(final JsonParser parser) throws IOException {
+        ItemKind kind = defaultKind;
+        String collection = null;
+        String key = null;
+        String ref = null;
+        Long reftime = null;
+        String type = null;
+        Long timestamp = null;
+        String ordinal = null;
+        String relation = null;
+        String[] source = null;
+        String[] destination = null;
+        T value = null;
+        JsonNode valueNode = null;
+        JsonSlice valueSlice = null;
+        double score = 0.0;
+        Double distance = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if ("path".equals(field) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    final JsonToken pathToken = parser.nextToken();
+                    if ("kind".equals(name)) {
+                        kind = ResponseConverterUtil.parseItemKind(parser.getText());
+                    } else if ("collection".equals(name)) {
+                        collection = parser.getText();
+                    } else if ("key".equals(name)) {
+                        key = parser.getText();
+                    } else if ("ref".equals(name)) {
+                        ref = parser.getText();
+                    } else if ("reftime".equals(name)) {
+                        reftime = parser.getValueAsLong();
+                    } else if ("type".equals(name)) {
+                        type = parser.getText();
+                    } else if ("timestamp".equals(name)) {
+                        timestamp = parser.getValueAsLong();
+                    } else if ("ordinal".equals(name)) {
+                        ordinal = parser.getText();
+                    } else if ("relation".equals(name)) {
+                        relation = parser.getText();
+                    } else if ("source".equals(name) && pathToken == JsonToken.START_OBJECT) {
+                        source = readCollectionKey(parser);
+                    } else if ("destination".equals(name) && pathToken == JsonToken.START_OBJECT) {
+                        destination = readCollectionKey(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("value".equals(field)
+                    && (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY)) {
+                // the parser is just past the '{' or '[' (the token location
+                // of a value is that of its field name)
+                final long start = parser.getCurrentLocation().getByteOffset() - 1;
+                assert (bytes[(int) start] == '{' || bytes[(int) start] == '[');
+                if (lazyValues || valueType.hasRawClass(Void.class) || valueType.hasRawClass(String.class)) {
+                    parser.skipChildren();
+                } else {
+                    value = mapper.reader(valueType).readValue(parser);
+                }
+                final long end = parser.getCurrentLocation().getByteOffset();
+                valueSlice = new JsonSlice(bytes, (int) start, (int) (end - start));
+                if (!lazyValues && valueType.hasRawClass(String.class)) {
+                    // the value's JSON as-is
+                    value = (T) valueSlice.toString();
+                }
+            } else if ("value".equals(field) && valueType.hasRawClass(Void.class)) {
+                // nothing to bind, keep the JSON for 'getValue(Class)'
+                valueNode = mapper.getMapper().readTree(parser);
+            } else if ("value".equals(field)) {
+                value = readValue(parser);
+            } else if ("score".equals(field)) {
+                score = parser.getValueAsDouble(0);
+            } else if ("distance".equals(field)) {
+                distance = parser.getValueAsDouble(0);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (value instanceof JsonNode) {
+            valueNode = (JsonNode) value;
+        }
+        final String rawValue = (value instanceof String) ? (String) value : null;
+
+        final KvObject<T> kvObject;
+        if (valueSlice != null) {
+            kvObject = toSlicedKvObject(kind, collection, key, ref, reftime, type, timestamp, ordinal,
+                    relation, source, destination, value, valueSlice);
+        } else if (kind.equals(ItemKind.EVENT)) {
+            kvObject = new Event<T>(mapper, collection, key, type, timestamp, ordinal, ref, reftime,
+                    value, valueNode, rawValue);
+        } else if (kind.equals(ItemKind.RELATIONSHIP)) {
+            checkRelationship(source, destination);
+            kvObject = new Relationship<T>(mapper, source[0], source[1], relation, destination[0], destination[1],
+                    ref, reftime, value, valueNode, rawValue);
+        } else {
+            kvObject = new KvObject<T>(collection, key, ref, reftime, mapper, value, valueNode, rawValue);
+        }
+        return toResult(kvObject, score, distance);
+    }
+
+    // the value is null if it's lazy, it's then bound from the slice on first use
+    private KvObject<T> toSlicedKvObject(
+            final ItemKind kind, final String collection, final String key, final String ref, final Long reftime,
+            final String type, final Long timestamp, final String ordinal,
+            final String relation, final String[] source, final String[] destination,
+            final T value, final JsonSlice valueSlice) {
+        if (kind.equals(ItemKind.EVENT)) {
+            return new Event<T>(mapper, collection, key, type, timestamp, ordinal, ref, reftime,
+                    value, valueType, valueSlice);
+        } else if (kind.equals(ItemKind.RELATIONSHIP)) {
+            checkRelationship(source, destination);
+            return new Relationship<T>(mapper, source[0], source[1], relation, destination[0], destination[1],
+                    ref, reftime, value, valueType, valueSlice);
+        }
+        return new KvObject<T>(collection, key, ref, reftime, mapper, value, valueType, valueSlice);
+    }
+
+    private static void checkRelationship(final String[] source, final String[] destination) {
+        if (source == null || destination == null) {
+            throw new IllegalStateException("Missing relationship source or destination, cannot parse response.");
+        }
+    }
+
+    private static String[] readCollectionKey(final JsonParser parser) throws IOException {
+        final String[] collectionKey = new String[2];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("collection".equals(name)) {
+                collectionKey[0] = parser.getText();
+            } else if ("key".equals(name)) {
+                collectionKey[1] = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return collectionKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T readValue(final JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        if (valueType.hasRawClass(String.class)) {
+            // copy the value's JSON as-is, rather than through a tree
+            final StringWriter writer = new StringWriter();
+            final JsonGenerator generator = mapper.getMapper().getFactory().createGenerator(writer);
+            generator.copyCurrentStructure(parser);
+            generator.close();
+            return (T) writer.toString();
+        }
+        return mapper.reader(valueType).readValue(parser);
+    }
+
+    private static void expect(final JsonToken actual, final JsonToken expected, final JsonParser parser)
+            throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(
+                    "Expected " + expected + " but found " + actual + ".", parser.getCurrentLocation());
+        }
+    }
+
+}
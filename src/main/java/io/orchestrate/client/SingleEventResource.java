@@ -18,13 +18,12 @@ package io.orchestrate.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import io.orchestrate.client.jsonpatch.JsonPatch;
 import lombok.NonNull;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.*;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
-import org.glassfish.grizzly.memory.ByteBufferWrapper;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 /**
  * The resource for interacting with an individual Event instance.
@@ -86,20 +85,20 @@ public class SingleEventResource extends BaseResource {
     public <T> OrchestrateRequest<Event<T>> get(final Class<T> clazz) {
         final String uri = buildUri();
 
-        String query = "";
+        final StringBuilder query = new StringBuilder();
         if (withFields != null) {
-            query = query.concat("&with_fields=").concat(client.encode(withFields));
+            client.encode(query.append("&with_fields="), withFields);
         }
         if (withoutFields != null) {
-            query = query.concat("&without_fields=").concat(client.encode(withoutFields));
+            client.encode(query.append("&without_fields="), withoutFields);
         }
 
         final HttpRequestPacket.Builder packetBuilder = HttpRequestPacket.builder()
                 .method(Method.GET)
                 .uri(uri);
 
-        if (!query.isEmpty()) {
-            packetBuilder.query(query);
+        if (query.length() > 0) {
+            packetBuilder.query(query.toString());
         }
 
         final HttpContent packet = packetBuilder.build()
@@ -117,10 +116,9 @@ public class SingleEventResource extends BaseResource {
                     return null;
                 }
 
-                String rawWrapperJson = response.getContent().toStringContent();
-                final JsonNode jsonNode = mapper.readTree(rawWrapperJson);
+                final JsonNode jsonNode = toJsonNode(response);
 
-                return ResponseConverterUtil.wrapperJsonToEvent(mapper, jsonNode, clazz);
+                return ResponseConverterUtil.wrapperJsonToEvent(jacksonMapper, jsonNode, clazz);
             }
         });
     }
@@ -165,7 +163,7 @@ public class SingleEventResource extends BaseResource {
      * @return the active request.
      */
     public OrchestrateRequest<EventMetadata> update(final @NonNull Object value) {
-        final byte[] content = toJsonBytes(value);
+        final Buffer content = toJsonBuffer(value);
 
         final String uri = buildUri();
 
@@ -173,7 +171,7 @@ public class SingleEventResource extends BaseResource {
                 .method(Method.PUT)
                 .contentType("application/json")
                 .uri(uri)
-                .contentLength(content.length);
+                .contentLength(content.remaining());
 
         if(ifMatchRef != null) {
             httpHeaderBuilder.header(Header.IfMatch, "\"".concat(ifMatchRef).concat("\""));
@@ -181,7 +179,7 @@ public class SingleEventResource extends BaseResource {
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
 
         return new OrchestrateRequest<EventMetadata>(client, packet, new EventMetadataResponseConverter());
@@ -193,7 +191,7 @@ public class SingleEventResource extends BaseResource {
      * @return the active request.
      */
     public OrchestrateRequest<EventMetadata> patch(JsonPatch patchOps) {
-        final byte[] content = toJsonBytes(patchOps.getOps());
+        final Buffer content = toJsonBuffer(patchOps.getOps());
 
         final String uri = buildUri();
 
@@ -201,7 +199,7 @@ public class SingleEventResource extends BaseResource {
                 .method(Method.PATCH)
                 .contentType("application/json-patch+json")
                 .uri(uri)
-                .contentLength(content.length);
+                .contentLength(content.remaining());
 
         if(ifMatchRef != null) {
             httpHeaderBuilder.header(Header.IfMatch, "\"".concat(ifMatchRef).concat("\""));
@@ -209,7 +207,7 @@ public class SingleEventResource extends BaseResource {
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
 
         return new OrchestrateRequest<EventMetadata>(client, packet, new EventMetadataResponseConverter());
@@ -221,7 +219,7 @@ public class SingleEventResource extends BaseResource {
      * @return the active request.
      */
     public OrchestrateRequest<EventMetadata> merge(String jsonString) {
-        final byte[] content = toJsonBytes(jsonString);
+        final Buffer content = toJsonBuffer(jsonString);
 
         final String uri = buildUri();
 
@@ -229,7 +227,7 @@ public class SingleEventResource extends BaseResource {
                 .method(Method.PATCH)
                 .contentType("application/merge-patch+json")
                 .uri(uri)
-                .contentLength(content.length);
+                .contentLength(content.remaining());
 
         if(ifMatchRef != null) {
             httpHeaderBuilder.header(Header.IfMatch, "\"".concat(ifMatchRef).concat("\""));
@@ -237,7 +235,7 @@ public class SingleEventResource extends BaseResource {
 
         final HttpContent packet = httpHeaderBuilder.build()
                 .httpContentBuilder()
-                .content(new ByteBufferWrapper(ByteBuffer.wrap(content)))
+                .content(content)
                 .build();
 
         return new OrchestrateRequest<EventMetadata>(client, packet, new EventMetadataResponseConverter());
@@ -257,10 +255,8 @@ public class SingleEventResource extends BaseResource {
                 final Long timestamp = new Long(parts[6]);
                 final String ordinal = parts[7];
 
-                final String ref = header.getHeader(Header.ETag)
-                        .replace("\"", "")
-                        .replace("-gzip", "");
-                return new Event<Void>(mapper, collection, key, eventType, timestamp, ordinal, ref, null, null, null, null);
+                final String ref = ResponseConverterUtil.parseRef(header.getHeader(Header.ETag));
+                return new Event<Void>(jacksonMapper, collection, key, eventType, timestamp, ordinal, ref, null, null, (JsonNode) null, null);
             }
             return null;
         }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that's updated by many threads without contention, each thread
+ * updates one of several cells (on separate cache lines) and the cells are
+ * summed when the counter is read.
+ */
+final class StripedCounter {
+
+    /** The number of longs in a cache line, each cell is on its own line. */
+    private static final int PADDING = 8;
+
+    /** The cells of the counter, at every {@code PADDING}th index. */
+    private final AtomicLongArray cells;
+    /** The mask to choose a cell for a thread. */
+    private final int mask;
+
+    StripedCounter() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()) {
+            stripes <<= 1;
+        }
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    void decrement() {
+        add(-1);
+    }
+
+    void add(final long value) {
+        // thread IDs are assigned in sequence, so threads spread over the cells
+        final int cell = (int) Thread.currentThread().getId() & mask;
+        cells.addAndGet(cell * PADDING, value);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel (Varghese and Lauck) for request deadlines. The
+ * wheel is shared by all clients in the JVM and driven by a single daemon
+ * thread, scheduling and cancelling a timeout are O(1) and don't take a lock.
+ *
+ * <p>Timeouts fire up to one tick late, never early. The tasks run on the
+ * timer thread and must not block. The thread parks while no timeouts are
+ * scheduled.
+ */
+@Slf4j
+final class TimerWheel {
+
+    /** The default duration (in nanoseconds) of a tick of the wheel. */
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /** The default number of buckets in the wheel, a power of two. */
+    private static final int WHEEL_SIZE = 512;
+    /** The maximum number of new timeouts to add to the wheel each tick. */
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    /** The timer wheel shared by all clients. */
+    private static final TimerWheel SHARED = new TimerWheel("OrchestrateClientTimer");
+
+    /** The duration (in nanoseconds) of a tick of the wheel. */
+    private final long tickNanos;
+    /** The buckets of the wheel, only accessed by the timer thread. */
+    private final Bucket[] wheel;
+    /** The mask of a tick's bucket in the wheel. */
+    private final int mask;
+    /** The timeouts scheduled and not yet added to the wheel. */
+    private final Queue<Timeout> pending;
+    /** The timeouts cancelled and not yet removed from the wheel. */
+    private final Queue<Timeout> cancelled;
+    /** Whether the timer thread has been started. */
+    private final AtomicBoolean started;
+    /** The timer thread. */
+    private final Thread thread;
+    /** Whether the timer thread is parked waiting for a timeout to be scheduled. */
+    private volatile boolean idle;
+
+    /** The time the clock of the wheel started, only accessed by the timer thread. */
+    private long startTime;
+    /** The number of ticks since the clock started, only accessed by the timer thread. */
+    private long tick;
+    /** The number of timeouts in the wheel, only accessed by the timer thread. */
+    private int size;
+
+    TimerWheel(final String threadName) {
+        this(threadName, TICK_NANOS, WHEEL_SIZE);
+    }
+
+    TimerWheel(final String threadName, final long tickNanos, final int wheelSize) {
+        assert (tickNanos > 0);
+        assert (wheelSize > 0 && Integer.bitCount(wheelSize) == 1);
+
+        this.tickNanos = tickNanos;
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.pending = new ConcurrentLinkedQueue<Timeout>();
+        this.cancelled = new ConcurrentLinkedQueue<Timeout>();
+        this.started = new AtomicBoolean();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWheel();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the timer wheel shared by all clients in the JVM.
+     *
+     * @return The shared timer wheel.
+     */
+    static TimerWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Schedule the {@code task} to run once the {@code delay} has elapsed.
+     *
+     * @param task The task to run.
+     * @param delay The time to wait before running the task.
+     * @param unit The unit of time of the {@code delay}.
+     * @return The timeout, to cancel the task with.
+     */
+    Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        assert (task != null);
+        assert (unit != null);
+
+        if (!started.get() && started.compareAndSet(false, true)) {
+            thread.start();
+        }
+        final Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(delay));
+        pending.add(timeout);
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+
+    private void runWheel() {
+        startTime = System.nanoTime();
+        while (true) {
+            if (size == 0 && pending.isEmpty()) {
+                awaitTimeouts();
+            }
+            final long now = awaitTick();
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire(now);
+            tick++;
+        }
+    }
+
+    /** Park until a timeout is scheduled, then restart the clock. */
+    private void awaitTimeouts() {
+        idle = true;
+        // a timeout may have been scheduled before the flag was seen
+        while (pending.isEmpty()) {
+            LockSupport.park(this);
+        }
+        idle = false;
+        // the wheel is empty, so the clock can be restarted
+        removeCancelled();
+        startTime = System.nanoTime();
+        tick = 0;
+    }
+
+    /** Sleep until the end of the current tick, returns the time. */
+    private long awaitTick() {
+        final long deadline = startTime + (tick + 1) * tickNanos;
+        long now = System.nanoTime();
+        while (now < deadline) {
+            LockSupport.parkNanos(this, deadline - now);
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            final Timeout timeout = pending.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // the tick the timeout expires in, or this tick if it's overdue
+            final long expiresAt = Math.max((timeout.deadline - startTime) / tickNanos, tick);
+            timeout.remainingRounds = (expiresAt - tick) / wheel.length;
+            wheel[(int) (expiresAt & mask)].add(timeout);
+            size++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * A task scheduled with the timer wheel.
+     */
+    static final class Timeout {
+
+        private static final int STATE_INIT = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimerWheel timer;
+        private final Runnable task;
+        /** The time (in nanoseconds) the task is due to run. */
+        private final long deadline;
+        private volatile int state = STATE_INIT;
+
+        /** The number of turns of the wheel left before the timeout expires. */
+        long remainingRounds;
+        /** The bucket the timeout is in, and its neighbours in the bucket. */
+        Bucket bucket;
+        Timeout next;
+        Timeout prev;
+
+        Timeout(final TimerWheel timer, final Runnable task, final long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task, if it hasn't run yet.
+         *
+         * @return {@code true} if the task was cancelled.
+         */
+        boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_CANCELLED)) {
+                return false;
+            }
+            // the timer thread removes it from the wheel
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        boolean isCancelled() {
+            return state == STATE_CANCELLED;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (final Throwable t) {
+                log.warn("A timeout task failed.", t);
+            }
+        }
+
+    }
+
+    /**
+     * The timeouts in a slot of the wheel, a doubly linked list only
+     * accessed by the timer thread.
+     */
+    private final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(final Timeout timeout) {
+            final Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /** Run the timeouts due in this turn of the wheel. */
+        void expire(final long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    // the end of the tick is at or after the deadline
+                    assert (timeout.deadline <= now);
+                    remove(timeout);
+                    size--;
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                    size--;
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * The TooManyInFlightRequestsException is thrown when a request is sent while
+ * the maximum number of requests are already in-flight, and the client is
+ * configured to fail fast.
+ *
+ * <pre>
+ * {@code
+ *   try {
+ *     client.kv("collection", "key")
+ *     .get(String.class)
+ *     .get();
+ *   } catch (TooManyInFlightRequestsException ex) {
+ *     //shed load or retry later
+ *   }
+ * }
+ * </pre>
+ *
+ * @see BackpressureMode#FAIL_FAST
+ */
+@SuppressWarnings("serial")
+public class TooManyInFlightRequestsException extends ClientException {
+
+    /** The maximum number of requests in-flight. */
+    private final int maxInFlightRequests;
+
+    TooManyInFlightRequestsException(final int maxInFlightRequests) {
+        super("Too many requests in-flight, the limit is " + maxInFlightRequests + ".");
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
+    /**
+     * Returns the maximum number of requests in-flight configured on the client.
+     *
+     * @return The maximum number of requests in-flight.
+     */
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * Chooses which requests are passed to the {@link RequestTracer}. The
+ * decision is made when the request completes, before any trace is created,
+ * so requests that aren't sampled cost nothing to trace.
+ *
+ * @see TraceSamplers
+ */
+public interface TraceSampler {
+
+    /**
+     * Returns whether to trace a completed request.
+     *
+     * @param status The HTTP status of the response, or {@code 0} if no
+     *               response was received.
+     * @param durationNanos The time (in nanoseconds) from when the request was
+     *                      sent until it completed.
+     * @param failed Whether the request failed.
+     * @return {@code true} if the request should be traced.
+     */
+    public boolean isSampled(final int status, final long durationNanos, final boolean failed);
+
+}
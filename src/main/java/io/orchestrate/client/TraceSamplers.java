@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import lombok.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.orchestrate.client.Preconditions.checkArgument;
+import static io.orchestrate.client.Preconditions.checkNotNegative;
+
+/**
+ * The standard {@link TraceSampler}s.
+ *
+ * <pre>
+ * {@code
+ * // every failed request and 1 in 1000 of the rest
+ * TraceSampler sampler = TraceSamplers.anyOf(
+ *         TraceSamplers.errorsOnly(), TraceSamplers.oneIn(1000));
+ * }
+ * </pre>
+ */
+public final class TraceSamplers {
+
+    private static final TraceSampler ALWAYS = new TraceSampler() {
+        @Override
+        public boolean isSampled(final int status, final long durationNanos, final boolean failed) {
+            return true;
+        }
+    };
+
+    private static final TraceSampler ERRORS_ONLY = new TraceSampler() {
+        @Override
+        public boolean isSampled(final int status, final long durationNanos, final boolean failed) {
+            return failed;
+        }
+    };
+
+    private TraceSamplers() {}
+
+    /**
+     * Returns a sampler that traces every request.
+     *
+     * @return The sampler.
+     */
+    public static TraceSampler always() {
+        return ALWAYS;
+    }
+
+    /**
+     * Returns a sampler that traces one in every {@code n} requests.
+     *
+     * @param n The number of requests per trace.
+     * @return The sampler.
+     */
+    public static TraceSampler oneIn(final int n) {
+        checkArgument(n > 0, "'n' must be greater than 0.");
+
+        final AtomicLong count = new AtomicLong();
+        return new TraceSampler() {
+            @Override
+            public boolean isSampled(final int status, final long durationNanos, final boolean failed) {
+                return count.getAndIncrement() % n == 0;
+            }
+        };
+    }
+
+    /**
+     * Returns a sampler that traces the requests that take longer than the
+     * {@code threshold} to complete.
+     *
+     * @param threshold The time a request must take to be traced.
+     * @param unit The unit of time for the {@code threshold}.
+     * @return The sampler.
+     */
+    public static TraceSampler slowerThan(final long threshold, final @NonNull TimeUnit unit) {
+        checkNotNegative(threshold, "threshold");
+
+        final long thresholdNanos = unit.toNanos(threshold);
+        return new TraceSampler() {
+            @Override
+            public boolean isSampled(final int status, final long durationNanos, final boolean failed) {
+                return durationNanos > thresholdNanos;
+            }
+        };
+    }
+
+    /**
+     * Returns a sampler that traces the requests that fail, including those
+     * that fail with an error response from the service.
+     *
+     * @return The sampler.
+     */
+    public static TraceSampler errorsOnly() {
+        return ERRORS_ONLY;
+    }
+
+    /**
+     * Returns a sampler that traces the requests chosen by any of the
+     * {@code samplers}.
+     *
+     * @param samplers The samplers to combine.
+     * @return The sampler.
+     */
+    public static TraceSampler anyOf(final @NonNull TraceSampler... samplers) {
+        checkArgument(samplers.length > 0, "'samplers' must not be empty.");
+
+        final TraceSampler[] copy = samplers.clone();
+        return new TraceSampler() {
+            @Override
+            public boolean isSampled(final int status, final long durationNanos, final boolean failed) {
+                for (final TraceSampler sampler : copy) {
+                    if (sampler.isSampled(status, durationNanos, failed)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+/**
+ * Percent-encodes URL path segments and query parameter values as UTF-8,
+ * producing the same output as Grizzly's {@code UEncoder} except that
+ * characters outside the BMP are encoded (rather than replaced with
+ * {@code '?'}). Values with no characters to encode are used as-is.
+ */
+final class UrlEncoder {
+
+    /** The ASCII characters that are not encoded. */
+    private static final boolean[] SAFE_CHARS = new boolean[128];
+    /** The digits for the encoded bytes. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            SAFE_CHARS[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            SAFE_CHARS[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            SAFE_CHARS[c] = true;
+        }
+        for (final char c : "!$'()*,-._".toCharArray()) {
+            SAFE_CHARS[c] = true;
+        }
+    }
+
+    private UrlEncoder() {}
+
+    /**
+     * Returns the value percent-encoded.
+     *
+     * @param value The value to encode.
+     * @return The encoded value, or {@code value} if nothing needs encoding.
+     */
+    static String encode(final String value) {
+        if (isSafe(value)) {
+            return value;
+        }
+        return append(new StringBuilder(value.length() + 16), value).toString();
+    }
+
+    /**
+     * Appends the value percent-encoded to the {@code buff}.
+     *
+     * @param buff The builder to append to.
+     * @param value The value to encode.
+     * @return The {@code buff}.
+     */
+    static StringBuilder append(final StringBuilder buff, final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                if (SAFE_CHARS[c]) {
+                    buff.append(c);
+                } else {
+                    appendByte(buff, c);
+                }
+            } else if (c < 0x800) {
+                appendByte(buff, 0xc0 | (c >> 6));
+                appendByte(buff, 0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendByte(buff, 0xf0 | (codePoint >> 18));
+                appendByte(buff, 0x80 | ((codePoint >> 12) & 0x3f));
+                appendByte(buff, 0x80 | ((codePoint >> 6) & 0x3f));
+                appendByte(buff, 0x80 | (codePoint & 0x3f));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // an unpaired surrogate can't be encoded, it's replaced like the charset encoder does
+                appendByte(buff, '?');
+            } else {
+                appendByte(buff, 0xe0 | (c >> 12));
+                appendByte(buff, 0x80 | ((c >> 6) & 0x3f));
+                appendByte(buff, 0x80 | (c & 0x3f));
+            }
+        }
+        return buff;
+    }
+
+    private static boolean isSafe(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80 || !SAFE_CHARS[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendByte(final StringBuilder buff, final int b) {
+        buff.append('%')
+                .append(HEX_DIGITS[(b >> 4) & 0xf])
+                .append(HEX_DIGITS[b & 0xf]);
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import io.orchestrate.client.fake.FakeOrchestrateServer;
+import org.glassfish.grizzly.SocketConnectorHandler;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Choosing between the addresses of a host, and failing over from an
+ * address that can't be connected to.
+ */
+public final class AddressResolverTest {
+
+    private static final String HOST = "orchestrate.test";
+    private static final String COLLECTION = "failover";
+
+    private FakeOrchestrateServer server;
+    private OrchestrateClient client;
+
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void ordersPreferredFamilyFirst() throws UnknownHostException {
+        final InetAddress v6a = InetAddress.getByName("::1");
+        final InetAddress v4a = InetAddress.getByName("127.0.0.1");
+        final InetAddress v6b = InetAddress.getByName("fe80::1");
+        final InetAddress v4b = InetAddress.getByName("127.0.0.2");
+        final InetAddress[] resolved = { v6a, v4a, v6b, v4b };
+
+        assertArrayEquals(new InetAddress[] { v4a, v4b, v6a, v6b },
+                AddressResolver.preferredFirst(resolved, false));
+        assertArrayEquals(new InetAddress[] { v6a, v6b, v4a, v4b },
+                AddressResolver.preferredFirst(resolved, true));
+    }
+
+    @Test
+    public void roundRobinSkipsFailedAddress() throws UnknownHostException {
+        assertSkipsFailedAddress(AddressSelection.ROUND_ROBIN);
+    }
+
+    @Test
+    public void leastLoadedSkipsFailedAddress() throws UnknownHostException {
+        assertSkipsFailedAddress(AddressSelection.LEAST_LOADED);
+    }
+
+    @Test
+    public void usesFailedAddressesIfAllHaveFailed() throws UnknownHostException {
+        final AddressResolver resolver = newResolver(AddressSelection.ROUND_ROBIN, 18080,
+                "127.0.0.1", "127.0.0.2");
+        resolver.connectFailed(new InetSocketAddress("127.0.0.1", 18080));
+        resolver.connectFailed(new InetSocketAddress("127.0.0.2", 18080));
+
+        final Set<InetSocketAddress> chosen = new HashSet<InetSocketAddress>();
+        for (int i = 0; i < 10; i++) {
+            chosen.add(resolver.resolve());
+        }
+        assertEquals(2, chosen.size());
+    }
+
+    @Test
+    public void roundRobinFailsOverFromUnreachableAddress() throws IOException {
+        assertFailsOver(AddressSelection.ROUND_ROBIN);
+    }
+
+    @Test
+    public void leastLoadedFailsOverFromUnreachableAddress() throws IOException {
+        assertFailsOver(AddressSelection.LEAST_LOADED);
+    }
+
+    @Test
+    public void failsOnceEveryAddressIsUnreachable() {
+        // nothing listens on the port
+        client = newClient(AddressSelection.ROUND_ROBIN, FakeOrchestrateServer.DEFAULT_PORT + 3);
+
+        for (int i = 0; i < 4; i++) {
+            try {
+                client.kv(COLLECTION, "key").get(String.class).get(10, TimeUnit.SECONDS);
+                fail("Expected the request to fail.");
+            } catch (final ClientException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    private void assertSkipsFailedAddress(final AddressSelection selection) throws UnknownHostException {
+        final AddressResolver resolver = newResolver(selection, 18080, "127.0.0.1", "127.0.0.2");
+        final InetSocketAddress failed = new InetSocketAddress("127.0.0.1", 18080);
+        resolver.connectFailed(failed);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new InetSocketAddress("127.0.0.2", 18080), resolver.resolve());
+        }
+    }
+
+    private void assertFailsOver(final AddressSelection selection) throws IOException {
+        server = FakeOrchestrateServer.builder()
+                .port(FakeOrchestrateServer.DEFAULT_PORT + 2)
+                .build();
+        server.start();
+        // the server only listens on 127.0.0.1, so connects to ::1 fail
+        client = newClient(selection, server.getPort());
+
+        client.kv(COLLECTION, "key").put("{\"n\":1}").get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < 20; i++) {
+            final KvObject<String> kvObject = client.kv(COLLECTION, "key")
+                    .get(String.class)
+                    .get(10, TimeUnit.SECONDS);
+            assertNotNull(kvObject);
+        }
+    }
+
+    private OrchestrateClient newClient(final AddressSelection selection, final int port) {
+        return OrchestrateClient.builder("api-key")
+                .host("http://" + HOST)
+                .port(port)
+                .useSSL(false)
+                .addressSelection(selection)
+                .nameService(new FakeNameService("::1", "127.0.0.1"))
+                .build();
+    }
+
+    private static AddressResolver newResolver(
+            final AddressSelection selection, final int port, final String... addresses) {
+        // only the load on each address is used, no connections are opened
+        final SocketConnectorHandler connector = (SocketConnectorHandler) Proxy.newProxyInstance(
+                SocketConnectorHandler.class.getClassLoader(),
+                new Class<?>[] { SocketConnectorHandler.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        final ConnectionPool pool = new ConnectionPool(connector, 0, 1, 0, 1);
+        return new AddressResolver(HOST, port, TimeUnit.HOURS.toMillis(1), selection, pool,
+                new FakeNameService(addresses));
+    }
+
+    /**
+     * Resolves any host to the same addresses.
+     */
+    private static final class FakeNameService implements AddressResolver.NameService {
+
+        private final String[] addresses;
+
+        FakeNameService(final String... addresses) {
+            this.addresses = addresses;
+        }
+
+        @Override
+        public InetAddress[] lookup(final String host) throws UnknownHostException {
+            final InetAddress[] resolved = new InetAddress[addresses.length];
+            for (int i = 0; i < addresses.length; i++) {
+                resolved[i] = InetAddress.getByName(addresses[i]);
+            }
+            return resolved;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(addresses);
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * The bucket math and percentiles of {@link LatencyHistogram}.
+ */
+public final class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesHaveTheirOwnBuckets() {
+        for (int value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.index(value));
+            assertEquals(value, LatencyHistogram.highestValue(value));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        assertEquals(0, LatencyHistogram.highestValue(0));
+        for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+            final long lowest = LatencyHistogram.highestValue(i - 1) + 1;
+            final long highest = LatencyHistogram.highestValue(i);
+            assertTrue("bucket " + i, lowest <= highest);
+            assertEquals("bucket " + i, i, LatencyHistogram.index(lowest));
+            assertEquals("bucket " + i, i, LatencyHistogram.index(highest));
+        }
+    }
+
+    @Test
+    public void lastBucketEndsAtTheMaxValue() {
+        final int last = LatencyHistogram.BUCKETS - 1;
+        assertEquals(last, LatencyHistogram.index(LatencyHistogram.MAX_VALUE));
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValue(last));
+    }
+
+    @Test
+    public void bucketsAreWithinThreePercent() {
+        for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+            final long lowest = LatencyHistogram.highestValue(i - 1) + 1;
+            final long highest = LatencyHistogram.highestValue(i);
+            assertTrue("bucket " + i, (highest - lowest) * 32 <= lowest);
+        }
+    }
+
+    @Test
+    public void indexesPowersOfTwoAndTheirNeighbours() {
+        for (int exponent = 1; exponent < 40; exponent++) {
+            final long value = 1L << exponent;
+            for (final long v : new long[] { value - 1, value, value + 1 }) {
+                final int index = LatencyHistogram.index(v);
+                assertTrue(String.valueOf(v), v <= LatencyHistogram.highestValue(index));
+                assertTrue(String.valueOf(v), index == 0 || v > LatencyHistogram.highestValue(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(99, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void percentileRanksExactValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 30; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(30, histogram.getCount());
+        assertEquals(15, histogram.getMean(TimeUnit.NANOSECONDS));
+        assertEquals(30, histogram.getMax(TimeUnit.NANOSECONDS));
+        // the rank is ceil(count * percentile / 100), at least 1
+        assertEquals(1, histogram.getPercentile(0, TimeUnit.NANOSECONDS));
+        assertEquals(1, histogram.getPercentile(1, TimeUnit.NANOSECONDS));
+        assertEquals(2, histogram.getPercentile(4, TimeUnit.NANOSECONDS));
+        assertEquals(15, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+        assertEquals(16, histogram.getPercentile(51, TimeUnit.NANOSECONDS));
+        assertEquals(27, histogram.getPercentile(90, TimeUnit.NANOSECONDS));
+        assertEquals(30, histogram.getPercentile(99, TimeUnit.NANOSECONDS));
+        assertEquals(30, histogram.getPercentile(100, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void percentileIsCappedByTheMax() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+
+        // the bucket of 1000 goes up to 1007
+        assertEquals(1000, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+        assertEquals(1000, histogram.getPercentile(100, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void percentilesAreWithinThreePercent() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Random rand = new Random(42);
+        final long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // between 1us and 1s, log-uniform
+            values[i] = (long) Math.pow(10, 3 + rand.nextDouble() * 6);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (final double percentile : new double[] { 1, 25, 50, 75, 90, 99, 99.9, 100 }) {
+            final long rank = Math.max(1, (long) Math.ceil(values.length * percentile / 100));
+            final long exact = values[(int) rank - 1];
+            final long reported = histogram.getPercentile(percentile, TimeUnit.NANOSECONDS);
+            assertTrue(percentile + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(percentile + ": " + reported + " > " + exact, (reported - exact) * 32 <= exact);
+        }
+    }
+
+    @Test
+    public void clampsValuesOutOfRange() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getPercentile(100, TimeUnit.NANOSECONDS));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void convertsToTheUnit() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(4, histogram.getMean(TimeUnit.MILLISECONDS));
+        assertEquals(5, histogram.getMax(TimeUnit.MILLISECONDS));
+        assertEquals(5, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import io.orchestrate.client.fake.FakeOrchestrateServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pipelined requests on connections the server closes (after a {@code
+ * Connection: close} response) while requests are in-flight, each response
+ * must be given to the request it was sent for.
+ */
+public final class PipeliningTest {
+
+    private static final String COLLECTION = "pipelining";
+    private static final int KEYS = 100;
+    private static final int THREADS = 32;
+    private static final int REQUESTS_PER_THREAD = 300;
+
+    public static final class Item {
+        public int n;
+    }
+
+    private FakeOrchestrateServer server;
+    private OrchestrateClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = FakeOrchestrateServer.builder()
+                .port(FakeOrchestrateServer.DEFAULT_PORT + 1)
+                .maxRequestsPerConnection(3)
+                .build();
+        server.start();
+
+        client = OrchestrateClient.builder("api-key")
+                .host("http://127.0.0.1")
+                .port(server.getPort())
+                .useSSL(false)
+                .maxConnectionsPerHost(2)
+                .pipelineDepth(8)
+                .build();
+
+        for (int i = 0; i < KEYS; i++) {
+            client.kv(COLLECTION, "k" + i).put("{\"n\":" + i + "}").get();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void responsesMatchRequestsAcrossServerCloses() throws Exception {
+        final AtomicInteger mismatched = new AtomicInteger();
+        final AtomicInteger succeeded = new AtomicInteger();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<Future<?>>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    final Random rand = new Random();
+                    for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                        try {
+                            if (rand.nextInt(4) == 0) {
+                                // a differently shaped response, mismatched
+                                // with a single item it fails to convert
+                                final KvList<Item> list = client.listCollection(COLLECTION)
+                                        .limit(5)
+                                        .get(Item.class)
+                                        .get(10, TimeUnit.SECONDS);
+                                int count = 0;
+                                for (final KvObject<Item> ignored : list) {
+                                    count++;
+                                }
+                                if (count != 5) {
+                                    mismatched.incrementAndGet();
+                                }
+                            } else {
+                                final int i = rand.nextInt(KEYS);
+                                final KvObject<Item> kvObject = client.kv(COLLECTION, "k" + i)
+                                        .get(Item.class)
+                                        .get(10, TimeUnit.SECONDS);
+                                if (kvObject == null || !kvObject.getKey().equals("k" + i)
+                                        || kvObject.getValue().n != i) {
+                                    mismatched.incrementAndGet();
+                                }
+                            }
+                            succeeded.incrementAndGet();
+                        } catch (final Exception e) {
+                            synchronized (errors) {
+                                errors.add(e);
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(0, mismatched.get());
+        assertTrue(succeeded.get() > 0);
+        // a request at the head of the pipeline is only retried once, it may
+        // fail if its connection is closed again, but never by converting
+        // another request's response (a 'JsonProcessingException')
+        for (final Throwable error : errors) {
+            assertNotNull(String.valueOf(error), error.getCause());
+            assertEquals(String.valueOf(error), IOException.class, error.getCause().getClass());
+        }
+    }
+
+}
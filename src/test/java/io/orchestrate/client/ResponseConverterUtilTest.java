@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parsing refs from {@code ETag} headers.
+ */
+public final class ResponseConverterUtilTest {
+
+    @Test
+    public void parsesQuotedRef() {
+        assertEquals("0eb2ab25de0ce4a3", ResponseConverterUtil.parseRef("\"0eb2ab25de0ce4a3\""));
+    }
+
+    @Test
+    public void parsesUnquotedRef() {
+        assertEquals("0eb2ab25de0ce4a3", ResponseConverterUtil.parseRef("0eb2ab25de0ce4a3"));
+    }
+
+    @Test
+    public void dropsGzipSuffix() {
+        assertEquals("0eb2ab25de0ce4a3", ResponseConverterUtil.parseRef("0eb2ab25de0ce4a3-gzip"));
+    }
+
+    @Test
+    public void dropsGzipSuffixWithinQuotes() {
+        assertEquals("0eb2ab25de0ce4a3", ResponseConverterUtil.parseRef("\"0eb2ab25de0ce4a3-gzip\""));
+    }
+
+    @Test
+    public void parsesOnlyGzipSuffixAsEmptyRef() {
+        assertEquals("", ResponseConverterUtil.parseRef("\"-gzip\""));
+        assertEquals("", ResponseConverterUtil.parseRef("-gzip"));
+    }
+
+    @Test
+    public void keepsGzipWithinRef() {
+        assertEquals("ab-gzipcd", ResponseConverterUtil.parseRef("\"ab-gzipcd\""));
+    }
+
+    @Test
+    public void parsesWeakRefAsStrongRef() {
+        assertEquals("0eb2ab25de0ce4a3", ResponseConverterUtil.parseRef("W/\"0eb2ab25de0ce4a3\""));
+        assertEquals("0eb2ab25de0ce4a3", ResponseConverterUtil.parseRef("W/\"0eb2ab25de0ce4a3-gzip\""));
+    }
+
+    @Test
+    public void keepsEmbeddedQuotes() {
+        assertEquals("ab\"cd", ResponseConverterUtil.parseRef("\"ab\"cd\""));
+    }
+
+    @Test
+    public void parsesEmptyRef() {
+        assertEquals("", ResponseConverterUtil.parseRef(""));
+        assertEquals("", ResponseConverterUtil.parseRef("\"\""));
+    }
+
+    @Test
+    public void parsesMissingHeaderAsNoRef() {
+        assertNull(ResponseConverterUtil.parseRef(null));
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Values streamed from a page of results keep the JSON the service sent.
+ */
+public final class ResultsPageReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String PAGE = "{\"count\":2,\"results\":["
+            + "{\"path\":{\"collection\":\"users\",\"key\":\"a\",\"ref\":\"r1\",\"kind\":\"item\"},"
+            + "\"value\":{\"name\":\"a\"}},"
+            + "{\"path\":{\"collection\":\"users\",\"key\":\"b\",\"ref\":\"r2\",\"kind\":\"event\","
+            + "\"type\":\"log\",\"timestamp\":1,\"ordinal\":\"2\"},"
+            + "\"value\":{\"name\":\"b\",\"tags\":[1, 2]}}"
+            + "]}";
+
+    private final JacksonMapper mapper = new JacksonMapper();
+
+    @Test
+    public void bindsValueToAnotherTypeFromOriginalJson() throws IOException {
+        final List<KvObject<User>> results = read(User.class, false);
+
+        final KvObject<User> item = results.get(0);
+        assertEquals("a", item.getValue().name);
+        // not '{name=a, age=0}', from the bound value
+        assertEquals(Collections.singletonMap("name", "a"), item.getValue(Map.class));
+        assertEquals("{\"name\":\"a\"}", item.getRawValue());
+    }
+
+    @Test
+    public void keepsOriginalJsonOfEvents() throws IOException {
+        final List<KvObject<User>> results = read(User.class, false);
+
+        final KvObject<User> event = results.get(1);
+        assertTrue(event instanceof Event);
+        assertEquals("b", event.getValue().name);
+        assertFalse(event.getValue(Map.class).containsKey("age"));
+        assertEquals("{\"name\":\"b\",\"tags\":[1, 2]}", event.getRawValue());
+    }
+
+    @Test
+    public void readsValueAsOriginalJson() throws IOException {
+        final List<KvObject<String>> results = read(String.class, false);
+
+        assertEquals("{\"name\":\"a\"}", results.get(0).getValue());
+        assertEquals("{\"name\":\"a\"}", results.get(0).getRawValue());
+    }
+
+    @Test
+    public void bindsLazyValueFromOriginalJson() throws IOException {
+        final List<KvObject<User>> results = read(User.class, true);
+
+        final KvObject<User> item = results.get(0);
+        assertEquals(Collections.singletonMap("name", "a"), item.getValue(Map.class));
+        assertEquals("{\"name\":\"a\"}", item.getRawValue());
+        assertEquals("a", item.getValue().name);
+    }
+
+    private <T> List<KvObject<T>> read(final Class<T> type, final boolean lazyValues) throws IOException {
+        return new ResultsPageReader<T, KvObject<T>>(
+                mapper, mapper.getMapper().constructType(type), ItemKind.ITEM, lazyValues) {
+            @Override
+            KvObject<T> toResult(final KvObject<T> kvObject, final double score, final Double distance) {
+                return kvObject;
+            }
+        }.read(PAGE.getBytes(UTF8)).getResults();
+    }
+
+    public static final class User {
+        public String name;
+        public int age;
+        public List<Integer> tags;
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Timeouts on a small wheel (8 buckets of 1ms), so timeouts of more than a
+ * few milliseconds take several turns of the wheel.
+ */
+public final class TimerWheelTest {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int WHEEL_SIZE = 8;
+
+    private TimerWheel timer;
+
+    @Before
+    public void setUp() {
+        timer = new TimerWheel("TimerWheelTest", TICK_NANOS, WHEEL_SIZE);
+    }
+
+    @Test
+    public void firesAfterTheDelay() throws InterruptedException {
+        final long start = System.nanoTime();
+        final AtomicLong firedAt = new AtomicLong();
+        final CountDownLatch fired = new CountDownLatch(1);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                firedAt.set(System.nanoTime());
+                fired.countDown();
+            }
+        }, 3, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(3));
+    }
+
+    @Test
+    public void firesAfterSeveralRounds() throws InterruptedException {
+        final long delayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        final long start = System.nanoTime();
+        final AtomicLong firedAt = new AtomicLong();
+        final CountDownLatch fired = new CountDownLatch(1);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                firedAt.set(System.nanoTime());
+                fired.countDown();
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        // never early, though the deadline is 6 turns of the wheel away
+        assertTrue(firedAt.get() - start >= delayNanos);
+    }
+
+    @Test
+    public void firesInDeadlineOrder() throws InterruptedException {
+        final List<Integer> delays = Arrays.asList(40, 3, 70, 17, 9, 25);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch fired = new CountDownLatch(delays.size());
+        for (final Integer delay : delays) {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(delay);
+                    fired.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(3, 9, 17, 25, 40, 70), order);
+    }
+
+    @Test
+    public void firesOverdueTimeouts() throws InterruptedException {
+        final CountDownLatch fired = new CountDownLatch(2);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                fired.countDown();
+            }
+        };
+        timer.schedule(task, 0, TimeUnit.MILLISECONDS);
+        timer.schedule(task, -5, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotFire() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final TimerWheel.Timeout timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+
+        awaitTimeout(40);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void cancelledTimeoutInTheWheelDoesNotFire() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final TimerWheel.Timeout timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+
+        // let the timeout be added to the wheel before it's cancelled
+        awaitTimeout(5);
+        assertTrue(timeout.cancel());
+
+        awaitTimeout(50);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void cannotCancelFiredTimeout() throws InterruptedException {
+        final CountDownLatch fired = new CountDownLatch(1);
+        final TimerWheel.Timeout timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fired.countDown();
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isCancelled());
+    }
+
+    @Test
+    public void reschedulesByReplacingTheTimeout() throws InterruptedException {
+        // the way a request's deadline is moved
+        final List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+        final TimerWheel.Timeout first = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runs.add("first");
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch fired = new CountDownLatch(1);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runs.add("second");
+                fired.countDown();
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+        assertTrue(first.cancel());
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("second"), runs);
+    }
+
+    @Test
+    public void reschedulesFromATimeoutTask() throws InterruptedException {
+        // the way the idle connection health check repeats
+        final CountDownLatch fired = new CountDownLatch(5);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fired.countDown();
+                if (fired.getCount() > 0) {
+                    timer.schedule(this, 7, TimeUnit.MILLISECONDS);
+                }
+            }
+        }, 7, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void restartsOnceIdle() throws InterruptedException {
+        final CountDownLatch first = new CountDownLatch(1);
+        timer.schedule(countDown(first), 2, TimeUnit.MILLISECONDS);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        // the timer thread parks while the wheel is empty
+        Thread.sleep(20);
+
+        final long start = System.nanoTime();
+        final CountDownLatch second = new CountDownLatch(1);
+        timer.schedule(countDown(second), 15, TimeUnit.MILLISECONDS);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+    }
+
+    @Test
+    public void failedTaskDoesNotStopTheTimer() throws InterruptedException {
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        final CountDownLatch fired = new CountDownLatch(1);
+        timer.schedule(countDown(fired), 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitTimeout(final long delayMillis) throws InterruptedException {
+        final CountDownLatch fired = new CountDownLatch(1);
+        timer.schedule(countDown(fired), delayMillis, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+}
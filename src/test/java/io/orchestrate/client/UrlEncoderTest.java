@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.orchestrate.client;
+
+import org.glassfish.grizzly.http.util.UEncoder;
+import org.junit.Test;
+
+import java.net.URLDecoder;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link UrlEncoder} must encode like Grizzly's {@code UEncoder}, which it
+ * replaced, except for characters outside the BMP.
+ */
+public final class UrlEncoderTest {
+
+    @Test
+    public void encodesEveryBmpCharacterLikeUEncoder() {
+        final UEncoder encoder = new UEncoder();
+        for (char c = 0; c < Character.MIN_SURROGATE; c++) {
+            assertEncodedLikeUEncoder(encoder, String.valueOf(c));
+        }
+        for (int c = Character.MAX_SURROGATE + 1; c <= Character.MAX_VALUE; c++) {
+            assertEncodedLikeUEncoder(encoder, String.valueOf((char) c));
+        }
+    }
+
+    @Test
+    public void encodesMixedValuesLikeUEncoder() {
+        final UEncoder encoder = new UEncoder();
+        assertEncodedLikeUEncoder(encoder, "");
+        assertEncodedLikeUEncoder(encoder, "key-1_2.3");
+        assertEncodedLikeUEncoder(encoder, "a b/c?d=e&f#g%h+i");
+        assertEncodedLikeUEncoder(encoder, "caf\u00e9 \u4e2d\u6587 \u00ff\u0800\uffff");
+        assertEncodedLikeUEncoder(encoder, "value:*~[]{}|\\^`\"<>;@");
+    }
+
+    @Test
+    public void returnsSafeValuesAsIs() {
+        final String value = "Some-Key_01.json";
+        assertSame(value, UrlEncoder.encode(value));
+    }
+
+    @Test
+    public void encodesSupplementaryCharactersAsUtf8() throws Exception {
+        // U+1F600, UEncoder replaced each half of the surrogate pair with '?'
+        final String value = "smile\uD83D\uDE00";
+        final String encoded = UrlEncoder.encode(value);
+
+        assertEquals("smile%f0%9f%98%80", encoded);
+        assertEquals("smile%3f%3f", new UEncoder().encodeURL(value));
+        assertEquals(value, URLDecoder.decode(encoded, "UTF-8"));
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() {
+        assertEquals("a%3fb", UrlEncoder.encode("a\uD800b"));
+        assertEquals("a%3f", UrlEncoder.encode("a\uDC00"));
+    }
+
+    private static void assertEncodedLikeUEncoder(final UEncoder encoder, final String value) {
+        assertEquals(value, encoder.encodeURL(value), UrlEncoder.encode(value));
+    }
+
+}